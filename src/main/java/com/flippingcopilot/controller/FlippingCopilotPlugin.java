@@ -1,5 +1,6 @@
 package com.flippingcopilot.controller; // Ensure this package matches your project structure
 
+import com.flippingcopilot.logic.TradingLogic;
 import com.flippingcopilot.model.*;
 import com.flippingcopilot.ui.*;
 import com.flippingcopilot.ui.graph.PriceGraphController; // Assuming this is correct based on your structure
@@ -50,6 +51,8 @@ public class FlippingCopilotPlugin extends Plugin {
 	private GrandExchangeCollectHandler grandExchangeCollectHandler;
 	@Inject
 	private GrandExchangeOfferEventHandler offerEventHandler;
+	@Inject
+	private OfferEventWorker offerEventWorker;
 	// @Inject // PHASE 1: Comment out ApiRequestHandler as we are removing direct backend calls
 	// private ApiRequestHandler apiRequestHandler;
 	@Inject
@@ -86,6 +89,12 @@ public class FlippingCopilotPlugin extends Plugin {
 	private OfferManager offerManager;
 	@Inject
 	private PriceGraphOpener priceGraphOpener;
+	@Inject
+	private WikiPriceManager wikiPriceManager;
+	@Inject
+	private PriceHistoryManager priceHistoryManager;
+	@Inject
+	private TradingLogic tradingLogic;
 
 	private MainPanel mainPanel;
 	private StatsPanelV2 statsPanel; // Assuming this is the correct name from your files
@@ -118,14 +127,17 @@ public class FlippingCopilotPlugin extends Plugin {
 		}
 
 
+		wikiPriceManager.setPricesChangedCallback((prices) -> {
+			tradingLogic.setPrices(prices);
+			suggestionManager.setSuggestionNeeded(true);
+		});
+		wikiPriceManager.start();
+		priceHistoryManager.start();
+
 		mainPanel.refresh(); // We will modify MainPanel to always show the main content view for Phase 1
 
-		// PHASE 1: Comment out attempts to load flips or sync data based on Copilot login
-       /*
-       if(loginResponseManager.isLoggedIn()) {
-          flipManager.loadFlipsAsync();
-       }
-       */
+		// flips are stored locally so they no longer depend on the Copilot login
+		flipManager.loadFlipsAsync();
 
 		// This part is for OSRS login, which is fine
 		if(osrsLoginManager.getInvalidStateDisplayMessage() == null) {
@@ -160,7 +172,14 @@ public class FlippingCopilotPlugin extends Plugin {
 
 	@Override
 	protected void shutDown() throws Exception {
+		wikiPriceManager.stop();
+		priceHistoryManager.stop();
+		// queued offer writes and transactions have to land before the state files are forced and closed
+		offerEventWorker.close();
+		offerEventHandler.logEventStats();
 		offerManager.saveAll(); // Local saving, fine
+		flipManager.saveSnapshot();
+		transactionManger.close();
 		highlightController.removeAll(); // UI, fine
 		clientToolbar.removeNavigation(navButton); // UI, fine
 
@@ -174,6 +193,9 @@ public class FlippingCopilotPlugin extends Plugin {
        }
        */
 		keybindHandler.unregister(); // Local, fine
+		if (statsPanel != null) {
+			log.debug("stats panel refreshes avoided by coalescing: {}", statsPanel.getRefreshesAvoided());
+		}
 		log.info("Flipping Copilot (Offline) stopped!");
 	}
 
@@ -185,13 +207,17 @@ public class FlippingCopilotPlugin extends Plugin {
 	//---------------------------- Event Handlers ----------------------------//
 	@Subscribe
 	public void onGrandExchangeOfferChanged(GrandExchangeOfferChanged event) {
+		accountStatusManager.onOfferChanged(event.getSlot(), event.getOffer());
 		offerEventHandler.onGrandExchangeOfferChanged(event);
 	}
 
 	@Subscribe
 	public void onItemContainerChanged(ItemContainerChanged event) {
-		if (event.getContainerId() == InventoryID.INVENTORY.getId() && grandExchange.isOpen()) {
-			suggestionManager.setSuggestionNeeded(true); // This is fine, local suggestion engine will handle it later
+		if (event.getContainerId() == InventoryID.INVENTORY.getId()) {
+			accountStatusManager.onInventoryChanged(event.getItemContainer());
+			if (grandExchange.isOpen()) {
+				suggestionManager.setSuggestionNeeded(true); // This is fine, local suggestion engine will handle it later
+			}
 		}
 	}
 
@@ -274,12 +300,7 @@ public class FlippingCopilotPlugin extends Plugin {
 					}
 					mainPanel.refresh(); // Fine
 
-					// PHASE 1: Comment out transaction sync based on Copilot login
-                /*
-                if(loginResponseManager.isLoggedIn()) {
-                   transactionManger.scheduleSyncIn(0, name);
-                }
-                */
+					transactionManger.scheduleSyncIn(0, name);
 					return true;
 				});
 		}
@@ -293,6 +314,7 @@ public class FlippingCopilotPlugin extends Plugin {
 	@Subscribe
 	public void onClientShutdown(ClientShutdown clientShutdownEvent) {
 		log.debug("client shutdown event received");
+		offerEventWorker.close();
 		offerManager.saveAll(); // Local, fine
 
 		// PHASE 1: Comment out webhook sending based on Copilot login
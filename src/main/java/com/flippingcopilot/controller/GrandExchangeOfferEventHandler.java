@@ -1,6 +1,7 @@
 package com.flippingcopilot.controller;
 import com.flippingcopilot.model.*;
 import com.flippingcopilot.ui.GpDropOverlay;
+import com.flippingcopilot.util.MutableReference;
 
 import java.time.Instant;
 import java.util.*;
@@ -15,10 +16,17 @@ import net.runelite.api.GameState;
 import net.runelite.api.GrandExchangeOffer;
 import net.runelite.api.GrandExchangeOfferState;
 import net.runelite.api.events.GrandExchangeOfferChanged;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.ui.overlay.OverlayManager;
 
-import static com.flippingcopilot.model.OsrsLoginManager.GE_LOGIN_BURST_WINDOW;
-
+/**
+ * Works out what changed on a GE slot and the transaction it implies on the client thread, then hands saving the offer
+ * and adding the transaction to the OfferEventWorker. Only a resulting GpDropOverlay comes back to the client thread.
+ * <p>
+ * On login the client sends an event for every slot within GE_LOGIN_BURST_WINDOW ticks. Those are buffered, keeping the
+ * latest offer of each slot, and reconciled against the saved offers in one pass once the window has passed, so the
+ * burst costs one offer write, one transaction batch and one suggestion recompute.
+ */
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
@@ -34,17 +42,45 @@ public class GrandExchangeOfferEventHandler {
     private final GrandExchangeUncollectedManager grandExchangeUncollectedManager;
     private final OfferManager offerManager;
     private final SuggestionManager suggestionManager;
+    private final OfferEventWorker offerEventWorker;
+    private final ClientThread clientThread;
 
     // state
     private final Queue<Transaction> transactionsToProcess = new ConcurrentLinkedQueue<>();
+    // client thread time spent handling offer events, only touched on the client thread
+    private long eventsHandled;
+    private long eventNanosTotal;
+    private long eventNanosMax;
+    // offers of the login burst not reconciled yet, by slot, only touched on the client thread
+    private final Map<Integer, SavedOffer> loginBurstOffers = new TreeMap<>();
+    private Long loginBurstAccountHash;
 
     public void onGameTick() {
+        if(!loginBurstOffers.isEmpty() && !osrsLoginManager.hasJustLoggedIn()) {
+            reconcileLoginBurst();
+        }
         if(!transactionsToProcess.isEmpty()) {
             processTransactions();
         }
     }
 
     public void onGrandExchangeOfferChanged(GrandExchangeOfferChanged offerEvent) {
+        long s = System.nanoTime();
+        handleOfferChanged(offerEvent);
+        long nanos = System.nanoTime() - s;
+        eventsHandled++;
+        eventNanosTotal += nanos;
+        eventNanosMax = Math.max(eventNanosMax, nanos);
+        log.debug("GE offer event took {}us on the client thread, offer event worker queue depth {}", nanos / 1000, offerEventWorker.getQueueDepth());
+    }
+
+    public void logEventStats() {
+        log.debug("handled {} GE offer events, client thread time avg {}us max {}us, max offer event worker queue depth {}",
+                eventsHandled, eventsHandled == 0 ? 0 : eventNanosTotal / eventsHandled / 1000, eventNanosMax / 1000,
+                offerEventWorker.getMaxQueueDepth());
+    }
+
+    private void handleOfferChanged(GrandExchangeOfferChanged offerEvent) {
         final int slot = offerEvent.getSlot();
         final GrandExchangeOffer offer = offerEvent.getOffer();
         Long accountHash = client.getAccountHash();
@@ -58,11 +94,65 @@ public class GrandExchangeOfferEventHandler {
 
         SavedOffer o = SavedOffer.fromGrandExchangeOffer(offer);
 
+        if (!loginBurstOffers.isEmpty() && !Objects.equals(accountHash, loginBurstAccountHash)) {
+            reconcileLoginBurst();
+        }
+        if (osrsLoginManager.hasJustLoggedIn()) {
+            loginBurstAccountHash = accountHash;
+            loginBurstOffers.put(slot, o);
+            return;
+        }
+
+        List<Transaction> transactions = new ArrayList<>(1);
+        MutableReference<Boolean> suggestionNeeded = new MutableReference<>(false);
+        if (reconcile(accountHash, slot, o, false, transactions, suggestionNeeded)) {
+            offerEventWorker.submit(() -> offerPersistence.writeOffer(accountHash, slot, o));
+        }
+        if (!transactions.isEmpty()) {
+            transactionsToProcess.addAll(transactions);
+            processTransactions();
+        }
+        if (suggestionNeeded.getValue()) {
+            suggestionManager.setSuggestionNeeded(true);
+        }
+    }
+
+    private void reconcileLoginBurst() {
+        Long accountHash = loginBurstAccountHash;
+        Map<Integer, SavedOffer> changed = new TreeMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        MutableReference<Boolean> suggestionNeeded = new MutableReference<>(false);
+        for (Map.Entry<Integer, SavedOffer> e : loginBurstOffers.entrySet()) {
+            if (reconcile(accountHash, e.getKey(), e.getValue(), true, transactions, suggestionNeeded)) {
+                changed.put(e.getKey(), e.getValue());
+            }
+        }
+        log.debug("reconciled {} login burst offer events, {} slots changed, {} transactions", loginBurstOffers.size(), changed.size(), transactions.size());
+        loginBurstOffers.clear();
+        loginBurstAccountHash = null;
+        if (!changed.isEmpty()) {
+            offerEventWorker.submit(() -> changed.forEach((slot, o) -> offerPersistence.writeOffer(accountHash, slot, o)));
+        }
+        if (!transactions.isEmpty()) {
+            transactionsToProcess.addAll(transactions);
+            processTransactions();
+        }
+        if (suggestionNeeded.getValue()) {
+            suggestionManager.setSuggestionNeeded(true);
+        }
+    }
+
+    /**
+     * Reconciles a slot's new offer against its saved one: adds the transaction it implies to transactions, updates the
+     * uncollected items and caches the new offer as the slot's saved one. Returns false if the offer hasn't changed,
+     * otherwise the caller still has to write it.
+     */
+    private boolean reconcile(Long accountHash, int slot, SavedOffer o, boolean login, List<Transaction> transactions, MutableReference<Boolean> suggestionNeeded) {
         SavedOffer prev = offerPersistence.loadOffer(accountHash, slot);
 
         if(Objects.equals(o, prev)) {
             log.debug("skipping duplicate offer event {}", o);
-            return;
+            return false;
         }
 
         o.setCopilotPriceUsed(wasCopilotPriceUsed(o, prev));
@@ -74,18 +164,20 @@ public class GrandExchangeOfferEventHandler {
         }
 
         if(hasSlotBecomeFree(o, prev, consistent)) {
-            suggestionManager.setSuggestionNeeded(true);
+            suggestionNeeded.setValue(true);
         }
 
-        Transaction t = inferTransaction(slot, o, prev, consistent);
+        Transaction t = inferTransaction(slot, o, prev, consistent, login);
         if(t != null) {
-            transactionsToProcess.add(t);
-            processTransactions();
-            suggestionManager.setSuggestionNeeded(true);
+            transactions.add(t);
+            suggestionNeeded.setValue(true);
             log.debug("inferred transaction {}", t);
         }
-        updateUncollected(accountHash, slot, o, prev, consistent);
-        offerPersistence.saveOffer(accountHash, slot, o);
+        if (updateUncollected(accountHash, slot, o, prev, consistent)) {
+            suggestionNeeded.setValue(true);
+        }
+        offerPersistence.cacheOffer(accountHash, slot, o);
+        return true;
     }
 
     private boolean hasSlotBecomeFree(SavedOffer offer, SavedOffer prev, boolean consistent) {
@@ -108,9 +200,12 @@ public class GrandExchangeOfferEventHandler {
         }
     }
 
-    private void updateUncollected(Long accountHash, int slot, SavedOffer o, SavedOffer prev, boolean consistent) {
+    /**
+     * Returns true if the slot has been emptied, which needs a new suggestion.
+     */
+    private boolean updateUncollected(Long accountHash, int slot, SavedOffer o, SavedOffer prev, boolean consistent) {
         if(!consistent) {
-            return;
+            return false;
         }
         int uncollectedGp = 0;
         int uncollectedItems = 0;
@@ -133,28 +228,42 @@ public class GrandExchangeOfferEventHandler {
                 // if the slot is empty we want to ensure that the un collected manager doesn't think there is something to collect
                 // this can happen due to race conditions between the collection and offer fills timing
                 grandExchangeUncollectedManager.ensureSlotClear(accountHash, slot);
-                suggestionManager.setSuggestionNeeded(true);
-                return;
+                return true;
         }
         grandExchangeUncollectedManager.addUncollected(accountHash, slot, o.getItemId(), uncollectedItems, uncollectedGp);
+        return false;
 
     }
 
     private void processTransactions() {
         String displayName = osrsLoginManager.getPlayerDisplayName();
         if(displayName != null) {
+            List<Transaction> transactions = new ArrayList<>();
             Transaction transaction;
             while ((transaction = transactionsToProcess.poll()) != null) {
-                long profit = transactionManager.addTransaction(transaction, displayName);
-                if (grandExchange.isHomeScreenOpen() && profit != 0) {
-                    new GpDropOverlay(overlayManager, client, profit, transaction.getBoxId());
-                }
+                transactions.add(transaction);
+            }
+            if (transactions.isEmpty()) {
+                return;
             }
+            offerEventWorker.submit(() -> {
+                long[] profits = transactionManager.addTransactions(transactions, displayName);
+                for (int i = 0; i < transactions.size(); i++) {
+                    long profit = profits[i];
+                    int boxId = transactions.get(i).getBoxId();
+                    if (profit != 0) {
+                        clientThread.invoke(() -> {
+                            if (grandExchange.isHomeScreenOpen()) {
+                                new GpDropOverlay(overlayManager, client, profit, boxId);
+                            }
+                        });
+                    }
+                }
+            });
         }
     }
 
-    public Transaction inferTransaction(int slot, SavedOffer offer, SavedOffer prev, boolean consistent) {
-        boolean login = client.getTickCount() <= osrsLoginManager.getLastLoginTick() + GE_LOGIN_BURST_WINDOW;
+    public Transaction inferTransaction(int slot, SavedOffer offer, SavedOffer prev, boolean consistent, boolean login) {
         boolean isNewOffer = isNewOffer(prev, offer);
         int quantityDiff = isNewOffer ? offer.getQuantitySold() : offer.getQuantitySold() - prev.getQuantitySold();
         int amountSpentDiff = isNewOffer ? offer.getSpent() : offer.getSpent() - prev.getSpent();
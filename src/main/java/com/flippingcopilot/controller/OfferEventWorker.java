@@ -0,0 +1,103 @@
+package com.flippingcopilot.controller;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A single thread that does the disk and flip work of GE offer events (saving offers, adding transactions) so the
+ * client thread only has to queue it. Tasks run one at a time in the order they were submitted, so writes to the same
+ * slot or account are never reordered. The queue is unbounded: submitting never blocks the client thread, and the
+ * tasks are small enough that a backlog behind a stalled disk costs little memory, so we only warn about it.
+ */
+@Slf4j
+@Singleton
+public class OfferEventWorker {
+
+    private static final int WARN_DEPTH = 256;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+    private static final Runnable STOP = () -> {};
+
+    // state
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+    private Thread thread;
+    private volatile int maxQueueDepth;
+
+    @Inject
+    public OfferEventWorker() {
+    }
+
+    public void submit(Runnable task) {
+        ensureStarted();
+        queue.add(task);
+        int depth = queue.size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+        if (depth % WARN_DEPTH == 0) {
+            log.warn("offer event worker is falling behind with {} queued tasks", depth);
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Runs the tasks already submitted and stops the thread. A task submitted afterwards starts a new one.
+     */
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (t == null) {
+            return;
+        }
+        try {
+            queue.put(STOP);
+            t.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (t.isAlive()) {
+            log.warn("offer event worker didn't drain its {} queued tasks within {}ms", queue.size(), CLOSE_TIMEOUT_MILLIS);
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "copilot-offer-events");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == STOP) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("error running offer event task", e);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.flippingcopilot.controller;
 import com.flippingcopilot.model.LoginResponse;
 import com.flippingcopilot.model.SessionData;
 import com.flippingcopilot.model.Transaction;
+import com.flippingcopilot.model.TransactionHistory;
+import com.flippingcopilot.model.TransactionJournal;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
@@ -10,11 +12,9 @@ import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.RuneLite;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -30,7 +30,8 @@ public class Persistance {
     public static Gson gson;
     public static final File PARENT_DIRECTORY = new File(RuneLite.RUNELITE_DIR, "flipping-copilot");
     public static final String UN_ACKED_TRANSACTIONS_FILE_TEMPLATE = "%s_un_acked.jsonl";
-    public static final String ALL_TRANSACTIONS_FILE_TEMPLATE = "%s_all_transactions.jsonl";
+    public static final String UN_ACKED_JOURNAL_FILE_TEMPLATE = "%s_un_acked.journal";
+    public static final String ALL_TRANSACTIONS_FILE_TEMPLATE = "%s_all_transactions.bin";
     public static final String LOGIN_RESPONSE_JSON_FILE = "login-response.json";
     public static File directory;
 
@@ -100,7 +101,7 @@ public class Persistance {
     }
 
 
-    public static List<Transaction> loadUnAckedTransactions(String displayName) {
+    private static List<Transaction> loadUnAckedTransactions(String displayName) {
         List<Transaction> transactions = new ArrayList<>();
         File file = new File(PARENT_DIRECTORY, String.format(UN_ACKED_TRANSACTIONS_FILE_TEMPLATE, hashDisplayName(displayName)));
         if (!file.exists()) {
@@ -137,17 +138,26 @@ public class Persistance {
         return transactions;
     }
 
-    public static void storeUnAckedTransactions(List<Transaction> transactions, String displayName) {
-        File unackedTransactionsFile = new File(PARENT_DIRECTORY, String.format(UN_ACKED_TRANSACTIONS_FILE_TEMPLATE, hashDisplayName(displayName)));
-        try (BufferedWriter w = new BufferedWriter(new FileWriter(unackedTransactionsFile, false))) {
-            for (Transaction transaction : transactions) {
-                String json = gson.toJson(transaction);
-                w.write(json);
-                w.newLine();
+    /**
+     * Opens the un-acked transaction journal of a display name, moving over any transactions left in the json lines
+     * file that was rewritten on every transaction before the journal existed.
+     */
+    public static TransactionJournal openUnAckedTransactionJournal(String displayName) throws IOException {
+        String hashedName = hashDisplayName(displayName);
+        TransactionJournal journal = TransactionJournal.open(new File(PARENT_DIRECTORY, String.format(UN_ACKED_JOURNAL_FILE_TEMPLATE, hashedName)));
+        File legacyFile = new File(PARENT_DIRECTORY, String.format(UN_ACKED_TRANSACTIONS_FILE_TEMPLATE, hashedName));
+        if (legacyFile.exists()) {
+            for (Transaction transaction : loadUnAckedTransactions(displayName)) {
+                journal.queueAdd(transaction);
             }
-        } catch (IOException e) {
-            log.warn("error storing un acked transactions to file {}", unackedTransactionsFile, e);
+            journal.flush();
+            Files.delete(legacyFile.toPath());
         }
+        return journal;
+    }
+
+    public static TransactionHistory openTransactionHistory(String displayName) throws IOException {
+        return TransactionHistory.open(new File(PARENT_DIRECTORY, String.format(ALL_TRANSACTIONS_FILE_TEMPLATE, hashDisplayName(displayName))));
     }
 
     public static String hashDisplayName(String displayName) {
@@ -123,7 +123,7 @@ public class SuggestionController {
         log.info("Attempting to generate a new suggestion using TradingLogic.");
 
         // Generate suggestion using TradingLogic
-        Suggestion newSuggestion = tradingLogic.generateSuggestion();
+        Suggestion newSuggestion = tradingLogic.generateSuggestion(accountStatus);
 
         clientThread.invokeLater(() -> {
             if (newSuggestion != null) {
@@ -157,7 +157,11 @@ public class SuggestionController {
         // This method seems redundant if getOfflineSuggestion now handles generation.
         // Kept for now, but consider if it's still needed or if its logic should merge
         // into getOfflineSuggestion or be called by a more specific UI action.
-        Suggestion suggestion = tradingLogic.generateSuggestion();
+        AccountStatus accountStatus = accountStatusManager.getAccountStatus();
+        if (accountStatus == null) {
+            return;
+        }
+        Suggestion suggestion = tradingLogic.generateSuggestion(accountStatus);
         if (suggestion != null) {
             suggestionManager.setSuggestion(suggestion);
             // Refresh UI if needed after direct generation
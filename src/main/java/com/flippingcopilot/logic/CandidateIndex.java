@@ -0,0 +1,143 @@
+package com.flippingcopilot.logic;
+
+import com.flippingcopilot.model.WikiItemStats;
+import com.flippingcopilot.util.GeTax;
+
+import java.util.*;
+
+/**
+ * Ranks every item of the price universe by its account independent flip score (the expected profit of one flip
+ * ignoring how much gp the account has). The ranking is updated incrementally, one item at a time, as prices change
+ * so a suggestion only has to walk the head of the ranking rather than re-score every item on each request.
+ * <p>
+ * An account's gp only ever lowers an item's score, so the walk can stop at the first item whose unlimited score is
+ * below the best budgeted score found so far. Items are also bucketed by the power of two of their buy price, and
+ * buckets the budget can't buy a single item of are never walked, so a low gp account doesn't wade through the
+ * expensive items that lead the ranking.
+ * <p>
+ * Members and f2p items are kept in separate rankings since f2p is the one filter that could otherwise skip over a
+ * large part of the ranking. The remaining account filters (blocked items, items already held) are small sets and
+ * are applied on read.
+ */
+public class CandidateIndex {
+
+    // bucket b holds the items with a buy price in [2^b, 2^(b+1))
+    private static final int PRICE_BUCKETS = 32;
+    // we assume we can fill at most this fraction of an item's hourly volume
+    private static final int VOLUME_SHARE_DIVISOR = 4;
+    // margins above this ROI are almost always stale prices or manipulated items
+    private static final double MAX_ROI = 0.25;
+
+    private static final Comparator<Candidate> RANKING = Comparator.comparingLong((Candidate c) -> -c.score)
+            .thenComparingInt(c -> c.stats.getItemId());
+
+    private final Map<Integer, Candidate> candidates = new HashMap<>();
+    private final List<NavigableSet<Candidate>> ranked = newBuckets();
+    private final List<NavigableSet<Candidate>> rankedF2p = newBuckets();
+
+    public synchronized void update(WikiItemStats stats) {
+        remove(stats.getItemId());
+        long score = (long) flipMargin(stats) * flipQuantity(stats, Long.MAX_VALUE);
+        if (score <= 0 || stats.getName() == null) {
+            return;
+        }
+        Candidate c = new Candidate(stats, score);
+        candidates.put(stats.getItemId(), c);
+        ranked.get(c.bucket).add(c);
+        if (!stats.isMembers()) {
+            rankedF2p.get(c.bucket).add(c);
+        }
+    }
+
+    public synchronized void remove(int itemId) {
+        Candidate c = candidates.remove(itemId);
+        if (c != null) {
+            ranked.get(c.bucket).remove(c);
+            rankedF2p.get(c.bucket).remove(c);
+        }
+    }
+
+    /**
+     * Returns the candidate with the highest score for the given per slot budget, the lowest item id on a tie, skipping
+     * any excluded item ids. Returns null if the budget can't buy any candidate.
+     */
+    public synchronized WikiItemStats best(boolean f2pOnly, Set<Integer> excluded, long budget) {
+        List<NavigableSet<Candidate>> buckets = f2pOnly ? rankedF2p : ranked;
+        WikiItemStats best = null;
+        long bestScore = 0;
+        for (int b = 0; b < PRICE_BUCKETS && (1L << b) <= budget; b++) {
+            for (Candidate c : buckets.get(b)) {
+                if (c.score < bestScore) {
+                    break;
+                }
+                int itemId = c.stats.getItemId();
+                if (excluded.contains(itemId)) {
+                    continue;
+                }
+                long score = (long) flipMargin(c.stats) * flipQuantity(c.stats, budget);
+                if (score > bestScore || (score == bestScore && score > 0 && itemId < best.getItemId())) {
+                    bestScore = score;
+                    best = c.stats;
+                }
+            }
+        }
+        return best;
+    }
+
+    public synchronized int size() {
+        return candidates.size();
+    }
+
+    /**
+     * The gp made per item bought at one above the insta-sell price and sold at one below the insta-buy price, or 0
+     * if the item isn't worth flipping.
+     */
+    static int flipMargin(WikiItemStats stats) {
+        int low = stats.getSellPrice();
+        int high = stats.getBuyPrice();
+        if (low <= 0 || high <= 0) {
+            return 0;
+        }
+        int margin = GeTax.getPostTaxPrice(stats.getItemId(), high - 1) - buyPrice(stats);
+        if (margin <= 0 || margin > buyPrice(stats) * MAX_ROI) {
+            return 0;
+        }
+        return margin;
+    }
+
+    static int flipQuantity(WikiItemStats stats, long budget) {
+        int volume = Math.min(stats.getHighPriceVolume(), stats.getLowPriceVolume()) / VOLUME_SHARE_DIVISOR;
+        if (volume <= 0) {
+            return 0;
+        }
+        long quantity = Math.min(volume, budget / buyPrice(stats));
+        if (stats.getBuyLimit() > 0) {
+            quantity = Math.min(quantity, stats.getBuyLimit());
+        }
+        return (int) quantity;
+    }
+
+    static int buyPrice(WikiItemStats stats) {
+        return stats.getSellPrice() + 1;
+    }
+
+    private static List<NavigableSet<Candidate>> newBuckets() {
+        List<NavigableSet<Candidate>> buckets = new ArrayList<>(PRICE_BUCKETS);
+        for (int b = 0; b < PRICE_BUCKETS; b++) {
+            buckets.add(new TreeSet<>(RANKING));
+        }
+        return buckets;
+    }
+
+    private static class Candidate {
+        final WikiItemStats stats;
+        final long score;
+        final int bucket;
+
+        Candidate(WikiItemStats stats, long score) {
+            this.stats = stats;
+            this.score = score;
+            this.bucket = 31 - Integer.numberOfLeadingZeros(buyPrice(stats));
+        }
+    }
+}
@@ -1,17 +1,190 @@
 package com.flippingcopilot.logic;
 
-import com.flippingcopilot.model.Suggestion;
+import com.flippingcopilot.model.*;
+import com.flippingcopilot.util.Constants;
+import com.flippingcopilot.util.GeTax;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ItemID;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.*;
 
+/**
+ * Offline suggestion engine. Items of the latest wiki price snapshot are scored by the profit we expect from flipping
+ * them once: the post tax margin between the insta-sell and insta-buy prices multiplied by the quantity we could
+ * realistically get filled (bounded by the GE buy limit, the hourly volume and the gp available per free slot).
+ * Suggestions are produced in priority order abort > sell > buy > wait for the given account status.
+ * <p>
+ * This runs on the client thread from SuggestionController.onGameTick so rather than scanning the whole price universe
+ * the buy suggestion only re-ranks the head of the incrementally maintained CandidateIndex. Prices are pushed in by
+ * the WikiPriceManager whenever it publishes a new snapshot.
+ */
 @Slf4j
 @Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
 public class TradingLogic {
 
-    public Suggestion generateSuggestion() {
-        log.info("generateSuggestion() called — returning dummy suggestion.");
-        return new Suggestion("Placeholder Item", 12345, "buy", 100, 120);
+    // how far an active offer can drift from the market before we suggest aborting it
+    private static final double ABORT_PRICE_TOLERANCE = 0.05;
+
+    // state
+    private volatile Map<Integer, WikiItemStats> prices = Collections.emptyMap();
+    private final CandidateIndex candidateIndex = new CandidateIndex();
+    // the last suggestion and what it was generated from, reused while neither the account status nor prices change
+    private long lastGeneration;
+    private Map<Integer, WikiItemStats> lastPrices;
+    private Suggestion lastSuggestion;
+
+    public Suggestion generateSuggestion(AccountStatus accountStatus) {
+        Map<Integer, WikiItemStats> snapshot = prices;
+        if (snapshot.isEmpty()) {
+            return waitSuggestion("Loading wiki prices");
+        }
+        long generation = accountStatus.getGeneration();
+        synchronized (this) {
+            if (generation != 0 && generation == lastGeneration && snapshot == lastPrices) {
+                log.debug("account status generation {} and prices unchanged, reusing suggestion", generation);
+                return lastSuggestion;
+            }
+        }
+        long s = System.nanoTime();
+
+        Suggestion suggestion = findAbort(accountStatus, snapshot);
+        int emptySlot = accountStatus.getOffers().findEmptySlot();
+        if (suggestion == null && emptySlot != -1) {
+            suggestion = findSell(accountStatus, snapshot, emptySlot);
+            if (suggestion == null && !accountStatus.isSellOnlyMode()) {
+                suggestion = findBuy(accountStatus, emptySlot);
+            }
+        }
+        log.debug("generating suggestion took {}us", (System.nanoTime() - s) / 1000);
+        if (suggestion == null) {
+            suggestion = waitSuggestion("");
+        }
+        synchronized (this) {
+            lastGeneration = generation;
+            lastPrices = snapshot;
+            lastSuggestion = suggestion;
+        }
+        return suggestion;
+    }
+
+    public synchronized void setPrices(Map<Integer, WikiItemStats> prices) {
+        Map<Integer, WikiItemStats> previous = this.prices;
+        for (WikiItemStats stats : prices.values()) {
+            if (!stats.equals(previous.get(stats.getItemId()))) {
+                candidateIndex.update(stats);
+            }
+        }
+        for (Integer itemId : previous.keySet()) {
+            if (!prices.containsKey(itemId)) {
+                candidateIndex.remove(itemId);
+            }
+        }
+        this.prices = prices;
+    }
+
+    private Suggestion findAbort(AccountStatus accountStatus, Map<Integer, WikiItemStats> snapshot) {
+        for (Offer offer : accountStatus.getOffers()) {
+            if (!offer.isActive() || offer.getItemId() == accountStatus.getSkipSuggestion()) {
+                continue;
+            }
+            WikiItemStats stats = snapshot.get(offer.getItemId());
+            if (stats == null || stats.getBuyPrice() <= 0 || stats.getSellPrice() <= 0) {
+                continue;
+            }
+            int high = stats.getBuyPrice();
+            int low = stats.getSellPrice();
+            boolean abort;
+            if (offer.getStatus() == OfferStatus.BUY) {
+                boolean unprofitable = GeTax.getPostTaxPrice(offer.getItemId(), high - 1) <= offer.getPrice();
+                boolean tooLow = offer.getPrice() < low * (1 - ABORT_PRICE_TOLERANCE);
+                abort = unprofitable || tooLow;
+            } else {
+                abort = offer.getPrice() > high * (1 + ABORT_PRICE_TOLERANCE);
+            }
+            if (abort) {
+                return new Suggestion("abort", offer.getBoxId(), offer.getItemId(), offer.getPrice(),
+                        offer.getAmountTotal(), itemName(stats), offer.getItemId(), "", null);
+            }
+        }
+        return null;
+    }
+
+    private Suggestion findSell(AccountStatus accountStatus, Map<Integer, WikiItemStats> snapshot, int emptySlot) {
+        Inventory inventory = accountStatus.getInventory();
+        Suggestion best = null;
+        long bestValue = 0;
+        for (RSItem item : inventory) {
+            int itemId = item.getId();
+            if (itemId == ItemID.COINS_995 || itemId == ItemID.PLATINUM_TOKEN || itemId == accountStatus.getSkipSuggestion()) {
+                continue;
+            }
+            WikiItemStats stats = snapshot.get(itemId);
+            if (stats == null || stats.getBuyPrice() <= 1 || stats.getName() == null) {
+                continue;
+            }
+            long quantity = inventory.getTotalAmount(itemId);
+            int price = stats.getBuyPrice() - 1;
+            long value = quantity * price;
+            if (value > bestValue) {
+                bestValue = value;
+                best = new Suggestion("sell", emptySlot, itemId, price, (int) Math.min(quantity, Integer.MAX_VALUE),
+                        stats.getName(), itemId, "", null);
+            }
+        }
+        return best;
+    }
+
+    private Suggestion findBuy(AccountStatus accountStatus, int emptySlot) {
+        long gp = accountStatus.getInventory().getTotalGp();
+        if (accountStatus.getUncollected() != null) {
+            gp += accountStatus.getUncollected().getOrDefault(ItemID.COINS_995, 0L);
+        }
+        if (gp < Constants.MIN_GP_NEEDED_TO_FLIP) {
+            return null;
+        }
+        long budget = gp / countEmptySlots(accountStatus.getOffers());
+        boolean f2pOnly = accountStatus.isF2pOnlyMode() || !accountStatus.isMember();
+        Set<Integer> excluded = new HashSet<>();
+        if (accountStatus.getBlockedItems() != null) {
+            excluded.addAll(accountStatus.getBlockedItems());
+        }
+        for (Offer offer : accountStatus.getOffers()) {
+            excluded.add(offer.getItemId());
+        }
+        for (RSItem item : accountStatus.getInventory()) {
+            excluded.add(item.getId());
+        }
+        excluded.add(accountStatus.getSkipSuggestion());
+
+        WikiItemStats best = candidateIndex.best(f2pOnly, excluded, budget);
+        if (best == null) {
+            return null;
+        }
+        int bestQuantity = CandidateIndex.flipQuantity(best, budget);
+        return new Suggestion("buy", emptySlot, best.getItemId(), CandidateIndex.buyPrice(best), bestQuantity, best.getName(),
+                best.getItemId(), "", null);
+    }
+
+    private static int countEmptySlots(StatusOfferList offers) {
+        int n = 0;
+        for (Offer offer : offers) {
+            if (offer.getStatus() == OfferStatus.EMPTY) {
+                n++;
+            }
+        }
+        return Math.max(n, 1);
+    }
+
+    private static String itemName(WikiItemStats stats) {
+        return stats.getName() != null ? stats.getName() : "item " + stats.getItemId();
+    }
+
+    private static Suggestion waitSuggestion(String message) {
+        return new Suggestion("wait", 0, 0, 0, 0, "", 0, message, null);
     }
 
     public void executeBuyOffer(Suggestion suggestion) {
@@ -14,6 +14,8 @@ import java.util.Set;
 
 // note: we synchronize all public methods of this class as they read/modify its state and may
 // be called by multiple threads at the same time
+// AccountStatusManager hands the same instance to every caller until something changes, so callers must not modify
+// the status they get from it
 
 @Slf4j
 @Data
@@ -31,6 +33,8 @@ public class AccountStatus {
     private boolean f2pOnlyMode = false;
     private List<Integer> blockedItems;
     private int timeframe = 5; // Default to 5 minutes
+    // generation of the AccountStatusManager snapshot, 0 for a status built elsewhere
+    private long generation;
 
     public AccountStatus() {
         offers = new StatusOfferList();
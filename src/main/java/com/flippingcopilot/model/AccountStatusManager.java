@@ -7,9 +7,16 @@ import net.runelite.api.*;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
+/**
+ * Keeps the inventory and GE offers up to date from ItemContainerChanged and GrandExchangeOfferChanged events and
+ * hands out an AccountStatus snapshot built from them. The snapshot is only rebuilt, with the next generation, when an
+ * event, the uncollected items or one of the settings it copies has changed since the last one.
+ */
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
@@ -25,24 +32,70 @@ public class AccountStatusManager {
     // state
     @Setter
     private int skipSuggestion = -1;
+    // null until the first event or getAccountStatus call after a reset, both replaced rather than modified once set
+    private Inventory inventory;
+    private StatusOfferList offers;
+    private Map<Integer, Long> uncollected;
+    private long uncollectedGeneration = -1;
+    private Long uncollectedAccountHash;
+    private boolean changed = true;
+    private long generation;
+    private AccountStatus snapshot;
+    private boolean snapshotInLimbo;
 
+    public synchronized void onInventoryChanged(ItemContainer itemContainer) {
+        inventory = Inventory.fromRunelite(itemContainer, client);
+        changed = true;
+    }
+
+    public synchronized void onOfferChanged(int slot, GrandExchangeOffer offer) {
+        if (offers == null) {
+            // read in full from the client on the next getAccountStatus
+            return;
+        }
+        StatusOfferList next = new StatusOfferList(offers);
+        next.set(slot, Offer.fromRunelite(offer, slot));
+        offers = next;
+        changed = true;
+    }
+
+    /**
+     * Returns the current snapshot, or null if the inventory can't be read yet. The snapshot is shared by every caller
+     * until something changes, so it must not be modified.
+     */
     public synchronized AccountStatus getAccountStatus() {
         Long accountHash =  osrsLoginManager.getAccountHash();
-        ItemContainer itemContainer = client.getItemContainer(InventoryID.INVENTORY);
-        if(itemContainer == null) {
-            log.warn("unable to fetch inventory item container");
-            return null;
+        if (inventory == null) {
+            ItemContainer itemContainer = client.getItemContainer(InventoryID.INVENTORY);
+            if(itemContainer == null) {
+                log.warn("unable to fetch inventory item container");
+                return null;
+            }
+            onInventoryChanged(itemContainer);
+        }
+        if (offers == null) {
+            offers = StatusOfferList.fromRunelite(client.getGrandExchangeOffers());
+            changed = true;
+        }
+        long g = geUncollected.getGeneration();
+        if (g != uncollectedGeneration || !Objects.equals(accountHash, uncollectedAccountHash)) {
+            uncollected = geUncollected.loadAllUncollected(accountHash);
+            uncollectedGeneration = g;
+            uncollectedAccountHash = accountHash;
+            changed = true;
         }
-        Inventory inventory = Inventory.fromRunelite(itemContainer, client);
-        Map<Integer, Long> u = geUncollected.loadAllUncollected(accountHash);
 
-        GrandExchangeOffer[] geOffers = client.getGrandExchangeOffers();
-        StatusOfferList offerList = StatusOfferList.fromRunelite(geOffers);
+        // on the tick items are collected the inventory may not have them yet, the snapshot of that tick accounts for them
+        boolean inLimbo = geUncollected.getLastClearedTick() == client.getTickCount();
+        if (snapshot != null && !changed && !inLimbo && !snapshotInLimbo && settingsUnchanged(snapshot, accountHash)) {
+            return snapshot;
+        }
 
         AccountStatus status = new AccountStatus();
-        status.setOffers(offerList);
+        status.setGeneration(++generation);
+        status.setOffers(offers);
         status.setInventory(inventory);
-        status.setUncollected(u);
+        status.setUncollected(uncollected);
         status.setDisplayName(osrsLoginManager.getPlayerDisplayName());
         status.setRsAccountHash(accountHash);
         status.setSkipSuggestion(skipSuggestion);
@@ -50,32 +103,55 @@ public class AccountStatusManager {
         status.setF2pOnlyMode(suggestionPreferencesManager.getPreferences().isF2pOnlyMode());
         status.setMember(osrsLoginManager.isMembersWorld());
         status.setSuggestionsPaused(pausedManager.isPaused());
-        status.setBlockedItems(suggestionPreferencesManager.blockedItems());
+        List<Integer> blockedItems = suggestionPreferencesManager.blockedItems();
+        status.setBlockedItems(blockedItems == null ? null : new ArrayList<>(blockedItems));
         status.setTimeframe(suggestionPreferencesManager.getTimeframe());
+        if (inLimbo) {
+            applyJustCollected(status);
+        }
+        snapshot = status;
+        snapshotInLimbo = inLimbo;
+        changed = false;
+        return status;
+    }
+
+    private boolean settingsUnchanged(AccountStatus status, Long accountHash) {
+        SuggestionPreferences preferences = suggestionPreferencesManager.getPreferences();
+        return Objects.equals(status.getRsAccountHash(), accountHash)
+                && Objects.equals(status.getDisplayName(), osrsLoginManager.getPlayerDisplayName())
+                && status.getSkipSuggestion() == skipSuggestion
+                && status.isSellOnlyMode() == preferences.isSellOnlyMode()
+                && status.isF2pOnlyMode() == preferences.isF2pOnlyMode()
+                && status.isMember() == osrsLoginManager.isMembersWorld()
+                && Objects.equals(status.getSuggestionsPaused(), pausedManager.isPaused())
+                && Objects.equals(status.getBlockedItems(), suggestionPreferencesManager.blockedItems())
+                && status.getTimeframe() == suggestionPreferencesManager.getTimeframe();
+    }
 
+    private void applyJustCollected(AccountStatus status) {
         Map<Integer, Long> inLimboItems = geUncollected.getLastClearedUncollected();
         List<Integer> clearedSlots = geUncollected.getLastClearedSlots();
-        if (geUncollected.getLastClearedTick() == client.getTickCount()) {
-            log.debug("tick {} in limbo items {}, cleared slots {}", client.getTickCount(), inLimboItems, clearedSlots);
-            if(inventory.missingJustCollected(inLimboItems)) {
-                inLimboItems.forEach((itemId, qty) -> {
-                    if (qty > 0) {
-                        log.debug("tick {} move in limbo item {}, qty {} to inventory", client.getTickCount(), itemId, qty);
-                        inventory.mergeItem(new RSItem(itemId, qty));
-                    }
-                });
-            }
-            for (Integer slot : clearedSlots) {
-                Offer o = offerList.get(slot);
-                GrandExchangeOffer geOffer = geOffers[slot];
-                if (!isActive(geOffer.getState()) && geOffer.getState() != GrandExchangeOfferState.EMPTY) {
-                    log.debug("tick {} in-activate slot {} just collected setting to EMPTY", client.getTickCount(), slot);
-                    o.setStatus(OfferStatus.EMPTY);
+        log.debug("tick {} in limbo items {}, cleared slots {}", client.getTickCount(), inLimboItems, clearedSlots);
+        if(inventory.missingJustCollected(inLimboItems)) {
+            Inventory adjusted = inventory.copy();
+            inLimboItems.forEach((itemId, qty) -> {
+                if (qty > 0) {
+                    log.debug("tick {} move in limbo item {}, qty {} to inventory", client.getTickCount(), itemId, qty);
+                    adjusted.mergeItem(new RSItem(itemId, qty));
                 }
+            });
+            status.setInventory(adjusted);
+        }
+        GrandExchangeOffer[] geOffers = client.getGrandExchangeOffers();
+        StatusOfferList adjustedOffers = new StatusOfferList(offers);
+        for (Integer slot : clearedSlots) {
+            GrandExchangeOffer geOffer = geOffers[slot];
+            if (!isActive(geOffer.getState()) && geOffer.getState() != GrandExchangeOfferState.EMPTY) {
+                log.debug("tick {} in-activate slot {} just collected setting to EMPTY", client.getTickCount(), slot);
+                adjustedOffers.set(slot, adjustedOffers.get(slot).withStatus(OfferStatus.EMPTY));
             }
         }
-
-        return status;
+        status.setOffers(adjustedOffers);
     }
 
     private boolean isActive(GrandExchangeOfferState state) {
@@ -99,7 +175,14 @@ public class AccountStatusManager {
         skipSuggestion = -1;
     }
 
-    public void reset() {
+    public synchronized void reset() {
         skipSuggestion = -1;
+        inventory = null;
+        offers = null;
+        uncollected = null;
+        uncollectedGeneration = -1;
+        uncollectedAccountHash = null;
+        snapshot = null;
+        changed = true;
     }
 }
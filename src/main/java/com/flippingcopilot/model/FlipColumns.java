@@ -0,0 +1,382 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * The flips of one account in one week, stored column by column in primitive arrays and ordered by closed time then
+ * id. A FlipV2 costs well over 100 bytes once its
+ * UUID, strings and object headers are counted, a row here costs 69. Item names aren't stored per row, they're shared
+ * through the item names map passed in when a row is materialized.
+ * <p>
+ * Rows are only turned back into FlipV2 objects when something needs one, e.g. the rows of the page being shown.
+ * <p>
+ * Spent, profit and tax are kept as running totals over the rows rather than per row, so the stats of the flips closed
+ * after any time are a binary search and a subtraction, however many flips the week holds. Inserting or removing a row
+ * updates the totals of the rows after it, which costs no more than the array shift it already needs.
+ */
+class FlipColumns {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    final int accountId;
+    private int size;
+    private long[] idMsbs;
+    private long[] idLsbs;
+    private int[] itemIds;
+    private int[] openedTimes;
+    private int[] openedQuantities;
+    private int[] closedTimes;
+    private int[] closedQuantities;
+    // running totals, e.g. cumSpents[i] is the spent of rows 0..i
+    private long[] cumSpents;
+    private long[] receivedPostTaxes;
+    private long[] cumProfits;
+    private long[] cumTaxesPaid;
+    private boolean[] closeds;
+
+    FlipColumns(int accountId) {
+        this(accountId, INITIAL_CAPACITY);
+    }
+
+    FlipColumns(int accountId, int capacity) {
+        this.accountId = accountId;
+        allocate(Math.max(1, capacity));
+    }
+
+    int size() {
+        return size;
+    }
+
+    int closedTime(int row) {
+        return closedTimes[row];
+    }
+
+    /**
+     * Returns the row of the flip with this id and closed time, or -(insertion point) - 1 if there isn't one.
+     */
+    int find(UUID id, int closedTime) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareRow(mid, id, closedTime);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the first row closed after time.
+     */
+    int firstClosedAfter(int time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (closedTimes[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void insert(FlipV2 flip) {
+        int row = find(flip.getId(), flip.getClosedTime());
+        insert(row < 0 ? -row - 1 : row, flip);
+    }
+
+    /**
+     * Appends a flip that's known to sort after every existing row, e.g. when reading rows back in order.
+     */
+    void append(FlipV2 flip) {
+        insert(size, flip);
+    }
+
+    /**
+     * Returns new columns holding these rows, less those flagged in removed, merged with flips, which must already be
+     * sorted by closed time then id. One linear pass, rather than a shift of the arrays per flip added or removed.
+     */
+    FlipColumns merged(boolean[] removed, List<FlipV2> flips) {
+        FlipColumns c = new FlipColumns(accountId, size + flips.size());
+        int row = 0;
+        int i = 0;
+        while (row < size || i < flips.size()) {
+            if (row < size && removed[row]) {
+                row++;
+            } else if (i == flips.size() || (row < size && compareRow(row, flips.get(i).getId(), flips.get(i).getClosedTime()) < 0)) {
+                c.appendRow(this, row++);
+            } else {
+                c.append(flips.get(i++));
+            }
+        }
+        return c;
+    }
+
+    FlipV2 remove(int row, Map<Integer, String> itemNames) {
+        FlipV2 flip = get(row, itemNames);
+        for (int i = row + 1; i < size; i++) {
+            cumSpents[i] -= flip.getSpent();
+            cumProfits[i] -= flip.getProfit();
+            cumTaxesPaid[i] -= flip.getTaxPaid();
+        }
+        int moved = size - row - 1;
+        if (moved > 0) {
+            System.arraycopy(idMsbs, row + 1, idMsbs, row, moved);
+            System.arraycopy(idLsbs, row + 1, idLsbs, row, moved);
+            System.arraycopy(itemIds, row + 1, itemIds, row, moved);
+            System.arraycopy(openedTimes, row + 1, openedTimes, row, moved);
+            System.arraycopy(openedQuantities, row + 1, openedQuantities, row, moved);
+            System.arraycopy(closedTimes, row + 1, closedTimes, row, moved);
+            System.arraycopy(closedQuantities, row + 1, closedQuantities, row, moved);
+            System.arraycopy(cumSpents, row + 1, cumSpents, row, moved);
+            System.arraycopy(receivedPostTaxes, row + 1, receivedPostTaxes, row, moved);
+            System.arraycopy(cumProfits, row + 1, cumProfits, row, moved);
+            System.arraycopy(cumTaxesPaid, row + 1, cumTaxesPaid, row, moved);
+            System.arraycopy(closeds, row + 1, closeds, row, moved);
+        }
+        size--;
+        return flip;
+    }
+
+    FlipV2 get(int row, Map<Integer, String> itemNames) {
+        FlipV2 flip = new FlipV2();
+        flip.setId(new UUID(idMsbs[row], idLsbs[row]));
+        flip.setAccountId(accountId);
+        flip.setItemId(itemIds[row]);
+        flip.setItemName(itemNames.get(itemIds[row]));
+        flip.setOpenedTime(openedTimes[row]);
+        flip.setOpenedQuantity(openedQuantities[row]);
+        flip.setSpent(rowValue(cumSpents, row));
+        flip.setClosedTime(closedTimes[row]);
+        flip.setClosedQuantity(closedQuantities[row]);
+        flip.setReceivedPostTax(receivedPostTaxes[row]);
+        flip.setProfit(rowValue(cumProfits, row));
+        flip.setTaxPaid(rowValue(cumTaxesPaid, row));
+        flip.setClosed(closeds[row]);
+        return flip;
+    }
+
+    /**
+     * Adds rows from..size to out newest first, skipping the newest skip of them and stopping once out holds limit
+     * flips.
+     */
+    void addNewestFirst(int from, int skip, int limit, Map<Integer, String> itemNames, List<FlipV2> out) {
+        for (int row = size - 1 - skip; row >= from && out.size() < limit; row--) {
+            out.add(get(row, itemNames));
+        }
+    }
+
+    /**
+     * Merges the rows from[i]..size of each columns[i] into out newest first, as if they were one list sorted by
+     * closed time then id, skipping the newest skip of them and stopping once out holds limit flips. Only the rows
+     * added are materialized and each step costs log(columns).
+     */
+    static void mergeNewestFirst(List<FlipColumns> columns, int[] from, int skip, int limit, Map<Integer, String> itemNames, List<FlipV2> out) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, columns.size()), (a, b) -> compareRows(b.columns, b.row, a.columns, a.row));
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).size > from[i]) {
+                heads.add(new Cursor(columns.get(i), columns.get(i).size - 1, from[i]));
+            }
+        }
+        while (!heads.isEmpty() && out.size() < limit) {
+            Cursor c = heads.poll();
+            if (skip > 0) {
+                skip--;
+            } else {
+                out.add(c.columns.get(c.row, itemNames));
+            }
+            if (--c.row >= c.from) {
+                heads.add(c);
+            }
+        }
+    }
+
+    /**
+     * Adds the rows from..size to the stats, the same as Stats.addFlip of each but in constant time.
+     */
+    void addStats(Stats stats, int from) {
+        if (from >= size) {
+            return;
+        }
+        stats.profit += cumProfits[size - 1] - totalBefore(cumProfits, from);
+        stats.gross += cumSpents[size - 1] - totalBefore(cumSpents, from);
+        stats.taxPaid += cumTaxesPaid[size - 1] - totalBefore(cumTaxesPaid, from);
+        stats.flipsMade += size - from;
+    }
+
+    /**
+     * Adds the rows from..size to the item stats, the same as ItemStats.addFlip of each but without materializing them.
+     */
+    void addItemStats(ItemStats stats, int from) {
+        for (int row = from; row < size; row++) {
+            stats.add(itemIds[row], rowValue(cumProfits, row), rowValue(cumSpents, row), rowValue(cumTaxesPaid, row), 1,
+                    ItemStats.holdSeconds(openedTimes[row], closedTimes[row]));
+        }
+    }
+
+    /**
+     * Adds the profit of each row to the hour of the week it closed in, hourly being indexed by hours since weekStart.
+     */
+    void addHourlyProfits(long[] hourly, int weekStart) {
+        for (int row = 0; row < size; row++) {
+            hourly[(closedTimes[row] - weekStart) / ProfitCurve.HOUR_SECS] += rowValue(cumProfits, row);
+        }
+    }
+
+    FlipColumns copy() {
+        FlipColumns c = new FlipColumns(accountId, 1);
+        c.size = size;
+        int capacity = Math.max(size, 1);
+        c.idMsbs = Arrays.copyOf(idMsbs, capacity);
+        c.idLsbs = Arrays.copyOf(idLsbs, capacity);
+        c.itemIds = Arrays.copyOf(itemIds, capacity);
+        c.openedTimes = Arrays.copyOf(openedTimes, capacity);
+        c.openedQuantities = Arrays.copyOf(openedQuantities, capacity);
+        c.closedTimes = Arrays.copyOf(closedTimes, capacity);
+        c.closedQuantities = Arrays.copyOf(closedQuantities, capacity);
+        c.cumSpents = Arrays.copyOf(cumSpents, capacity);
+        c.receivedPostTaxes = Arrays.copyOf(receivedPostTaxes, capacity);
+        c.cumProfits = Arrays.copyOf(cumProfits, capacity);
+        c.cumTaxesPaid = Arrays.copyOf(cumTaxesPaid, capacity);
+        c.closeds = Arrays.copyOf(closeds, capacity);
+        return c;
+    }
+
+    private void appendRow(FlipColumns src, int row) {
+        if (size == idMsbs.length) {
+            grow(size * 2);
+        }
+        idMsbs[size] = src.idMsbs[row];
+        idLsbs[size] = src.idLsbs[row];
+        itemIds[size] = src.itemIds[row];
+        openedTimes[size] = src.openedTimes[row];
+        openedQuantities[size] = src.openedQuantities[row];
+        closedTimes[size] = src.closedTimes[row];
+        closedQuantities[size] = src.closedQuantities[row];
+        cumSpents[size] = totalBefore(cumSpents, size) + rowValue(src.cumSpents, row);
+        receivedPostTaxes[size] = src.receivedPostTaxes[row];
+        cumProfits[size] = totalBefore(cumProfits, size) + rowValue(src.cumProfits, row);
+        cumTaxesPaid[size] = totalBefore(cumTaxesPaid, size) + rowValue(src.cumTaxesPaid, row);
+        closeds[size] = src.closeds[row];
+        size++;
+    }
+
+    private void insert(int row, FlipV2 flip) {
+        if (size == idMsbs.length) {
+            grow(size * 2);
+        }
+        int moved = size - row;
+        if (moved > 0) {
+            System.arraycopy(idMsbs, row, idMsbs, row + 1, moved);
+            System.arraycopy(idLsbs, row, idLsbs, row + 1, moved);
+            System.arraycopy(itemIds, row, itemIds, row + 1, moved);
+            System.arraycopy(openedTimes, row, openedTimes, row + 1, moved);
+            System.arraycopy(openedQuantities, row, openedQuantities, row + 1, moved);
+            System.arraycopy(closedTimes, row, closedTimes, row + 1, moved);
+            System.arraycopy(closedQuantities, row, closedQuantities, row + 1, moved);
+            System.arraycopy(cumSpents, row, cumSpents, row + 1, moved);
+            System.arraycopy(receivedPostTaxes, row, receivedPostTaxes, row + 1, moved);
+            System.arraycopy(cumProfits, row, cumProfits, row + 1, moved);
+            System.arraycopy(cumTaxesPaid, row, cumTaxesPaid, row + 1, moved);
+            System.arraycopy(closeds, row, closeds, row + 1, moved);
+        }
+        // the shifted rows still hold the totals from before this row was added
+        for (int i = row + 1; i <= size; i++) {
+            cumSpents[i] += flip.getSpent();
+            cumProfits[i] += flip.getProfit();
+            cumTaxesPaid[i] += flip.getTaxPaid();
+        }
+        idMsbs[row] = flip.getId().getMostSignificantBits();
+        idLsbs[row] = flip.getId().getLeastSignificantBits();
+        itemIds[row] = flip.getItemId();
+        openedTimes[row] = flip.getOpenedTime();
+        openedQuantities[row] = flip.getOpenedQuantity();
+        closedTimes[row] = flip.getClosedTime();
+        closedQuantities[row] = flip.getClosedQuantity();
+        cumSpents[row] = totalBefore(cumSpents, row) + flip.getSpent();
+        receivedPostTaxes[row] = flip.getReceivedPostTax();
+        cumProfits[row] = totalBefore(cumProfits, row) + flip.getProfit();
+        cumTaxesPaid[row] = totalBefore(cumTaxesPaid, row) + flip.getTaxPaid();
+        closeds[row] = flip.isClosed();
+        size++;
+    }
+
+    private int compareRow(int row, UUID id, int closedTime) {
+        int c = Integer.compare(closedTimes[row], closedTime);
+        if (c != 0) {
+            return c;
+        }
+        // ties are rare, only then is a UUID built to compare ids exactly as UUID.compareTo orders them
+        return new UUID(idMsbs[row], idLsbs[row]).compareTo(id);
+    }
+
+    private static int compareRows(FlipColumns a, int rowA, FlipColumns b, int rowB) {
+        int c = Integer.compare(a.closedTimes[rowA], b.closedTimes[rowB]);
+        if (c != 0) {
+            return c;
+        }
+        return new UUID(a.idMsbs[rowA], a.idLsbs[rowA]).compareTo(new UUID(b.idMsbs[rowB], b.idLsbs[rowB]));
+    }
+
+    private static long totalBefore(long[] cumulative, int row) {
+        return row == 0 ? 0 : cumulative[row - 1];
+    }
+
+    private static long rowValue(long[] cumulative, int row) {
+        return cumulative[row] - totalBefore(cumulative, row);
+    }
+
+    private void allocate(int capacity) {
+        idMsbs = new long[capacity];
+        idLsbs = new long[capacity];
+        itemIds = new int[capacity];
+        openedTimes = new int[capacity];
+        openedQuantities = new int[capacity];
+        closedTimes = new int[capacity];
+        closedQuantities = new int[capacity];
+        cumSpents = new long[capacity];
+        receivedPostTaxes = new long[capacity];
+        cumProfits = new long[capacity];
+        cumTaxesPaid = new long[capacity];
+        closeds = new boolean[capacity];
+    }
+
+    private void grow(int capacity) {
+        idMsbs = Arrays.copyOf(idMsbs, capacity);
+        idLsbs = Arrays.copyOf(idLsbs, capacity);
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        openedTimes = Arrays.copyOf(openedTimes, capacity);
+        openedQuantities = Arrays.copyOf(openedQuantities, capacity);
+        closedTimes = Arrays.copyOf(closedTimes, capacity);
+        closedQuantities = Arrays.copyOf(closedQuantities, capacity);
+        cumSpents = Arrays.copyOf(cumSpents, capacity);
+        receivedPostTaxes = Arrays.copyOf(receivedPostTaxes, capacity);
+        cumProfits = Arrays.copyOf(cumProfits, capacity);
+        cumTaxesPaid = Arrays.copyOf(cumTaxesPaid, capacity);
+        closeds = Arrays.copyOf(closeds, capacity);
+    }
+
+    private static class Cursor {
+        final FlipColumns columns;
+        final int from;
+        int row;
+
+        Cursor(FlipColumns columns, int row, int from) {
+            this.columns = columns;
+            this.row = row;
+            this.from = from;
+        }
+    }
+}
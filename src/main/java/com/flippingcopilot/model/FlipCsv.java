@@ -0,0 +1,150 @@
+package com.flippingcopilot.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes flips as CSV, one flip per line, so a flip history can be exported for analysis and imported back.
+ * Columns use the names FlipV2 is serialized with, times are epoch seconds. Only item and display names are quoted.
+ */
+public class FlipCsv {
+
+    static final String HEADER = "id,account_id,account_display_name,item_id,item_name,opened_time,opened_quantity,spent,"
+            + "closed_time,closed_quantity,received_post_tax,profit,tax_paid,is_closed";
+    private static final int COLUMNS = 14;
+
+    public static void writeHeader(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+    }
+
+    public static void writeFlip(Writer out, FlipV2 f, String displayName) throws IOException {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append(f.getId()).append(',')
+                .append(f.getAccountId()).append(',');
+        appendQuoted(sb, displayName);
+        sb.append(',').append(f.getItemId()).append(',');
+        appendQuoted(sb, f.getItemName());
+        sb.append(',').append(f.getOpenedTime())
+                .append(',').append(f.getOpenedQuantity())
+                .append(',').append(f.getSpent())
+                .append(',').append(f.getClosedTime())
+                .append(',').append(f.getClosedQuantity())
+                .append(',').append(f.getReceivedPostTax())
+                .append(',').append(f.getProfit())
+                .append(',').append(f.getTaxPaid())
+                .append(',').append(f.isClosed())
+                .append('\n');
+        out.write(sb.toString());
+    }
+
+    /**
+     * Reads the flips of a CSV written by writeFlip, handing them to batchConsumer batchSize at a time so a large file
+     * is never held in memory at once. The account display name column is put into FlipV2.accountDisplayName.
+     *
+     * @return the number of flips read
+     */
+    public static int readFlips(BufferedReader in, int batchSize, Consumer<List<FlipV2>> batchConsumer) throws IOException {
+        String line = in.readLine();
+        if (line == null) {
+            return 0;
+        }
+        if (!line.equals(HEADER)) {
+            throw new IOException("not a flips CSV, unexpected header: " + line);
+        }
+        int n = 0;
+        int lineNumber = 1;
+        List<FlipV2> batch = new ArrayList<>(batchSize);
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                batch.add(parseFlip(line));
+            } catch (RuntimeException e) {
+                throw new IOException("invalid flip on line " + lineNumber + ": " + e.getMessage(), e);
+            }
+            n++;
+            if (batch.size() == batchSize) {
+                batchConsumer.accept(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        return n;
+    }
+
+    static FlipV2 parseFlip(String line) {
+        List<String> c = splitLine(line);
+        if (c.size() != COLUMNS) {
+            throw new IllegalArgumentException("expected " + COLUMNS + " columns but got " + c.size());
+        }
+        FlipV2 f = new FlipV2();
+        f.setId(UUID.fromString(c.get(0)));
+        f.setAccountId(Integer.parseInt(c.get(1)));
+        f.setAccountDisplayName(c.get(2).isEmpty() ? null : c.get(2));
+        f.setItemId(Integer.parseInt(c.get(3)));
+        f.setItemName(c.get(4).isEmpty() ? null : c.get(4));
+        f.setOpenedTime(Integer.parseInt(c.get(5)));
+        f.setOpenedQuantity(Integer.parseInt(c.get(6)));
+        f.setSpent(Long.parseLong(c.get(7)));
+        f.setClosedTime(Integer.parseInt(c.get(8)));
+        f.setClosedQuantity(Integer.parseInt(c.get(9)));
+        f.setReceivedPostTax(Long.parseLong(c.get(10)));
+        f.setProfit(Long.parseLong(c.get(11)));
+        f.setTaxPaid(Long.parseLong(c.get(12)));
+        f.setClosed(Boolean.parseBoolean(c.get(13)));
+        return f;
+    }
+
+    private static void appendQuoted(StringBuilder sb, String value) {
+        if (value == null) {
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"') {
+                sb.append('"');
+            }
+            sb.append(ch == '\n' || ch == '\r' ? ' ' : ch);
+        }
+        sb.append('"');
+    }
+
+    private static List<String> splitLine(String line) {
+        List<String> columns = new ArrayList<>(COLUMNS);
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    sb.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    quoted = false;
+                } else {
+                    sb.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                columns.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(ch);
+            }
+        }
+        columns.add(sb.toString());
+        return columns;
+    }
+}
@@ -2,6 +2,9 @@ package com.flippingcopilot.model; // Ensure this package matches your project s
 
 // PHASE 1: ApiRequestHandler import might be removed if all its uses are commented out
 // import com.flippingcopilot.controller.ApiRequestHandler;
+import com.flippingcopilot.controller.Persistance;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -9,11 +12,31 @@ import okhttp3.OkHttpClient; // Keep if used by other non-backend tasks, or remo
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +46,23 @@ import java.util.stream.Collectors;
  * A bucketed aggregation strategy is used where we keep pre-computed weekly buckets of statistics and flips. For any
  * time range we can efficiently combine the weekly buckets and only have to re-calculate statistics for the partial
  * weeks on the boundaries of the time range. Have tested the UI experience with >100k flips.
+ * <p>
+ * The weekly buckets are persisted locally by a FlipStore as a snapshot plus a log of the flips merged since, so
+ * startup reads the buckets back as they were rather than re-merging every flip.
+ * <p>
+ * Writers (merging flips, changing the interval) hold the lock. Readers (stats and pages for the UI) don't lock at
+ * all, they read the latest published View. A week that's part of a published view is never changed, a writer copies
+ * it first, so publishing a view only has to copy the list of weeks and the weeks touched since the last one. The
+ * copy shares each account's columns and stats with the published week until that account is changed, so merging a
+ * transaction copies the one account it touches rather than every account of the week.
+ * <p>
+ * The flips of a week are held in FlipColumns rather than as FlipV2 objects, which more than halves the memory a
+ * large history takes. FlipV2s are only materialized for the rows a page actually shows. The columns keep running
+ * totals, so the partial week at the start of an interval costs a binary search rather than a scan of its flips and
+ * short intervals like the past hour don't get slower as the week fills up.
+ * <p>
+ * Each week also keeps the profit of every hour per account, so a profit curve for any interval sums kept hours rather
+ * than scanning flips.
  */
 @Slf4j
 @Singleton
@@ -30,6 +70,10 @@ import java.util.stream.Collectors;
 public class FlipManager {
 
     private static final int WEEK_SECS = 7 * 24 * 60 * 60;
+    private static final int SNAPSHOT_AFTER_LOGGED_FLIPS = 5_000;
+    private static final int IMPORT_BATCH_SIZE = 10_000;
+    // batches at least this big are merged a week at a time rather than a flip at a time
+    private static final int BULK_MERGE_MIN_FLIPS = 1_000;
 
     // dependencies
     // PHASE 1: Comment out ApiRequestHandler
@@ -39,6 +83,8 @@ public class FlipManager {
 
     @Setter
     private Runnable flipsChangedCallback = () -> {};
+    @Setter(AccessLevel.PACKAGE)
+    private FlipStore flipStore;
 
     // state
     private String intervalDisplayName;
@@ -49,17 +95,28 @@ public class FlipManager {
     final Map<Integer, Map<Integer, FlipV2>> lastOpenFLipByItemId = new HashMap<>();
     final Map<UUID, Integer> existingCloseTimes = new HashMap<>();
     final List<WeekAggregate> weeks = new ArrayList<>(365*5);
+    // read by readers materializing rows without the lock, hence concurrent
+    final Map<Integer, String> itemNames = new ConcurrentHashMap<>();
 
+    private volatile View view = new View(0, Collections.emptyList(), Collections.emptyMap(), null, 0, new Stats());
+    private long version = 0;
     private int resetSeq = 0;
+    private boolean snapshotPending = false;
     public volatile boolean flipsLoaded = false; // PHASE 1: This will become true after local load or if no local data.
 
-    public synchronized String getIntervalDisplayName() {
-        return intervalDisplayName;
+    public String getIntervalDisplayName() {
+        return view.intervalDisplayName;
     }
 
-    public synchronized List<String> getDisplayNameOptions() {
-        // PHASE 1: This will be populated from local data or stay empty.
-        return displayNameToAccountId.keySet().stream().sorted().collect(Collectors.toList());
+    public List<String> getDisplayNameOptions() {
+        return view.displayNameToAccountId.keySet().stream().sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the version of the published view, which increases every time the flips or interval change.
+     */
+    public long getVersion() {
+        return view.version;
     }
 
     public synchronized long estimateTransactionProfit(String displayName, Transaction t) {
@@ -73,25 +130,242 @@ public class FlipManager {
         return 0;
     }
 
-    public synchronized void mergeFlips(List<FlipV2> flips, String displayName) {
+    /**
+     * Returns the account id flips of this display name are recorded under, assigning the next free one if it has none
+     * yet. Ids are assigned locally now that there's no server to hand them out.
+     */
+    public synchronized int getOrAssignAccountId(String displayName) {
+        Integer accountId = displayNameToAccountId.get(displayName);
+        if (accountId != null && accountId >= 0) {
+            return accountId;
+        }
+        int next = 0;
+        for (int id : displayNameToAccountId.values()) {
+            next = Math.max(next, id + 1);
+        }
+        displayNameToAccountId.put(displayName, next);
+        publish();
+        return next;
+    }
+
+    public synchronized FlipV2 getOpenFlip(int accountId, int itemId) {
+        Map<Integer, FlipV2> openFlips = lastOpenFLipByItemId.get(accountId);
+        return openFlips == null ? null : openFlips.get(itemId);
+    }
+
+    /**
+     * Logs the flips and merges them. Returns false, leaving the flips unmerged, if they couldn't be written to the
+     * local log, in which case the transactions they came from mustn't be acked: matching them again later starts from
+     * the same open flips.
+     */
+    public synchronized boolean mergeFlips(List<FlipV2> flips, String displayName) {
+        if (!logFlips(flips)) {
+            return false;
+        }
         if(!flips.isEmpty() && displayName != null) {
-            // PHASE 1: Account ID will need to be managed locally if we support multiple local "profiles"
             displayNameToAccountId.put(displayName, flips.get(0).getAccountId());
         }
-        flips.forEach(this::mergeFlip_);
+        if (flips.size() >= BULK_MERGE_MIN_FLIPS) {
+            bulkMerge(flips);
+        } else {
+            flips.forEach(this::mergeFlip_);
+        }
+        publish();
         flipsChangedCallback.run();
+        return true;
+    }
+
+    /**
+     * Merges a large batch with the same result as calling mergeFlip_ on each flip in turn. Merging one at a time
+     * shifts the columns of a week for every flip, which makes importing a long history quadratic per week. Here the
+     * batch is bucketed by week and account, each bucket is sorted and merged into its columns in one linear pass,
+     * and the stats of each touched bucket and the interval are recalculated once.
+     */
+    private void bulkMerge(List<FlipV2> flips) {
+        // a flip can appear more than once in a batch, its last version is the one that counts
+        Map<UUID, FlipV2> latest = new HashMap<>(flips.size() * 2);
+        for (FlipV2 f : flips) {
+            latest.put(f.getId(), f);
+        }
+        Map<Long, BulkBucket> buckets = new HashMap<>();
+        for (FlipV2 f : latest.values()) {
+            Integer existingCloseTime = existingCloseTimes.get(f.getId());
+            if (existingCloseTime != null) {
+                BulkBucket b = buckets.computeIfAbsent(bucketKey(existingCloseTime, f.getAccountId()), (k) -> new BulkBucket());
+                b.removedIds.add(f.getId());
+                b.removedCloseTimes.add(existingCloseTime);
+            }
+            buckets.computeIfAbsent(bucketKey(f.getClosedTime(), f.getAccountId()), (k) -> new BulkBucket()).added.add(f);
+            if (f.getItemName() != null) {
+                itemNames.putIfAbsent(f.getItemId(), f.getItemName());
+            }
+            existingCloseTimes.put(f.getId(), f.getClosedTime());
+        }
+        Comparator<FlipV2> order = Comparator.comparingInt(FlipV2::getClosedTime).thenComparing(FlipV2::getId);
+        for (Map.Entry<Long, BulkBucket> e : buckets.entrySet()) {
+            int weekStart = (int) (e.getKey() >> 32);
+            int accountId = (int) (long) e.getKey();
+            BulkBucket b = e.getValue();
+            WeekAggregate w = mutableWeek(weekStart);
+            FlipColumns columns = w.accountIdToFlips.getOrDefault(accountId, new FlipColumns(accountId, 1));
+            boolean[] removed = new boolean[columns.size()];
+            for (int i = 0; i < b.removedIds.size(); i++) {
+                int row = columns.find(b.removedIds.get(i), b.removedCloseTimes.get(i));
+                if (row >= 0) {
+                    removed[row] = true;
+                }
+            }
+            b.added.sort(order);
+            columns = columns.merged(removed, b.added);
+            w.accountIdToFlips.put(accountId, columns);
+            Stats stats = new Stats();
+            columns.addStats(stats, 0);
+            w.accountIdToStats.put(accountId, stats);
+            ItemStats itemStats = new ItemStats();
+            columns.addItemStats(itemStats, 0);
+            w.accountIdToItemStats.put(accountId, itemStats);
+            long[] hourlyProfits = new long[ProfitCurve.HOURS_PER_WEEK];
+            columns.addHourlyProfits(hourlyProfits, weekStart);
+            w.accountIdToHourlyProfits.put(accountId, hourlyProfits);
+            // all four were just replaced, none is shared with a published week any more
+            w.sharedAccounts.remove(accountId);
+            w.allStats = new Stats();
+            w.accountIdToStats.values().forEach(w.allStats::add);
+        }
+        // open flips depend on the order flips arrived in, so these are still done one by one
+        for (FlipV2 f : flips) {
+            if (f.getClosedQuantity() < f.getOpenedQuantity()) {
+                lastOpenFLipByItemId.computeIfAbsent(f.getAccountId(), (k) -> new HashMap<>()).put(f.getItemId(), f);
+            } else if (f.isClosed()) {
+                lastOpenFLipByItemId.computeIfAbsent(f.getAccountId(), (k) -> new HashMap<>()).remove(f.getItemId());
+            }
+        }
+        intervalStats = calculateIntervalStats();
+    }
+
+    private static long bucketKey(int closeTime, int accountId) {
+        int weekStart = closeTime - (closeTime % WEEK_SECS);
+        return ((long) weekStart << 32) | (accountId & 0xFFFFFFFFL);
     }
 
-    public synchronized Stats getIntervalStats() {
-        return intervalStats.copy();
+    private static class BulkBucket {
+        final List<UUID> removedIds = new ArrayList<>();
+        final List<Integer> removedCloseTimes = new ArrayList<>();
+        final List<FlipV2> added = new ArrayList<>();
     }
 
-    public synchronized Stats calculateStats(int startTime, String displayName) {
+    /**
+     * Appends the flips to the local log, returning false if that failed. Without a local directory there's nowhere
+     * to log to and the flips only live in memory.
+     */
+    private boolean logFlips(List<FlipV2> flips) {
+        if (flipStore == null && Persistance.directory != null) {
+            flipStore = new FlipStore(Persistance.directory);
+        }
+        if (flipStore == null) {
+            return true;
+        }
+        try {
+            flipStore.append(flips);
+        } catch (IOException e) {
+            log.warn("error appending {} flips to the local flips log", flips.size(), e);
+            return false;
+        }
+        if (!snapshotPending && flipStore.getRecordsSinceSnapshot() >= SNAPSHOT_AFTER_LOGGED_FLIPS) {
+            snapshotPending = true;
+            executorService.execute(this::saveSnapshot);
+        }
+        return true;
+    }
+
+    public Stats getIntervalStats() {
+        return view.intervalStats.copy();
+    }
+
+    public Stats calculateStats(int startTime, String displayName) {
+        View v = view;
         if(displayName == null) {
-            return calculateStatsAllAccounts(startTime);
+            return calculateStatsAllAccounts(v.weeks, startTime);
         } else {
-            return calculateStatsForAccount(startTime, displayNameToAccountId.getOrDefault(displayName, -1));
+            return calculateStatsForAccount(v.weeks, startTime, v.displayNameToAccountId.getOrDefault(displayName, -1));
+        }
+    }
+
+    /**
+     * Returns the n most profitable items of the current interval and account selection, most profitable first.
+     */
+    public List<ItemProfit> getIntervalTopItems(int n) {
+        View v = view;
+        return calculateTopItems(v, v.intervalStartTime, v.intervalDisplayName, n);
+    }
+
+    /**
+     * Returns the n most profitable items of the flips closed after startTime, most profitable first. Weeks wholly
+     * inside the interval contribute their kept per item stats, only the first week's flips are looked at.
+     */
+    public List<ItemProfit> calculateTopItems(int startTime, String displayName, int n) {
+        return calculateTopItems(view, startTime, displayName, n);
+    }
+
+    private List<ItemProfit> calculateTopItems(View v, int startTime, String displayName, int n) {
+        Integer accountId = displayName == null ? null : v.displayNameToAccountId.getOrDefault(displayName, -1);
+        ItemStats stats = new ItemStats();
+        for (int i = firstWeekEndingAfter(v.weeks, startTime); i < v.weeks.size(); i++) {
+            v.weeks.get(i).addItemStatsAfter(stats, startTime, accountId);
+        }
+        return stats.top(n, itemNames);
+    }
+
+    /**
+     * Returns the profit curve of the current interval and account selection up to now.
+     */
+    public ProfitCurve getIntervalProfitCurve() {
+        View v = view;
+        return calculateProfitCurve(v, v.intervalStartTime, (int) Instant.now().getEpochSecond(), v.intervalDisplayName);
+    }
+
+    /**
+     * Returns the hourly cumulative profit of the flips closed between startTime and endTime, of one account or of
+     * all of them if displayName is null. The curve starts at the hour holding startTime, or at the first week with
+     * flips if that's later, and the flips of its first hour all count. Only the kept hourly profits of the weeks in
+     * range are summed, so the cost is linear in the number of hours whatever the number of flips.
+     */
+    public ProfitCurve calculateProfitCurve(int startTime, int endTime, String displayName) {
+        return calculateProfitCurve(view, startTime, endTime, displayName);
+    }
+
+    private static ProfitCurve calculateProfitCurve(View v, int startTime, int endTime, String displayName) {
+        Integer accountId = displayName == null ? null : v.displayNameToAccountId.getOrDefault(displayName, -1);
+        int w = firstWeekEndingAfter(v.weeks, startTime);
+        if (w == v.weeks.size()) {
+            return new ProfitCurve(new int[0], new long[0]);
         }
+        int from = Math.max(startTime, v.weeks.get(w).weekStart);
+        from -= from % ProfitCurve.HOUR_SECS;
+        int hours = Math.max(0, (endTime - from + ProfitCurve.HOUR_SECS - 1) / ProfitCurve.HOUR_SECS);
+        int[] hourStarts = new int[hours];
+        long[] profits = new long[hours];
+        long[] weekProfits = new long[ProfitCurve.HOURS_PER_WEEK];
+        int loadedWeek = -1;
+        long total = 0;
+        for (int h = 0; h < hours; h++) {
+            int t = from + h * ProfitCurve.HOUR_SECS;
+            while (w < v.weeks.size() && v.weeks.get(w).weekEnd <= t) {
+                w++;
+            }
+            if (w < v.weeks.size() && v.weeks.get(w).weekStart <= t) {
+                WeekAggregate week = v.weeks.get(w);
+                if (loadedWeek != w) {
+                    Arrays.fill(weekProfits, 0);
+                    week.addHourlyProfits(weekProfits, accountId);
+                    loadedWeek = w;
+                }
+                total += weekProfits[(t - week.weekStart) / ProfitCurve.HOUR_SECS];
+            }
+            hourStarts[h] = t;
+            profits[h] = total;
+        }
+        return new ProfitCurve(hourStarts, profits);
     }
 
     public synchronized void setIntervalDisplayName(String displayName) {
@@ -117,34 +391,40 @@ public class FlipManager {
     }
 
     private void recalculateIntervalStats() {
-        if(intervalDisplayName == null) {
-            intervalStats = calculateStatsAllAccounts(intervalStartTime);
-        } else {
-            intervalStats = calculateStatsForAccount(intervalStartTime, displayNameToAccountId.getOrDefault(intervalDisplayName, -1));
-        }
+        intervalStats = calculateIntervalStats();
         log.debug("interval flips updated to {}, interval profit updated to {}", intervalStats.flipsMade, intervalStats.profit);
+        publish();
         flipsChangedCallback.run();
     }
 
-    private Stats calculateStatsAllAccounts(int startTime) {
+    private Stats calculateIntervalStats() {
+        if(intervalDisplayName == null) {
+            return calculateStatsAllAccounts(weeks, intervalStartTime);
+        }
+        return calculateStatsForAccount(weeks, intervalStartTime, displayNameToAccountId.getOrDefault(intervalDisplayName, -1));
+    }
+
+    private static Stats calculateStatsAllAccounts(List<WeekAggregate> weeks, int startTime) {
         Stats stats = new Stats();
-        WeekAggregate w = getOrInitWeek(startTime);
-        for (FlipV2 f : w.flipsAfter(startTime, false)) {
-            stats.addFlip(f);
+        int i = firstWeekEndingAfter(weeks, startTime);
+        if (i < weeks.size()) {
+            weeks.get(i).addStatsAfter(stats, startTime);
+            i++;
         }
-        for(int i=w.pos+1; i < weeks.size(); i++) {
+        for(; i < weeks.size(); i++) {
             stats.add(weeks.get(i).allStats);
         }
         return stats;
     }
 
-    private Stats calculateStatsForAccount(int startTime, int accountId) {
+    private static Stats calculateStatsForAccount(List<WeekAggregate> weeks, int startTime, int accountId) {
         Stats stats = new Stats();
-        WeekAggregate w = getOrInitWeek(startTime);
-        for (FlipV2 f : w.flipsAfterForAccount(startTime, accountId)) {
-            stats.addFlip(f);
+        int i = firstWeekEndingAfter(weeks, startTime);
+        if (i < weeks.size()) {
+            weeks.get(i).addStatsAfterForAccount(stats, startTime, accountId);
+            i++;
         }
-        for(int i=w.pos+1; i < weeks.size(); i++) {
+        for(; i < weeks.size(); i++) {
             Stats accountStats = weeks.get(i).accountIdToStats.get(accountId);
             if (accountStats != null) { // Add null check
                 stats.add(accountStats);
@@ -153,28 +433,25 @@ public class FlipManager {
         return stats;
     }
 
-    public synchronized List<FlipV2> getPageFlips(int page, int pageSize) {
-        Integer accountId = intervalDisplayName == null ? null : displayNameToAccountId.getOrDefault(intervalDisplayName, -1);
-        if (Objects.equals(accountId,-1) && intervalDisplayName != null) { // Check if it's specifically -1 and not just null intervalDisplayName
+    public List<FlipV2> getPageFlips(int page, int pageSize) {
+        View v = view;
+        Integer accountId = v.intervalDisplayName == null ? null : v.displayNameToAccountId.getOrDefault(v.intervalDisplayName, -1);
+        if (Objects.equals(accountId,-1) && v.intervalDisplayName != null) { // Check if it's specifically -1 and not just null intervalDisplayName
             return new ArrayList<>();
         }
 
         int toSkip = (page -1) * pageSize;
-        WeekAggregate intervalWeek = getOrInitWeek(intervalStartTime);
+        List<WeekAggregate> weeks = v.weeks;
+        int firstWeek = firstWeekEndingAfter(weeks, v.intervalStartTime);
         List<FlipV2> resultFlips = new ArrayList<>(pageSize);
-        for(int i=weeks.size()-1; i >= intervalWeek.pos; i--) {
-            if (weeks.get(i).weekEnd <= intervalStartTime || resultFlips.size() == pageSize) {
+        for(int i=weeks.size()-1; i >= firstWeek; i--) {
+            if (resultFlips.size() == pageSize) {
                 break;
             }
             WeekAggregate w = weeks.get(i);
-            List<FlipV2> weekFlips = accountId == null ? w.flipsAfter(intervalStartTime, true) : w.flipsAfterForAccount(intervalStartTime, accountId);
-            int n = weekFlips.size();
+            int n = w.countAfter(v.intervalStartTime, accountId);
             if (n > toSkip) {
-                int end = n - toSkip;
-                int start = Math.max(0, end - (pageSize - resultFlips.size()));
-                for(int ii=end-1; ii >= start; ii--) {
-                    resultFlips.add(weekFlips.get(ii));
-                }
+                w.addNewestFirst(v.intervalStartTime, accountId, toSkip, pageSize, resultFlips);
                 toSkip = 0;
             } else {
                 toSkip -= n;
@@ -183,26 +460,270 @@ public class FlipManager {
         return resultFlips;
     }
 
+    /**
+     * Writes every flip to file as CSV on the executor. The published view is walked a week and an account at a time
+     * with one flip materialized at a time, so memory stays bounded however long the history is and merging isn't
+     * held up meanwhile. progress is called after each week with the flips written so far and the total, done with
+     * null once the file is in place or with the error.
+     */
+    public void exportFlipsAsync(File file, BiConsumer<Integer, Integer> progress, Consumer<IOException> done) {
+        executorService.execute(() -> {
+            try {
+                exportFlips(file, progress);
+                done.accept(null);
+            } catch (IOException e) {
+                log.warn("error exporting flips to {}", file, e);
+                done.accept(e);
+            }
+        });
+    }
+
+    void exportFlips(File file, BiConsumer<Integer, Integer> progress) throws IOException {
+        View v = view;
+        Map<Integer, String> accountIdToDisplayName = new HashMap<>();
+        v.displayNameToAccountId.forEach((name, id) -> accountIdToDisplayName.put(id, name));
+        int total = 0;
+        for (WeekAggregate w : v.weeks) {
+            total += w.allStats.flipsMade;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        int written = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            FlipCsv.writeHeader(out);
+            for (WeekAggregate w : v.weeks) {
+                for (FlipColumns flips : w.accountIdToFlips.values()) {
+                    String displayName = accountIdToDisplayName.get(flips.accountId);
+                    for (int row = 0; row < flips.size(); row++) {
+                        FlipCsv.writeFlip(out, flips.get(row, itemNames), displayName);
+                    }
+                    written += flips.size();
+                }
+                progress.accept(written, total);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log.info("exported {} flips to {}", written, file);
+    }
+
+    /**
+     * Merges the flips of a CSV written by exportFlipsAsync on the executor, a batch at a time. Flips are filed under
+     * this machine's account id for their display name, so histories exported elsewhere can't collide with the ids
+     * assigned here. Flips already present are replaced, so importing the same file twice changes nothing. progress
+     * is called after each batch with the flips imported so far, done with null on success or with the error.
+     */
+    public void importFlipsAsync(File file, IntConsumer progress, Consumer<IOException> done) {
+        executorService.execute(() -> {
+            try {
+                importFlips(file, progress);
+                done.accept(null);
+            } catch (IOException e) {
+                log.warn("error importing flips from {}", file, e);
+                done.accept(e);
+            }
+        });
+    }
+
+    int importFlips(File file, IntConsumer progress) throws IOException {
+        int[] imported = {0};
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            int n = FlipCsv.readFlips(in, IMPORT_BATCH_SIZE, (batch) -> {
+                importBatch(batch);
+                imported[0] += batch.size();
+                progress.accept(imported[0]);
+            });
+            log.info("imported {} flips from {}", n, file);
+            return n;
+        } catch (UncheckedIOException e) {
+            // a batch that couldn't be logged, thrown out of the batch consumer
+            throw e.getCause();
+        }
+    }
+
+    private void importBatch(List<FlipV2> batch) {
+        Map<String, List<FlipV2>> byDisplayName = new LinkedHashMap<>();
+        List<FlipV2> unnamed = new ArrayList<>();
+        for (FlipV2 f : batch) {
+            if (f.getAccountDisplayName() == null) {
+                unnamed.add(f);
+            } else {
+                byDisplayName.computeIfAbsent(f.getAccountDisplayName(), (k) -> new ArrayList<>()).add(f);
+            }
+        }
+        byDisplayName.forEach((displayName, flips) -> {
+            int accountId = getOrAssignAccountId(displayName);
+            flips.forEach(f -> f.setAccountId(accountId));
+            if (!mergeFlips(flips, displayName)) {
+                throw new UncheckedIOException(new IOException("failed to log " + flips.size() + " imported flips"));
+            }
+        });
+        if (!unnamed.isEmpty() && !mergeFlips(unnamed, null)) {
+            throw new UncheckedIOException(new IOException("failed to log " + unnamed.size() + " imported flips"));
+        }
+    }
+
     public void loadFlipsAsync() {
-        // PHASE 1: Don't call the backend.
-        // Later, this will load flips from local storage.
-        // For now, we can just set flipsLoaded to true and call the callback.
-        log.info("Offline Mode: Skipping backend call for loadFlipsAsync. Will load locally later.");
-        executorService.execute(() -> { // Still use executor for consistency if callback expects it.
-            synchronized (this) {
-                // Simulate loading success for now.
-                // In a real local version, you'd read from a file here.
-                // For example: List<FlipV2> localFlips = Persistance.loadLocalFlips(osrsLoginManager.getPlayerDisplayName());
-                // mergeFlips(localFlips, osrsLoginManager.getPlayerDisplayName());
-                flipsLoaded = true; // Mark as loaded
-            }
-            flipsChangedCallback.run(); // Notify UI to refresh (will show empty if no local data)
+        executorService.execute(() -> {
+            loadFlips();
+            flipsChangedCallback.run();
         });
     }
 
-    // PHASE 1: The private loadFlips(int seq) method that contained API calls is entirely removed.
-    // If it's called from somewhere else (it shouldn't be, as loadFlipsAsync is the public entry),
-    // those calls would need to be removed too.
+    void loadFlips() {
+        long s = System.nanoTime();
+        synchronized (this) {
+            if (flipStore == null && Persistance.directory != null) {
+                flipStore = new FlipStore(Persistance.directory);
+            }
+            boolean loaded = true;
+            if (flipStore != null) {
+                try {
+                    flipStore.load(this::readSnapshot, this::replayFlip, itemNames);
+                } catch (IOException | RuntimeException e) {
+                    // only part of the history is in memory, so neither snapshot it nor match transactions against it
+                    log.error("error loading local flips", e);
+                    loaded = false;
+                }
+            }
+            flipsLoaded = loaded;
+            recalculateIntervalStats();
+        }
+        log.info("loaded {} weeks of local flips in {}ms", weeks.size(), (System.nanoTime() - s) / 1_000_000);
+    }
+
+    /**
+     * Writes the weekly buckets to the local snapshot so the logs of flips merged so far can be dropped. The state is
+     * only locked while it's being encoded, the file IO happens outside of the lock.
+     */
+    public void saveSnapshot() {
+        int generation;
+        byte[] content;
+        synchronized (this) {
+            snapshotPending = false;
+            if (flipStore == null || !flipsLoaded || flipStore.getRecordsSinceSnapshot() == 0) {
+                return;
+            }
+            try {
+                generation = flipStore.rollGeneration();
+                content = encodeSnapshot();
+            } catch (IOException e) {
+                log.warn("error encoding flips snapshot", e);
+                return;
+            }
+        }
+        try {
+            flipStore.writeSnapshot(generation, content);
+        } catch (IOException e) {
+            log.warn("error writing flips snapshot", e);
+        }
+    }
+
+    private byte[] encodeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(existingCloseTimes.size() * 96 + 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(displayNameToAccountId.size());
+        for (Map.Entry<String, Integer> e : displayNameToAccountId.entrySet()) {
+            FlipStore.writeString(out, e.getKey());
+            out.writeInt(e.getValue());
+        }
+        out.writeInt(weeks.size());
+        for (WeekAggregate w : weeks) {
+            out.writeInt(w.weekStart);
+            writeStats(out, w.allStats);
+            out.writeInt(w.accountIdToFlips.size());
+            for (Map.Entry<Integer, FlipColumns> e : w.accountIdToFlips.entrySet()) {
+                FlipColumns flips = e.getValue();
+                out.writeInt(e.getKey());
+                writeStats(out, w.accountIdToStats.getOrDefault(e.getKey(), new Stats()));
+                out.writeInt(flips.size());
+                for (int row = 0; row < flips.size(); row++) {
+                    FlipStore.writeFlip(out, flips.get(row, itemNames));
+                }
+            }
+        }
+        int openFlips = 0;
+        for (Map<Integer, FlipV2> m : lastOpenFLipByItemId.values()) {
+            openFlips += m.size();
+        }
+        out.writeInt(openFlips);
+        for (Map<Integer, FlipV2> m : lastOpenFLipByItemId.values()) {
+            for (FlipV2 f : m.values()) {
+                out.writeInt(f.getAccountId());
+                out.writeInt(f.getClosedTime());
+                out.writeLong(f.getId().getMostSignificantBits());
+                out.writeLong(f.getId().getLeastSignificantBits());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void readSnapshot(ByteBuffer b) {
+        // if flips were merged before loading we have to go through mergeFlip_, otherwise the buckets can be taken as is
+        boolean fresh = weeks.isEmpty();
+        int names = b.getInt();
+        for (int i = 0; i < names; i++) {
+            displayNameToAccountId.put(FlipStore.readString(b), b.getInt());
+        }
+        int weekCount = b.getInt();
+        for (int i = 0; i < weekCount; i++) {
+            WeekAggregate w = new WeekAggregate();
+            w.weekStart = b.getInt();
+            w.weekEnd = w.weekStart + WEEK_SECS;
+            w.allStats = readStats(b);
+            int accounts = b.getInt();
+            for (int a = 0; a < accounts; a++) {
+                int accountId = b.getInt();
+                w.accountIdToStats.put(accountId, readStats(b));
+                int n = b.getInt();
+                FlipColumns flips = new FlipColumns(accountId, n);
+                for (int f = 0; f < n; f++) {
+                    FlipV2 flip = FlipStore.readFlip(b, itemNames);
+                    if (fresh) {
+                        // not append, snapshots written before flips were ordered by ascending id may order ties differently
+                        flips.insert(flip);
+                        w.accountIdToItemStats.computeIfAbsent(accountId, (k) -> new ItemStats()).addFlip(flip);
+                        w.addHourlyProfit(flip, 1);
+                        existingCloseTimes.put(flip.getId(), flip.getClosedTime());
+                    } else {
+                        mergeFlip_(flip);
+                    }
+                }
+                w.accountIdToFlips.put(accountId, flips);
+            }
+            if (fresh) {
+                weeks.add(w);
+            }
+        }
+        int openFlips = b.getInt();
+        for (int i = 0; i < openFlips; i++) {
+            int accountId = b.getInt();
+            int closedTime = b.getInt();
+            UUID id = new UUID(b.getLong(), b.getLong());
+            if (!fresh) {
+                continue;
+            }
+            FlipColumns flips = mutableWeek(closedTime).accountIdToFlips.get(accountId);
+            if (flips == null) {
+                continue;
+            }
+            int row = flips.find(id, closedTime);
+            if (row >= 0) {
+                FlipV2 flip = flips.get(row, itemNames);
+                lastOpenFLipByItemId.computeIfAbsent(accountId, (k) -> new HashMap<>()).put(flip.getItemId(), flip);
+            }
+        }
+    }
+
+    private static void writeStats(DataOutputStream out, Stats stats) throws IOException {
+        out.writeLong(stats.profit);
+        out.writeLong(stats.gross);
+        out.writeLong(stats.taxPaid);
+        out.writeInt(stats.flipsMade);
+    }
+
+    private static Stats readStats(ByteBuffer b) {
+        return new Stats(b.getLong(), b.getLong(), b.getLong(), b.getInt());
+    }
 
     public synchronized void reset() {
         intervalDisplayName = null;
@@ -212,19 +733,27 @@ public class FlipManager {
         lastOpenFLipByItemId.clear();
         existingCloseTimes.clear();
         weeks.clear();
+        itemNames.clear();
         flipsLoaded = false; // Reset this, will be set by local loading
         resetSeq += 1;
         log.info("FlipManager reset for offline mode.");
-        // Potentially trigger a load of (empty) local data here or let UI refresh handle it
+        publish();
         flipsChangedCallback.run();
     }
 
+    private void replayFlip(FlipV2 flip) {
+        if (flip.getAccountDisplayName() != null) {
+            displayNameToAccountId.put(flip.getAccountDisplayName(), flip.getAccountId());
+        }
+        mergeFlip_(flip);
+    }
+
     private void mergeFlip_(FlipV2 flip) {
         Integer existingCloseTime = existingCloseTimes.get(flip.getId());
         Integer intervalAccountId = intervalDisplayName == null ? null : displayNameToAccountId.getOrDefault(intervalDisplayName, -1);
 
         if(existingCloseTime != null) {
-            WeekAggregate wa = getOrInitWeek(existingCloseTime);
+            WeekAggregate wa = mutableWeek(existingCloseTime);
             FlipV2 removed = wa.removeFlip(flip.getId(), existingCloseTime, flip.getAccountId());
             if (removed != null) { // Add null check
                 if(removed.getClosedTime() >= intervalStartTime && (intervalAccountId == null || removed.getAccountId() == intervalAccountId)) {
@@ -232,7 +761,7 @@ public class FlipManager {
                 }
             }
         }
-        WeekAggregate wa = getOrInitWeek(flip.getClosedTime());
+        WeekAggregate wa = mutableWeek(flip.getClosedTime());
         wa.addFlip(flip);
         if(flip.getClosedTime() >= intervalStartTime && (intervalAccountId == null || flip.getAccountId() == intervalAccountId)) {
             intervalStats.addFlip(flip);
@@ -245,78 +774,240 @@ public class FlipManager {
         existingCloseTimes.put(flip.getId(), flip.getClosedTime());
     }
 
-    private WeekAggregate getOrInitWeek(int closeTime) {
+    /**
+     * Returns the week holding closeTime, ready to be changed: created if it doesn't exist yet and copied if it's
+     * part of a published view. The copy's accounts are still shared, see WeekAggregate.ownAccount.
+     */
+    private WeekAggregate mutableWeek(int closeTime) {
         int ws = closeTime - (closeTime % WEEK_SECS);
         int i = bisect(weeks.size(), (a) ->  Integer.compare(weeks.get(a).weekStart, ws));
         if (i >= 0){
             WeekAggregate w = weeks.get(i);
-            w.pos = i;
+            if (w.published) {
+                w = w.copy();
+                weeks.set(i, w);
+            }
             return w;
         }
         WeekAggregate wf = new WeekAggregate();
         wf.weekStart = ws;
         wf.weekEnd = ws + WEEK_SECS;
-        wf.pos = -i-1;
-        weeks.add(wf.pos, wf);
+        weeks.add(-i-1, wf);
         return wf;
     }
 
+    private static int firstWeekEndingAfter(List<WeekAggregate> weeks, int time) {
+        int low = 0;
+        int high = weeks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (weeks.get(mid).weekEnd <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void publish() {
+        for (WeekAggregate w : weeks) {
+            w.published = true;
+        }
+        view = new View(++version,
+                Collections.unmodifiableList(new ArrayList<>(weeks)),
+                Collections.unmodifiableMap(new HashMap<>(displayNameToAccountId)),
+                intervalDisplayName,
+                intervalStartTime,
+                intervalStats.copy());
+    }
+
+    @AllArgsConstructor
+    private static class View {
+        final long version;
+        final List<WeekAggregate> weeks;
+        final Map<String, Integer> displayNameToAccountId;
+        final String intervalDisplayName;
+        final int intervalStartTime;
+        final Stats intervalStats;
+    }
+
     class WeekAggregate {
-        int pos;
         int weekStart;
         int weekEnd;
+        // set once the week is part of a published view, after which it must be copied rather than changed
+        boolean published;
         Stats allStats = new Stats();
         Map<Integer, Stats> accountIdToStats = new HashMap<>(20);
-        Map<Integer, List<FlipV2>> accountIdToFlips = new HashMap<>(20);
+        Map<Integer, ItemStats> accountIdToItemStats = new HashMap<>(20);
+        // profit of each hour of the week, indexed by hours since weekStart
+        Map<Integer, long[]> accountIdToHourlyProfits = new HashMap<>(20);
+        Map<Integer, FlipColumns> accountIdToFlips = new HashMap<>(20);
+        // accounts whose stats, hourly profits and columns are still those of the published week this was copied from
+        Set<Integer> sharedAccounts = new HashSet<>();
+
+        /**
+         * Copies the week for a writer. Only the maps are copied, the per account values stay shared with this week
+         * until ownAccount copies them, as a merge usually touches a single account.
+         */
+        WeekAggregate copy() {
+            WeekAggregate c = new WeekAggregate();
+            c.weekStart = weekStart;
+            c.weekEnd = weekEnd;
+            c.allStats = allStats.copy();
+            c.accountIdToStats.putAll(accountIdToStats);
+            c.accountIdToItemStats.putAll(accountIdToItemStats);
+            c.accountIdToHourlyProfits.putAll(accountIdToHourlyProfits);
+            c.accountIdToFlips.putAll(accountIdToFlips);
+            c.sharedAccounts.addAll(accountIdToStats.keySet());
+            c.sharedAccounts.addAll(accountIdToItemStats.keySet());
+            c.sharedAccounts.addAll(accountIdToHourlyProfits.keySet());
+            c.sharedAccounts.addAll(accountIdToFlips.keySet());
+            return c;
+        }
+
+        /**
+         * Copies an account's values if they're still shared with a published week, so they can be changed in place.
+         */
+        void ownAccount(int accountId) {
+            if (!sharedAccounts.remove(accountId)) {
+                return;
+            }
+            accountIdToStats.computeIfPresent(accountId, (k, v) -> v.copy());
+            accountIdToItemStats.computeIfPresent(accountId, (k, v) -> v.copy());
+            accountIdToHourlyProfits.computeIfPresent(accountId, (k, v) -> v.clone());
+            accountIdToFlips.computeIfPresent(accountId, (k, v) -> v.copy());
+        }
 
         void addFlip(FlipV2 flip) {
             int accountId = flip.getAccountId();
+            ownAccount(accountId);
             allStats.addFlip(flip);
             accountIdToStats.computeIfAbsent(accountId, (k) -> new Stats()).addFlip(flip);
-            List<FlipV2> flips = accountIdToFlips.computeIfAbsent(accountId, (k) -> new ArrayList<>());
-            int i = bisect(flips.size(), closedTimeCmp(flips, flip.getId(), flip.getClosedTime()));
-            flips.add(-i -1, flip);
+            accountIdToItemStats.computeIfAbsent(accountId, (k) -> new ItemStats()).addFlip(flip);
+            addHourlyProfit(flip, 1);
+            if (flip.getItemName() != null) {
+                itemNames.putIfAbsent(flip.getItemId(), flip.getItemName());
+            }
+            accountIdToFlips.computeIfAbsent(accountId, FlipColumns::new).insert(flip);
         }
 
         FlipV2 removeFlip(UUID id, int closeTime, int accountId) {
-            List<FlipV2> flips = accountIdToFlips.get(accountId); // Use get, not computeIfAbsent
+            ownAccount(accountId);
+            FlipColumns flips = accountIdToFlips.get(accountId);
             if (flips == null) return null; // If no flips for account, nothing to remove
 
-            int i = bisect(flips.size(), closedTimeCmp(flips, id, closeTime));
-            if (i < 0 || i >= flips.size() || !flips.get(i).getId().equals(id)) { // Ensure found flip matches ID
-                return null; // Flip not found or ID mismatch
+            int row = flips.find(id, closeTime);
+            if (row < 0) {
+                return null;
             }
-            FlipV2 flip = flips.get(i);
+            FlipV2 flip = flips.remove(row, itemNames);
             allStats.subtractFlip(flip);
-            flips.remove(i);
             Stats accStats = accountIdToStats.get(accountId);
             if (accStats != null) accStats.subtractFlip(flip); // Check if stats exist before subtracting
+            ItemStats accItemStats = accountIdToItemStats.get(accountId);
+            if (accItemStats != null) accItemStats.subtractFlip(flip);
+            addHourlyProfit(flip, -1);
             return flip;
         }
 
-        public List<FlipV2> flipsAfterForAccount(int time, int accountId) {
+        void addHourlyProfit(FlipV2 flip, int sign) {
+            long[] hourly = accountIdToHourlyProfits.computeIfAbsent(flip.getAccountId(), (k) -> new long[ProfitCurve.HOURS_PER_WEEK]);
+            hourly[(flip.getClosedTime() - weekStart) / ProfitCurve.HOUR_SECS] += sign * flip.getProfit();
+        }
+
+        /**
+         * Adds the hourly profits of one account, or of all of them if accountId is null, to hourly.
+         */
+        void addHourlyProfits(long[] hourly, Integer accountId) {
+            for (Map.Entry<Integer, long[]> e : accountIdToHourlyProfits.entrySet()) {
+                if (accountId != null && accountId != e.getKey().intValue()) {
+                    continue;
+                }
+                long[] accountHourly = e.getValue();
+                for (int h = 0; h < hourly.length; h++) {
+                    hourly[h] += accountHourly[h];
+                }
+            }
+        }
+
+        /**
+         * Returns the first row of the account's flips closed after time, or the row count if there are none.
+         */
+        private int firstRowAfter(FlipColumns flips, int time) {
             if (weekEnd <= time) {
-                return Collections.emptyList();
+                return flips.size();
+            }
+            return time <= weekStart ? 0 : flips.firstClosedAfter(time);
+        }
+
+        void addStatsAfterForAccount(Stats stats, int time, int accountId) {
+            FlipColumns flips = accountIdToFlips.get(accountId);
+            if (flips != null) {
+                flips.addStats(stats, firstRowAfter(flips, time));
+            }
+        }
+
+        void addStatsAfter(Stats stats, int time) {
+            for (FlipColumns flips : accountIdToFlips.values()) {
+                flips.addStats(stats, firstRowAfter(flips, time));
+            }
+        }
+
+        /**
+         * Adds the item stats of the flips closed after time, of one account or of all of them if accountId is null.
+         * A week that's wholly after time adds its kept item stats, otherwise the rows after time are summed.
+         */
+        void addItemStatsAfter(ItemStats stats, int time, Integer accountId) {
+            for (Map.Entry<Integer, FlipColumns> e : accountIdToFlips.entrySet()) {
+                if (accountId != null && accountId != e.getKey().intValue()) {
+                    continue;
+                }
+                if (time <= weekStart) {
+                    stats.add(accountIdToItemStats.get(e.getKey()));
+                } else {
+                    e.getValue().addItemStats(stats, firstRowAfter(e.getValue(), time));
+                }
+            }
+        }
+
+        /**
+         * Returns the number of flips closed after time, of one account or of all of them if accountId is null.
+         */
+        int countAfter(int time, Integer accountId) {
+            if (accountId != null) {
+                FlipColumns flips = accountIdToFlips.get(accountId);
+                return flips == null ? 0 : flips.size() - firstRowAfter(flips, time);
             }
-            List<FlipV2> flips = accountIdToFlips.getOrDefault(accountId, Collections.emptyList()); // Use getOrDefault
             if (time <= weekStart) {
-                return flips;
+                return allStats.flipsMade;
             }
-            int cut = -bisect(flips.size(), closedTimeCmp(flips, FlipV2.MAX_UUID, time)) - 1;
-            if (cut < 0 || cut > flips.size()) return Collections.emptyList(); // Bounds check for subList
-            return flips.subList(cut, flips.size());
+            int n = 0;
+            for (FlipColumns flips : accountIdToFlips.values()) {
+                n += flips.size() - firstRowAfter(flips, time);
+            }
+            return n;
         }
 
-        public List<FlipV2> flipsAfter(int time, boolean requireSorted) {
-            if (weekEnd <= time) {
-                return Collections.emptyList();
+        /**
+         * Adds the flips closed after time to page newest first, skipping the newest skip of them and stopping once
+         * the page holds pageSize flips. With a null accountId the accounts' flips are merged rather than sorted, so
+         * only the flips that end up on the page are ever materialized.
+         */
+        void addNewestFirst(int time, Integer accountId, int skip, int pageSize, List<FlipV2> page) {
+            if (accountId != null) {
+                FlipColumns flips = accountIdToFlips.get(accountId);
+                if (flips != null) {
+                    flips.addNewestFirst(firstRowAfter(flips, time), skip, pageSize, itemNames, page);
+                }
+                return;
             }
-            List<FlipV2> combinedFlips = new ArrayList<>(allStats.flipsMade);
-            accountIdToFlips.keySet().forEach(i -> combinedFlips.addAll(flipsAfterForAccount(time, i)));
-            if (requireSorted) {
-                combinedFlips.sort(Comparator.comparing(FlipV2::getClosedTime).thenComparing(FlipV2::getId));
+            List<FlipColumns> columns = new ArrayList<>(accountIdToFlips.values());
+            int[] from = new int[columns.size()];
+            for (int i = 0; i < from.length; i++) {
+                from[i] = firstRowAfter(columns.get(i), time);
             }
-            return combinedFlips;
+            FlipColumns.mergeNewestFirst(columns, from, skip, pageSize, itemNames, page);
         }
 
         @Override
@@ -325,13 +1016,6 @@ public class FlipManager {
         }
     }
 
-    private Function<Integer, Integer> closedTimeCmp(List<FlipV2> flips, UUID id, int time) {
-        return (a) -> {
-            int c = Integer.compare(flips.get(a).getClosedTime(), time);
-            return c != 0 ? c : id.compareTo(flips.get(a).getId());
-        };
-    }
-
     private int bisect(int size, Function<Integer, Integer> cmpFunc) {
         int high = size -1;
         int low = 0;
@@ -0,0 +1,102 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.util.GeTax;
+import lombok.RequiredArgsConstructor;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Turns transactions into flips locally, replacing the copilot server's profit tracking. Each (account, item) has at
+ * most one open flip (the one FlipManager tracks as the last open flip). Buys add to it and sells close quantity
+ * against its average buy price, so a flip is an average cost position that closes once everything bought has been
+ * sold. Sells of items we have no open flip for weren't bought through the GE while tracked and are ignored.
+ * <p>
+ * Flips already merged into the FlipManager are never mutated, an updated copy is produced instead, so the
+ * manager can subtract the old version's stats.
+ */
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class FlipMatcher {
+
+    // dependencies
+    private final FlipManager flipManager;
+    private final WikiPriceManager wikiPriceManager;
+
+    /**
+     * Matches a batch of transactions, in order, and returns the new or updated flips. A flip touched by several
+     * transactions of the batch is only returned once, in its final state.
+     */
+    public List<FlipV2> match(List<Transaction> transactions, String displayName) {
+        int accountId = flipManager.getOrAssignAccountId(displayName);
+        Map<Integer, FlipV2> working = new HashMap<>();
+        Map<UUID, FlipV2> changed = new LinkedHashMap<>();
+        for (Transaction t : transactions) {
+            if (t.getQuantity() <= 0) {
+                continue;
+            }
+            FlipV2 open = working.containsKey(t.getItemId())
+                    ? working.get(t.getItemId())
+                    : flipManager.getOpenFlip(accountId, t.getItemId());
+            FlipV2 updated;
+            if (OfferStatus.BUY.equals(t.getType())) {
+                updated = open == null ? newFlip(t, accountId, displayName) : open.copy();
+                updated.setOpenedQuantity(updated.getOpenedQuantity() + t.getQuantity());
+                updated.setSpent(updated.getSpent() + t.getAmountSpent());
+            } else if (OfferStatus.SELL.equals(t.getType()) && open != null) {
+                updated = open.copy();
+                applySell(updated, t);
+            } else {
+                continue;
+            }
+            if (updated.getItemName() == null) {
+                updated.setItemName(itemName(t.getItemId()));
+            }
+            // profit is what we received for the closed quantity less its share of the average cost
+            long costOfClosed = updated.getSpent() * updated.getClosedQuantity() / updated.getOpenedQuantity();
+            updated.setProfit(updated.getReceivedPostTax() - costOfClosed);
+            updated.setClosedTime((int) t.getTimestamp().getEpochSecond());
+            updated.setClosed(updated.getClosedQuantity() >= updated.getOpenedQuantity());
+            // a closed flip is done with, the next buy of the item opens a new one
+            working.put(t.getItemId(), updated.isClosed() ? null : updated);
+            changed.put(updated.getId(), updated);
+        }
+        return new ArrayList<>(changed.values());
+    }
+
+    private static FlipV2 newFlip(Transaction t, int accountId, String displayName) {
+        FlipV2 flip = new FlipV2();
+        flip.setId(UUID.randomUUID());
+        flip.setAccountId(accountId);
+        flip.setAccountDisplayName(displayName);
+        flip.setItemId(t.getItemId());
+        flip.setOpenedTime((int) t.getTimestamp().getEpochSecond());
+        return flip;
+    }
+
+    private static void applySell(FlipV2 flip, Transaction t) {
+        int quantity = Math.min(t.getQuantity(), flip.getOpenedQuantity() - flip.getClosedQuantity());
+        if (quantity <= 0) {
+            return;
+        }
+        // the tax comes from the average price, but what was received is the actual gp of the fill, which the floored
+        // average under-reports when it filled at several prices
+        int price = t.getAmountSpent() / t.getQuantity();
+        long tax = (long) (price - GeTax.getPostTaxPrice(t.getItemId(), price)) * quantity;
+        long received = (long) t.getAmountSpent() * quantity / t.getQuantity();
+        flip.setClosedQuantity(flip.getClosedQuantity() + quantity);
+        flip.setReceivedPostTax(flip.getReceivedPostTax() + received - tax);
+        flip.setTaxPaid(flip.getTaxPaid() + tax);
+    }
+
+    private String itemName(int itemId) {
+        WikiItemStats stats = wikiPriceManager.getSnapshot().getPrices().get(itemId);
+        return stats == null ? null : stats.getName();
+    }
+}
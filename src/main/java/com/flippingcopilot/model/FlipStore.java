@@ -0,0 +1,402 @@
+package com.flippingcopilot.model;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Local persistence for the FlipManager: a snapshot of its weekly aggregates plus append-only logs of the flips merged
+ * since. Logs are numbered by generation. Taking a snapshot rolls the generation, so the snapshot covers every log
+ * below its generation and those logs can be deleted once it's on disk. Startup reads the snapshot and only replays the
+ * logs at or above its generation, so it doesn't scale with the size of the whole history. Both are read onto the
+ * heap rather than mapped, as Windows refuses to truncate or replace a file while a mapping of it is still alive.
+ * <p>
+ * Once flips are merged the transactions they came from are acked and dropped from the transaction journal, so the
+ * logs are the only local copy of those flips: append forces the log to disk before it returns, which is before the
+ * ack is queued. Replaying a flip twice is harmless since merging is keyed by flip id.
+ */
+@Slf4j
+public class FlipStore {
+
+    private static final int MAGIC = 0x46434653;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 12;
+    private static final String SNAPSHOT_FILE = "flips.snapshot";
+    private static final String SNAPSHOT_TMP_FILE_TEMPLATE = SNAPSHOT_FILE + ".%d.tmp";
+    private static final String BAD_FILE_SUFFIX = ".bad";
+    private static final String LOG_FILE_TEMPLATE = "flips_%d.log";
+    private static final Pattern LOG_FILE_PATTERN = Pattern.compile("flips_(\\d+)\\.log");
+
+    public interface SnapshotReader {
+        void read(ByteBuffer content);
+    }
+
+    private final File directory;
+    // guards replacing the snapshot file, separate from this so appends don't wait on a snapshot's fsync
+    private final Object snapshotLock = new Object();
+    private boolean opened = false;
+    private boolean loaded = false;
+    private int generation = 0;
+    private int recordsSinceSnapshot = 0;
+    private FileChannel logChannel;
+
+    public FlipStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Feeds the snapshot (if there is a valid one) to the reader and then every logged flip after it to replay. A
+     * corrupt snapshot or a log that can't be replayed is moved aside so later snapshots can't delete it, and the rest
+     * are still loaded. Snapshots can only be taken once a load has completed, as one taken over a partial load would
+     * delete logs that were never replayed.
+     */
+    public synchronized void load(SnapshotReader reader, Consumer<FlipV2> replay, Map<Integer, String> itemNames) throws IOException {
+        closeLog();
+        loaded = false;
+        int snapshotGeneration = 0;
+        File snapshotFile = new File(directory, SNAPSHOT_FILE);
+        if (snapshotFile.exists()) {
+            ByteBuffer b;
+            try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+                b = readFully(channel);
+            }
+            if (isValidSnapshot(b)) {
+                snapshotGeneration = b.getInt(8);
+                ByteBuffer content = b.duplicate();
+                content.position(HEADER_BYTES).limit(b.limit() - 4);
+                reader.read(content.slice());
+            } else {
+                log.warn("ignoring corrupt flips snapshot {}", snapshotFile);
+                moveAside(snapshotFile);
+            }
+        }
+        generation = snapshotGeneration;
+        recordsSinceSnapshot = 0;
+        for (int logGeneration : logGenerations()) {
+            if (logGeneration < snapshotGeneration) {
+                continue;
+            }
+            generation = Math.max(generation, logGeneration);
+            File file = logFile(logGeneration);
+            try {
+                recordsSinceSnapshot += replayLog(file, replay, itemNames);
+            } catch (IOException | RuntimeException e) {
+                log.error("error replaying flips log {}", file, e);
+                moveAside(file);
+            }
+        }
+        opened = true;
+        loaded = true;
+    }
+
+    /**
+     * Appends the flips to the current generation's log and forces it to disk, so the caller may ack the transactions
+     * they were matched from once this returns.
+     */
+    public synchronized void append(List<FlipV2> flips) throws IOException {
+        if (flips.isEmpty()) {
+            return;
+        }
+        ensureOpen();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(flips.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (FlipV2 flip : flips) {
+            byte[] name = nameBytes(flip);
+            byte[] displayName = displayNameBytes(flip);
+            out.writeInt(flipBytes(name, displayName));
+            writeFlip(out, flip, name, displayName);
+        }
+        ByteBuffer b = ByteBuffer.wrap(bytes.toByteArray());
+        while (b.hasRemaining()) {
+            logChannel.write(b);
+        }
+        logChannel.force(false);
+        recordsSinceSnapshot += flips.size();
+    }
+
+    public synchronized int getRecordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    /**
+     * Starts a new log generation and returns it. Must be called while the state the snapshot is taken from is locked,
+     * so that every flip merged after the snapshot lands in the new generation's log.
+     */
+    public synchronized int rollGeneration() throws IOException {
+        if (!loaded) {
+            throw new IOException("flips haven't been loaded, a snapshot now could delete logs that weren't replayed");
+        }
+        ensureOpen();
+        closeLog();
+        generation++;
+        recordsSinceSnapshot = 0;
+        return generation;
+    }
+
+    /**
+     * Atomically replaces the snapshot and deletes the logs it covers. Writes are serialized and each goes through its
+     * own temporary file, so a snapshot taken on the executor and one taken at shutdown can't interleave, and a write
+     * that finds a snapshot of the same or a later generation already on disk is dropped rather than going back in time.
+     */
+    public void writeSnapshot(int snapshotGeneration, byte[] content) throws IOException {
+        synchronized (snapshotLock) {
+            File snapshotFile = new File(directory, SNAPSHOT_FILE);
+            int existingGeneration = readSnapshotGeneration(snapshotFile);
+            if (existingGeneration >= snapshotGeneration) {
+                log.debug("skipping flips snapshot {} as snapshot {} is already on disk", snapshotGeneration, existingGeneration);
+                return;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            File tmp = new File(directory, String.format(SNAPSHOT_TMP_FILE_TEMPLATE, snapshotGeneration));
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(fos)) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshotGeneration);
+                out.write(content);
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        synchronized (this) {
+            for (int logGeneration : logGenerations()) {
+                if (logGeneration < snapshotGeneration && !logFile(logGeneration).delete()) {
+                    log.warn("failed to delete flips log {}", logGeneration);
+                }
+            }
+        }
+    }
+
+    public synchronized void close() {
+        closeLog();
+    }
+
+    /**
+     * Encodes a flip for a snapshot. The display name isn't included as the snapshot holds the display name mapping.
+     */
+    public static void writeFlip(DataOutputStream out, FlipV2 flip) throws IOException {
+        writeFlip(out, flip, nameBytes(flip), new byte[0]);
+    }
+
+    private static void writeFlip(DataOutputStream out, FlipV2 flip, byte[] name, byte[] displayName) throws IOException {
+        out.writeLong(flip.getId().getMostSignificantBits());
+        out.writeLong(flip.getId().getLeastSignificantBits());
+        out.writeInt(flip.getAccountId());
+        out.writeInt(flip.getItemId());
+        out.writeInt(flip.getOpenedTime());
+        out.writeInt(flip.getOpenedQuantity());
+        out.writeLong(flip.getSpent());
+        out.writeInt(flip.getClosedTime());
+        out.writeInt(flip.getClosedQuantity());
+        out.writeLong(flip.getReceivedPostTax());
+        out.writeLong(flip.getProfit());
+        out.writeLong(flip.getTaxPaid());
+        out.writeBoolean(flip.isClosed());
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeShort(displayName.length);
+        out.write(displayName);
+    }
+
+    /**
+     * Decodes a flip written by writeFlip. Item names are shared between flips of the same item through itemNames so
+     * a large history doesn't hold a copy of the name per flip. The account display name is only set on flips that
+     * were logged, so a replayed log can restore the display name to account id mapping.
+     */
+    public static FlipV2 readFlip(ByteBuffer b, Map<Integer, String> itemNames) {
+        FlipV2 flip = new FlipV2();
+        flip.setId(new UUID(b.getLong(), b.getLong()));
+        flip.setAccountId(b.getInt());
+        flip.setItemId(b.getInt());
+        flip.setOpenedTime(b.getInt());
+        flip.setOpenedQuantity(b.getInt());
+        flip.setSpent(b.getLong());
+        flip.setClosedTime(b.getInt());
+        flip.setClosedQuantity(b.getInt());
+        flip.setReceivedPostTax(b.getLong());
+        flip.setProfit(b.getLong());
+        flip.setTaxPaid(b.getLong());
+        flip.setClosed(b.get() != 0);
+        int nameLength = b.getShort() & 0xFFFF;
+        String name = itemNames.get(flip.getItemId());
+        if (name == null && nameLength > 0) {
+            byte[] bytes = new byte[nameLength];
+            b.get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            itemNames.put(flip.getItemId(), name);
+        } else {
+            b.position(b.position() + nameLength);
+        }
+        flip.setItemName(name);
+        int displayNameLength = b.getShort() & 0xFFFF;
+        if (displayNameLength > 0) {
+            byte[] bytes = new byte[displayNameLength];
+            b.get(bytes);
+            flip.setAccountDisplayName(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return flip;
+    }
+
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int replayLog(File file, Consumer<FlipV2> replay, Map<Integer, String> itemNames) throws IOException {
+        int n = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = readFully(channel);
+            while (b.remaining() >= 4) {
+                int length = b.getInt(b.position());
+                if (length <= 0 || b.remaining() - 4 < length) {
+                    break;
+                }
+                b.position(b.position() + 4);
+                replay.accept(readFlip(b, itemNames));
+                n++;
+            }
+            if (b.hasRemaining()) {
+                // a record torn by a crash mid append, drop it so new appends start on a record boundary
+                log.warn("truncating {} trailing bytes of flips log {}", b.remaining(), file);
+                channel.truncate(b.position());
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Renames a file we couldn't read so it's kept for recovery but no longer matches the snapshot or log names.
+     */
+    private static void moveAside(File file) throws IOException {
+        File aside = new File(file.getPath() + BAD_FILE_SUFFIX);
+        Files.move(file.toPath(), aside.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log.warn("moved unreadable flips file {} to {}", file, aside);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("flips file of " + size + " bytes is too large to read");
+        }
+        ByteBuffer b = ByteBuffer.allocate((int) size);
+        while (b.hasRemaining()) {
+            if (channel.read(b, b.position()) < 0) {
+                break;
+            }
+        }
+        b.flip();
+        return b;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!opened) {
+            // appending before load, carry on from whatever generation is on disk
+            generation = readSnapshotGeneration(new File(directory, SNAPSHOT_FILE));
+            for (int logGeneration : logGenerations()) {
+                generation = Math.max(generation, logGeneration);
+            }
+            opened = true;
+        }
+        if (logChannel == null) {
+            logChannel = FileChannel.open(logFile(generation).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private void closeLog() {
+        if (logChannel != null) {
+            try {
+                logChannel.close();
+            } catch (IOException e) {
+                log.warn("error closing flips log", e);
+            }
+            logChannel = null;
+        }
+    }
+
+    /**
+     * The generation in the header of the snapshot file, or 0 if there isn't one.
+     */
+    private static int readSnapshotGeneration(File snapshotFile) throws IOException {
+        if (!snapshotFile.exists()) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            if (header.position() == HEADER_BYTES && header.getInt(0) == MAGIC && header.getInt(4) == VERSION) {
+                return header.getInt(8);
+            }
+        }
+        return 0;
+    }
+
+    private boolean isValidSnapshot(ByteBuffer b) {
+        if (b.limit() < HEADER_BYTES + 4 || b.getInt(0) != MAGIC || b.getInt(4) != VERSION) {
+            return false;
+        }
+        ByteBuffer content = b.duplicate();
+        content.position(HEADER_BYTES).limit(b.limit() - 4);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue() == b.getInt(b.limit() - 4);
+    }
+
+    private List<Integer> logGenerations() {
+        List<Integer> generations = new ArrayList<>();
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                Matcher m = LOG_FILE_PATTERN.matcher(name);
+                if (m.matches()) {
+                    generations.add(Integer.parseInt(m.group(1)));
+                }
+            }
+        }
+        generations.sort(Integer::compare);
+        return generations;
+    }
+
+    private File logFile(int logGeneration) {
+        return new File(directory, String.format(LOG_FILE_TEMPLATE, logGeneration));
+    }
+
+    private static byte[] nameBytes(FlipV2 flip) {
+        return flip.getItemName() == null ? new byte[0] : flip.getItemName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] displayNameBytes(FlipV2 flip) {
+        return flip.getAccountDisplayName() == null ? new byte[0] : flip.getAccountDisplayName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int flipBytes(byte[] name, byte[] displayName) {
+        return 16 + 4 * 4 + 8 + 4 * 2 + 8 * 3 + 1 + 2 + name.length + 2 + displayName.length;
+    }
+}
@@ -53,6 +53,25 @@ public class FlipV2 {
 
     private String accountDisplayName;
 
+    public FlipV2 copy() {
+        FlipV2 c = new FlipV2();
+        c.id = id;
+        c.accountId = accountId;
+        c.itemId = itemId;
+        c.itemName = itemName;
+        c.openedTime = openedTime;
+        c.openedQuantity = openedQuantity;
+        c.spent = spent;
+        c.closedTime = closedTime;
+        c.closedQuantity = closedQuantity;
+        c.receivedPostTax = receivedPostTax;
+        c.profit = profit;
+        c.taxPaid = taxPaid;
+        c.isClosed = isClosed;
+        c.accountDisplayName = accountDisplayName;
+        return c;
+    }
+
     public long calculateProfit(Transaction transaction) {
         long amountToClose = Math.min(openedQuantity - closedQuantity, transaction.getQuantity());
         if(amountToClose <= 0 ){
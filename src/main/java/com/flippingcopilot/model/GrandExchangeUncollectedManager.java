@@ -1,6 +1,5 @@
 package com.flippingcopilot.model;
 
-import com.flippingcopilot.util.MutableReference;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import lombok.Getter;
@@ -23,62 +22,65 @@ public class GrandExchangeUncollectedManager {
     // stated
     private int lastUncollectedAddedTick = -1;
     private int lastClearedTick = -1;
+    // bumped on every change to the uncollected items so readers can tell when to reload them
+    private long generation;
     private final Map<Integer, Long> lastClearedUncollected = new HashMap<>();
     private final List<Integer> lastClearedSlots = new ArrayList<>();
-    // accountId -> [slot -> [itemID -> quantity]]
-    private final Map<Long, Map<Integer, Map<Integer, Long>>> uncollected = new HashMap<>();
+    // accountHash -> uncollected items of each slot
+    private final Map<Long, UncollectedSlots> uncollected = new HashMap<>();
 
+    /**
+     * Polled every game tick, so it allocates nothing.
+     */
     public synchronized boolean HasUncollected(Long accountHash) {
-        Map<Integer, Map<Integer, Long>> slotToUncollected = this.uncollected.computeIfAbsent(accountHash, (k) -> new HashMap<>());
-        MutableReference<Boolean> hasUncollected = new MutableReference<>(false);
-        slotToUncollected.forEach((slot, itemToQty) -> {
-            itemToQty.forEach((i, q) -> {
-                if(q > 0) {
-                    log.debug("{} slot {} item {} uncollected {}", accountHash, slot, i, q);
-                    hasUncollected.setValue(true);
-                }
-            });
-        });
-        return hasUncollected.getValue();
+        UncollectedSlots slots = uncollected.get(accountHash);
+        if (slots == null) {
+            return false;
+        }
+        int slot = slots.findUncollectedSlot();
+        if (slot != -1) {
+            log.debug("{} slot {} has uncollected items", accountHash, slot);
+            return true;
+        }
+        return false;
     }
 
     public synchronized Map<Integer, Long> loadAllUncollected(Long accountHash) {
-        Map<Integer, Map<Integer, Long>> slotToUncollected = this.uncollected.computeIfAbsent(accountHash, (k) -> new HashMap<>());
         Map<Integer, Long> itemIdToQuantity = new HashMap<>();
-        slotToUncollected.values().forEach(itemIdToQty -> itemIdToQty.forEach((k, v) -> itemIdToQuantity.merge(k, v, Long::sum)));
+        UncollectedSlots slots = uncollected.get(accountHash);
+        if (slots != null) {
+            slots.addAllTo(itemIdToQuantity);
+        }
         return itemIdToQuantity;
     }
 
-    public synchronized Map<Integer, Long> loadSlotUncollected(Long accountHash, Integer slot) {
-        Map<Integer, Map<Integer, Long>> slotToUncollected = this.uncollected.computeIfAbsent(accountHash, (k) -> new HashMap<>());
-        return slotToUncollected.computeIfAbsent(slot, (k) -> new HashMap<>());
-    }
-
     public synchronized void addUncollected(Long accountHash, Integer slot, int itemId, long quantity, long gp) {
         lastUncollectedAddedTick = client.getTickCount();
-        Map<Integer, Map<Integer, Long>> slotToUncollected = this.uncollected.computeIfAbsent(accountHash, (k) -> new HashMap<>());
-        Map<Integer, Long> itemIdToQuantity = slotToUncollected.computeIfAbsent(slot, (k) -> new HashMap<>());
-        if (!itemIdToQuantity.containsKey(itemId)) {
+        generation++;
+        UncollectedSlots slots = uncollected.computeIfAbsent(accountHash, (k) -> new UncollectedSlots());
+        if (!slots.contains(slot, itemId)) {
            // must be a new offer
-           itemIdToQuantity.clear();
+           slots.clear(slot);
         }
         if(quantity > 0) {
             log.debug("tick {} added {} of item {} to uncollected", client.getTickCount(), itemId, quantity);
-            itemIdToQuantity.merge(itemId, quantity, Long::sum);
+            slots.add(slot, itemId, quantity);
         }
         if (gp > 0) {
             log.debug("tick {} added {} gp to uncollected", client.getTickCount(), gp);
-            itemIdToQuantity.merge(ItemID.COINS_995, gp, Long::sum);
+            slots.add(slot, ItemID.COINS_995, gp);
         }
     }
 
     public synchronized void ensureSlotClear(Long accountHash, int slot) {
-        Map<Integer, Long> slotUncollected = loadSlotUncollected(accountHash, slot);
-        slotUncollected.remove(slot);
+        UncollectedSlots slots = uncollected.get(accountHash);
+        if (slots != null) {
+            slots.clear(slot);
+        }
+        generation++;
     }
 
     public synchronized void clearSlotUncollected(Long accountHash, int slot) {
-        Map<Integer, Long> slotUncollected = loadSlotUncollected(accountHash, slot);
         int tick = client.getTickCount();
         if(tick != lastClearedTick) {
             lastClearedUncollected.clear();
@@ -86,14 +88,16 @@ public class GrandExchangeUncollectedManager {
             lastClearedTick = tick;
         }
         lastClearedSlots.add(slot);
-        slotUncollected.forEach((key, value) -> lastClearedUncollected.merge(key, value, Long::sum));
-        Map<Integer, Map<Integer, Long>> slotToUncollected = this.uncollected.computeIfAbsent(accountHash, (k) -> new HashMap<>());
-        slotToUncollected.remove(slot);
+        UncollectedSlots slots = uncollected.get(accountHash);
+        if (slots != null) {
+            slots.addSlotTo(slot, lastClearedUncollected);
+            slots.clear(slot);
+        }
+        generation++;
     }
 
     public synchronized void clearAllUncollected(Long accountHash) {
         log.debug("tick {} clearAllUncollected", client.getTickCount());
-        Map<Integer, Long> allUncollected = loadAllUncollected(accountHash);
         int tick = client.getTickCount();
         if(tick != lastClearedTick) {
             lastClearedUncollected.clear();
@@ -101,13 +105,16 @@ public class GrandExchangeUncollectedManager {
             lastClearedTick = tick;
         }
         lastClearedSlots.addAll(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7));
-        allUncollected.forEach((key, value) -> {
-            if(value > 0) {
+        UncollectedSlots slots = uncollected.remove(accountHash);
+        if (slots != null) {
+            Map<Integer, Long> allUncollected = new HashMap<>();
+            slots.addAllTo(allUncollected);
+            allUncollected.forEach((key, value) -> {
                 log.debug("tick {} cleared item {}, qty {}", client.getTickCount(), key, value);
                 lastClearedUncollected.merge(key, value, Long::sum);
-            }
-        });
-        uncollected.remove(accountHash);
+            });
+        }
+        generation++;
     }
 
     public synchronized int getLastClearedTick() {
@@ -122,6 +129,10 @@ public class GrandExchangeUncollectedManager {
         return lastClearedSlots;
     }
 
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
     public synchronized int getLastUncollectedAddedTick() {
         return lastUncollectedAddedTick;
     }
@@ -131,5 +142,6 @@ public class GrandExchangeUncollectedManager {
         lastClearedTick = -1;
         lastUncollectedAddedTick = -1;
         uncollected.clear();
+        generation++;
     }
 }
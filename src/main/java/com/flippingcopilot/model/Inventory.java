@@ -6,11 +6,19 @@ import static com.flippingcopilot.util.Constants.PLATINUM_TOKEN_VALUE;
 
 import java.util.ArrayList;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 
+/**
+ * The unnoted items of the inventory. Item totals are answered from an ItemAmounts index built on the first query after
+ * the list changes, so the gp and item checks of each suggestion don't rescan the stacks.
+ */
 public class Inventory extends ArrayList<RSItem> {
 
+    // rebuilt when modCount moves on or it's set to null by a change modCount doesn't count, replaced as a whole so a
+    // reader on another thread never sees it half built
+    private volatile ItemAmounts index;
+    private int indexModCount;
+
     boolean hasSufficientGp(Suggestion suggestion) {
         return !suggestion.getType().equals("buy")
                 || getTotalGp() >= (long) suggestion.getPrice() * suggestion.getQuantity();
@@ -26,16 +34,37 @@ public class Inventory extends ArrayList<RSItem> {
     }
 
     public long getTotalAmount(long itemId) {
-        long amount = 0;
-        for (RSItem item : this) {
-            if (item.getId() == itemId) {
-                amount += item.getAmount();
+        return index().get((int) itemId);
+    }
+
+    private ItemAmounts index() {
+        ItemAmounts i = index;
+        if (i == null || indexModCount != modCount) {
+            i = new ItemAmounts(size());
+            for (RSItem item : this) {
+                i.add(item.getId(), item.getAmount());
             }
+            indexModCount = modCount;
+            index = i;
         }
-        return amount;
+        return i;
+    }
+
+    @Override
+    public RSItem set(int index, RSItem element) {
+        this.index = null;
+        return super.set(index, element);
     }
 
 
+    Inventory copy() {
+        Inventory copy = new Inventory();
+        for (RSItem item : this) {
+            copy.add(new RSItem(item.id, item.amount));
+        }
+        return copy;
+    }
+
     public static Inventory fromRunelite(ItemContainer inventory, Client client) {
         Inventory unnotedItems = new Inventory();
         Item[] items = inventory.getItems();
@@ -49,14 +78,14 @@ public class Inventory extends ArrayList<RSItem> {
     }
 
     Map<Integer, Long> getItemAmounts() {
-        return stream().collect(Collectors.groupingBy(RSItem::getId,
-                        Collectors.summingLong(RSItem::getAmount)));
+        return index().toMap();
     }
 
     public void mergeItem(RSItem i) {
         for(RSItem item : this) {
             if(item.id == i.id) {
                 item.amount += i.amount;
+                index = null;
                 return;
             }
         }
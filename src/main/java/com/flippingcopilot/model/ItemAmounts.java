@@ -0,0 +1,90 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The total amount of each item in an Inventory, as an open addressing table of primitive item ids and amounts. An
+ * inventory has at most 28 stacks, so the table rarely grows past its initial 64 entries and looking up an item is
+ * usually a single probe.
+ */
+class ItemAmounts {
+
+    private static final int NO_ITEM = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 64;
+
+    private int[] itemIds;
+    private long[] amounts;
+    private int size;
+
+    ItemAmounts(int expectedItems) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedItems * 2) {
+            capacity *= 2;
+        }
+        init(capacity);
+    }
+
+    void add(int itemId, long amount) {
+        int i = indexOf(itemId);
+        if (itemIds[i] == itemId) {
+            amounts[i] += amount;
+            return;
+        }
+        itemIds[i] = itemId;
+        amounts[i] = amount;
+        size++;
+        if (size * 2 > itemIds.length) {
+            grow();
+        }
+    }
+
+    long get(int itemId) {
+        int i = indexOf(itemId);
+        return itemIds[i] == itemId ? amounts[i] : 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Map<Integer, Long> toMap() {
+        Map<Integer, Long> map = new HashMap<>(size * 2);
+        for (int i = 0; i < itemIds.length; i++) {
+            if (itemIds[i] != NO_ITEM) {
+                map.put(itemIds[i], amounts[i]);
+            }
+        }
+        return map;
+    }
+
+    // the slot holding itemId, or the empty slot it would go in
+    private int indexOf(int itemId) {
+        int mask = itemIds.length - 1;
+        int h = itemId * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (itemIds[i] != NO_ITEM && itemIds[i] != itemId) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void grow() {
+        int[] oldItemIds = itemIds;
+        long[] oldAmounts = amounts;
+        init(oldItemIds.length * 2);
+        for (int i = 0; i < oldItemIds.length; i++) {
+            if (oldItemIds[i] != NO_ITEM) {
+                add(oldItemIds[i], oldAmounts[i]);
+            }
+        }
+    }
+
+    private void init(int capacity) {
+        itemIds = new int[capacity];
+        amounts = new long[capacity];
+        size = 0;
+        Arrays.fill(itemIds, NO_ITEM);
+    }
+}
@@ -0,0 +1,29 @@
+package com.flippingcopilot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * The stats of one item's flips over an interval, as returned by FlipManager's top items queries.
+ */
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class ItemProfit {
+
+    public final int itemId;
+    public final String itemName;
+    public final long profit;
+    public final long gross;
+    public final long taxPaid;
+    public final int flipsMade;
+    public final long avgHoldSeconds;
+
+    public float calculateRoi() {
+        if (gross == 0){
+            return 0;
+        }
+        return (float) (((double) profit) / ((double) gross));
+    }
+}
@@ -0,0 +1,153 @@
+package com.flippingcopilot.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Stats keyed by item id, in an open addressing table of primitive arrays so a week of an account's flips doesn't
+ * need a boxed key and a Stats object per item. Items are never removed, an item whose flips were all subtracted just
+ * has a flip count of zero and is left out of top().
+ */
+class ItemStats {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int size;
+    private int[] itemIds;
+    private long[] profits;
+    private long[] gross;
+    private long[] taxesPaid;
+    private int[] flipsMade;
+    private long[] holdSeconds;
+
+    ItemStats() {
+        this(8);
+    }
+
+    private ItemStats(int capacity) {
+        allocate(capacity);
+    }
+
+    void addFlip(FlipV2 f) {
+        add(f.getItemId(), f.getProfit(), f.getSpent(), f.getTaxPaid(), 1, holdSeconds(f.getOpenedTime(), f.getClosedTime()));
+    }
+
+    void subtractFlip(FlipV2 f) {
+        add(f.getItemId(), -f.getProfit(), -f.getSpent(), -f.getTaxPaid(), -1, -holdSeconds(f.getOpenedTime(), f.getClosedTime()));
+    }
+
+    void add(ItemStats s) {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < s.itemIds.length; i++) {
+            if (s.itemIds[i] != EMPTY) {
+                add(s.itemIds[i], s.profits[i], s.gross[i], s.taxesPaid[i], s.flipsMade[i], s.holdSeconds[i]);
+            }
+        }
+    }
+
+    void add(int itemId, long profit, long spent, long taxPaid, int flips, long hold) {
+        int i = slot(itemId);
+        if (itemIds[i] == EMPTY) {
+            if ((size + 1) * 2 > itemIds.length) {
+                rehash(itemIds.length * 2);
+                i = slot(itemId);
+            }
+            itemIds[i] = itemId;
+            size++;
+        }
+        profits[i] += profit;
+        gross[i] += spent;
+        taxesPaid[i] += taxPaid;
+        flipsMade[i] += flips;
+        holdSeconds[i] += hold;
+    }
+
+    /**
+     * Returns the n items with the highest profit, highest first.
+     */
+    List<ItemProfit> top(int n, Map<Integer, String> itemNames) {
+        Comparator<Integer> byProfit = Comparator.comparingLong(i -> profits[i]);
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, n), byProfit);
+        for (int i = 0; i < itemIds.length; i++) {
+            if (itemIds[i] == EMPTY || flipsMade[i] <= 0) {
+                continue;
+            }
+            if (best.size() < n) {
+                best.add(i);
+            } else if (n > 0 && profits[i] > profits[best.peek()]) {
+                best.poll();
+                best.add(i);
+            }
+        }
+        List<ItemProfit> top = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int i = best.poll();
+            top.add(new ItemProfit(itemIds[i], itemNames.get(itemIds[i]), profits[i], gross[i], taxesPaid[i], flipsMade[i], holdSeconds[i] / flipsMade[i]));
+        }
+        top.sort(Comparator.comparingLong((ItemProfit p) -> p.profit).reversed());
+        return top;
+    }
+
+    ItemStats copy() {
+        ItemStats c = new ItemStats(1);
+        c.size = size;
+        c.itemIds = itemIds.clone();
+        c.profits = profits.clone();
+        c.gross = gross.clone();
+        c.taxesPaid = taxesPaid.clone();
+        c.flipsMade = flipsMade.clone();
+        c.holdSeconds = holdSeconds.clone();
+        return c;
+    }
+
+    static long holdSeconds(int openedTime, int closedTime) {
+        return Math.max(0, closedTime - openedTime);
+    }
+
+    private int slot(int itemId) {
+        int mask = itemIds.length - 1;
+        int h = itemId * 0x9E3779B9;
+        int i = (h ^ (h >>> 16)) & mask;
+        while (itemIds[i] != EMPTY && itemIds[i] != itemId) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void allocate(int capacity) {
+        itemIds = new int[capacity];
+        Arrays.fill(itemIds, EMPTY);
+        profits = new long[capacity];
+        gross = new long[capacity];
+        taxesPaid = new long[capacity];
+        flipsMade = new int[capacity];
+        holdSeconds = new long[capacity];
+    }
+
+    private void rehash(int capacity) {
+        int[] oldItemIds = itemIds;
+        long[] oldProfits = profits;
+        long[] oldGross = gross;
+        long[] oldTaxesPaid = taxesPaid;
+        int[] oldFlipsMade = flipsMade;
+        long[] oldHoldSeconds = holdSeconds;
+        allocate(capacity);
+        for (int j = 0; j < oldItemIds.length; j++) {
+            if (oldItemIds[j] != EMPTY) {
+                int i = slot(oldItemIds[j]);
+                itemIds[i] = oldItemIds[j];
+                profits[i] = oldProfits[j];
+                gross[i] = oldGross[j];
+                taxesPaid[i] = oldTaxesPaid[j];
+                flipsMade[i] = oldFlipsMade[j];
+                holdSeconds[i] = oldHoldSeconds[j];
+            }
+        }
+    }
+}
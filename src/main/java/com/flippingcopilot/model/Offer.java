@@ -67,6 +67,10 @@ public class Offer {
     }
 
 
+    Offer withStatus(OfferStatus status) {
+        return new Offer(status, itemId, price, amountTotal, amountSpent, amountTraded, itemsToCollect, gpToCollect, boxId, active, copilotPriceUsed);
+    }
+
     public static Offer fromRunelite(GrandExchangeOffer runeliteOffer, int slotId) {
         OfferStatus status = OfferStatus.fromRunelite(runeliteOffer.getState());
         boolean active = runeliteOffer.getState().equals(GrandExchangeOfferState.BUYING)
@@ -8,15 +8,15 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.Client;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ScheduledExecutorService;
 
 
 @Slf4j
@@ -24,11 +24,11 @@ import java.util.concurrent.ScheduledExecutorService;
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class OfferManager {
 
-    private static final String OFFER_FILE_TEMPLATE = "acc_%d_%d.json";
+    private static final String LEGACY_OFFER_FILE_TEMPLATE = "acc_%d_%d.json";
 
     // dependencies
     private final Gson gson;
-    private final ScheduledExecutorService executorService;
+    private final StateStore stateStore;
 
     // state
     @Getter
@@ -51,65 +51,52 @@ public class OfferManager {
     boolean offerJustPlaced = false;
 
     private final Map<Long, Map<Integer, SavedOffer>> cachedOffers = new HashMap<>();
-    private final Map<Long, Map<Integer, File>> files = new HashMap<>();
-    private final Map<Long, Map<Integer, SavedOffer>> lastSaved = new HashMap<>();
 
     public synchronized SavedOffer loadOffer(Long accountHash, Integer slot) {
         Map<Integer, SavedOffer> slotToOffer = cachedOffers.computeIfAbsent(accountHash, (k) -> new HashMap<>());
         return slotToOffer.computeIfAbsent(slot, (k) -> {
-            File file = getFile(accountHash, k);
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                return gson.fromJson(reader, SavedOffer.class);
-            } catch (FileNotFoundException ignored) {
-                return null;
-            } catch (JsonSyntaxException | JsonIOException | IOException e) {
-                log.warn("error loading saved offer json file {}", file, e);
-                return null;
-            }
+            SavedOffer offer = stateStore.loadOffer(accountHash, k);
+            return offer != null ? offer : migrateLegacyOffer(accountHash, k);
         });
     }
 
-    public synchronized void saveOffer(Long accountHash, Integer slot, SavedOffer offer) {
+    /**
+     * Makes offer the slot's latest, as later loadOffer calls see it, without writing it to disk. The caller writes it
+     * with writeOffer, which can happen on another thread.
+     */
+    public synchronized void cacheOffer(Long accountHash, Integer slot, SavedOffer offer) {
         Map<Integer, SavedOffer> slotToOffer = cachedOffers.computeIfAbsent(accountHash, (k) -> new HashMap<>());
         slotToOffer.put(slot, offer);
-        saveAsync(accountHash, slot);
     }
 
-    private void saveAsync(Long accountHash, Integer slot) {
-        executorService.submit(() -> save(accountHash, slot));
+    public void writeOffer(Long accountHash, Integer slot, SavedOffer offer) {
+        stateStore.saveOffer(accountHash, slot, offer);
     }
 
     public synchronized void saveAll() {
-        for(Long accountHash: cachedOffers.keySet()) {
-            for(Integer slot: cachedOffers.get(accountHash).keySet()) {
-                save(accountHash, slot);
-            }
-        }
+        stateStore.force();
     }
 
-    private void save(Long accountHash, Integer slot) {
-        File file = getFile(accountHash,slot);
-        synchronized (file) {
-            SavedOffer offer = loadOffer(accountHash, slot);
-            Map<Integer, SavedOffer> slotToLastSaved = lastSaved.computeIfAbsent(accountHash, (k)->new HashMap<>());
-            SavedOffer lastSaved = slotToLastSaved.get(slot);
-            if(!Objects.equals(offer, lastSaved)) {
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
-                    String json = gson.toJson(offer);
-                    writer.write(json);
-                    writer.newLine();
-                    slotToLastSaved.put(slot, offer);
-                } catch (IOException e) {
-                    log.warn("error saving offer json file {}", file, e);
-                    slotToLastSaved.put(slot, null);
-                }
-            }
+    /**
+     * Moves a slot's offer over from the json file each slot was saved to before the state file existed.
+     */
+    private SavedOffer migrateLegacyOffer(Long accountHash, Integer slot) {
+        File file = new File(Persistance.PARENT_DIRECTORY, String.format(LEGACY_OFFER_FILE_TEMPLATE, accountHash, slot));
+        if (!file.exists()) {
+            return null;
         }
-    }
-
-
-    private File getFile(Long accountHash, Integer slot) {
-        Map<Integer, File> slotToFile = files.computeIfAbsent(accountHash, (k) -> new HashMap<>());
-        return slotToFile.computeIfAbsent(slot, (k) -> new File(Persistance.PARENT_DIRECTORY, String.format(OFFER_FILE_TEMPLATE, accountHash, slot)));
+        SavedOffer offer = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            offer = gson.fromJson(reader, SavedOffer.class);
+        } catch (JsonSyntaxException | JsonIOException | IOException e) {
+            log.warn("error loading saved offer json file {}", file, e);
+        }
+        if (offer != null) {
+            stateStore.saveOffer(accountHash, slot, offer);
+        }
+        if (!file.delete()) {
+            log.warn("failed to delete migrated saved offer json file {}", file);
+        }
+        return offer;
     }
 }
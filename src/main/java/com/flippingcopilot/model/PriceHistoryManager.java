@@ -0,0 +1,183 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.Persistance;
+import com.flippingcopilot.ui.graph.model.Data;
+import com.flippingcopilot.util.WikiPriceFetcher;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a local history of the wiki 5m and 1h averages for all items in two PriceHistoryStores. Each run fetches the
+ * newest complete bucket of each interval and then backfills a few missing older ones, so the retained window fills
+ * up gradually without hammering the wiki. Each interval has its own share of the requests, so the hourly history
+ * fills alongside the 5m one rather than after it. Price graphs are then built straight from disk.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class PriceHistoryManager {
+
+    private static final String API_URL = "https://prices.runescape.wiki/api/v1/osrs";
+    private static final String USER_AGENT = "FlippingCopilot/1.0";
+    private static final String FIVE_MIN_FILE = "price_history_5m.bin";
+    private static final String HOUR_FILE = "price_history_1h.bin";
+    private static final int FIVE_MIN_SECONDS = 300;
+    private static final int HOUR_SECONDS = 3600;
+    // what the price graph shows: 5m buckets for its four day home view and 1h buckets for its month view
+    private static final int FIVE_MIN_CAPACITY = 4 * 24 * 12;
+    private static final int HOUR_CAPACITY = 30 * 24;
+    private static final int REQUESTS_PER_INTERVAL_PER_RUN = 3;
+    // an empty bucket this recent may just not be averaged yet, older ones are gaps the wiki will never fill
+    private static final int NOT_READY_BUCKETS = 2;
+    private static final long RUN_INTERVAL_SECONDS = 60;
+
+    // dependencies
+    private final OkHttpClient okHttpClient;
+    private final ScheduledExecutorService executorService;
+
+    @Setter(AccessLevel.PACKAGE)
+    private String apiUrl = API_URL;
+
+    // state
+    private OkHttpClient client;
+    private PriceHistoryStore fiveMinStore;
+    private PriceHistoryStore hourStore;
+    private ScheduledFuture<?> scheduled;
+
+    public synchronized void start() {
+        if (scheduled == null) {
+            scheduled = executorService.scheduleWithFixedDelay(this::run, 10, RUN_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        try {
+            if (fiveMinStore != null) {
+                fiveMinStore.close();
+            }
+            if (hourStore != null) {
+                hourStore.close();
+            }
+        } catch (IOException e) {
+            log.warn("error closing price history stores", e);
+        }
+        fiveMinStore = null;
+        hourStore = null;
+    }
+
+    private void run() {
+        try {
+            PriceHistoryStore fiveMin;
+            PriceHistoryStore hour;
+            synchronized (this) {
+                openStores(Persistance.directory);
+                fiveMin = fiveMinStore;
+                hour = hourStore;
+            }
+            int now = (int) Instant.now().getEpochSecond();
+            fillMissing(fiveMin, "/5m", now, REQUESTS_PER_INTERVAL_PER_RUN);
+            fillMissing(hour, "/1h", now, REQUESTS_PER_INTERVAL_PER_RUN);
+        } catch (IOException e) {
+            log.warn("error updating price history: {}", e.getMessage());
+        }
+    }
+
+    private void openStores(File directory) throws IOException {
+        if (fiveMinStore == null) {
+            fiveMinStore = PriceHistoryStore.open(new File(directory, FIVE_MIN_FILE), FIVE_MIN_SECONDS, FIVE_MIN_CAPACITY);
+        }
+        if (hourStore == null) {
+            hourStore = PriceHistoryStore.open(new File(directory, HOUR_FILE), HOUR_SECONDS, HOUR_CAPACITY);
+        }
+    }
+
+    /**
+     * Fetches up to maxRequests of the buckets missing from the store, newest first. Returns the number of requests
+     * made. An empty response for one of the newest buckets is asked for again next run, for an older one it's stored
+     * as an empty bucket so a gap in the wiki's history isn't requested forever.
+     */
+    int fillMissing(PriceHistoryStore store, String path, int now, int maxRequests) throws IOException {
+        int interval = store.getIntervalSeconds();
+        // the bucket starting one interval ago is the newest one the wiki has finished averaging
+        int newest = (now / interval - 1) * interval;
+        int requests = 0;
+        for (int k = 0; k < store.getCapacity() && requests < maxRequests; k++) {
+            int timestamp = newest - k * interval;
+            if (store.hasBucket(timestamp)) {
+                continue;
+            }
+            requests++;
+            WikiPriceBucket bucket = fetchBucket(path, timestamp);
+            if (bucket.size > 0 || k >= NOT_READY_BUCKETS) {
+                bucket.timestamp = timestamp;
+                store.write(bucket);
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Builds price graph data for an item from the local history and the latest wiki prices, or returns null if we
+     * haven't stored any history for it yet.
+     */
+    public Data buildGraphData(int itemId, String name, WikiItemStats latest) {
+        PriceHistorySeries fiveMinSeries = getFiveMinHistory(itemId);
+        PriceHistorySeries hourSeries = getHourHistory(itemId);
+        if (fiveMinSeries.size == 0 && hourSeries.size == 0) {
+            return null;
+        }
+        return Data.fromHistory(itemId, name, hourSeries, fiveMinSeries, latest);
+    }
+
+    public synchronized PriceHistorySeries getFiveMinHistory(int itemId) {
+        return fiveMinStore == null ? PriceHistorySeries.EMPTY : fiveMinStore.read(itemId);
+    }
+
+    public synchronized PriceHistorySeries getHourHistory(int itemId) {
+        return hourStore == null ? PriceHistorySeries.EMPTY : hourStore.read(itemId);
+    }
+
+    private WikiPriceBucket fetchBucket(String path, int timestamp) throws IOException {
+        Request request = new Request.Builder()
+                .url(apiUrl + path + "?timestamp=" + timestamp)
+                .header("User-Agent", USER_AGENT)
+                .build();
+        try (Response response = client().newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("wiki " + path + " responded with http status " + response.code());
+            }
+            try (InputStream in = response.body().byteStream()) {
+                return WikiPriceFetcher.parseBucket(in);
+            }
+        }
+    }
+
+    private OkHttpClient client() {
+        if (client == null) {
+            client = okHttpClient.newBuilder()
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .build();
+        }
+        return client;
+    }
+}
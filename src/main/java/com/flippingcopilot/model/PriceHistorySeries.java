@@ -0,0 +1,20 @@
+package com.flippingcopilot.model;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * The stored history of one item at one interval, oldest bucket first. Only buckets in which the item traded are
+ * included, a side without trades in the bucket has a 0 average price.
+ */
+@AllArgsConstructor
+public class PriceHistorySeries {
+
+    public static final PriceHistorySeries EMPTY = new PriceHistorySeries(0, new int[0], new int[0], new int[0], new int[0], new int[0]);
+
+    public final int size;
+    public final int[] times;
+    public final int[] avgHighs;
+    public final int[] avgLows;
+    public final int[] highVolumes;
+    public final int[] lowVolumes;
+}
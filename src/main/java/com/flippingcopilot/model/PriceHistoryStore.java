@@ -0,0 +1,276 @@
+package com.flippingcopilot.model;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A memory mapped ring of wiki timeseries buckets (/5m or /1h) for every item. The file holds one row per ring
+ * position, laid out time major, so writing a bucket fills a single contiguous row:
+ * <pre>
+ * header         magic, version, interval seconds, capacity, slot count, latest timestamp, row slots
+ * times          capacity ints, the bucket timestamp held at each ring position
+ * slot index     MAX_SLOTS ints, the item id occupying each slot
+ * rows           per ring position: avg high, avg low, high volume, low volume of each of row slots items
+ * </pre>
+ * A bucket's ring position is derived from its timestamp so writes and lookups never search. Items only get a slot
+ * once they've traded in a bucket we stored, and rows are widened a step at a time as items appear, so the file takes
+ * about capacity * items * 16 bytes rather than being sized for every item up front. Writes are left to the OS to
+ * flush and the mapping is only forced on close: the store is a cache of data the wiki can always give us again, so a
+ * file with a mismatched header, or one left mid widening by a crash, is simply reset.
+ */
+@Slf4j
+public class PriceHistoryStore implements Closeable {
+
+    private static final int MAGIC = 0x46435048;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_COUNT_POS = 16;
+    private static final int LATEST_TIMESTAMP_POS = 20;
+    private static final int ROW_SLOTS_POS = 24;
+    private static final int MAX_SLOTS = 16384;
+    private static final int SLOT_STEP = 512;
+    private static final int COLUMNS = 4;
+    private static final int AVG_HIGH = 0;
+    private static final int AVG_LOW = 1;
+    private static final int HIGH_VOLUME = 2;
+    private static final int LOW_VOLUME = 3;
+    private static final int ENTRY_BYTES = COLUMNS * 4;
+
+    @Getter
+    private final int intervalSeconds;
+    @Getter
+    private final int capacity;
+    private final FileChannel channel;
+    private final int indexOffset;
+    private final int rowsOffset;
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private int rowSlots;
+    private int slotCount;
+    private byte[] zeroRow;
+
+    private PriceHistoryStore(FileChannel channel, int intervalSeconds, int capacity) {
+        this.channel = channel;
+        this.intervalSeconds = intervalSeconds;
+        this.capacity = capacity;
+        this.indexOffset = HEADER_BYTES + capacity * 4;
+        this.rowsOffset = indexOffset + MAX_SLOTS * 4;
+    }
+
+    public static PriceHistoryStore open(File file, int intervalSeconds, int capacity) throws IOException {
+        if ((long) ENTRY_BYTES * capacity * MAX_SLOTS + HEADER_BYTES + (capacity + MAX_SLOTS) * 4L > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("price history capacity " + capacity + " is too large to map");
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            PriceHistoryStore store = new PriceHistoryStore(channel, intervalSeconds, capacity);
+            store.load();
+            return store;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        long existingBytes = channel.size();
+        boolean valid = false;
+        if (existingBytes >= rowsOffset) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            int storedRowSlots = header.getInt(ROW_SLOTS_POS);
+            valid = header.getInt(0) == MAGIC
+                    && header.getInt(4) == VERSION
+                    && header.getInt(8) == intervalSeconds
+                    && header.getInt(12) == capacity
+                    && storedRowSlots >= SLOT_STEP && storedRowSlots <= MAX_SLOTS
+                    && header.getInt(SLOT_COUNT_POS) <= storedRowSlots
+                    && existingBytes >= rowsOffset + (long) capacity * storedRowSlots * ENTRY_BYTES;
+            rowSlots = storedRowSlots;
+        }
+        if (!valid) {
+            if (existingBytes > 0) {
+                log.info("resetting price history store with an incompatible header");
+            }
+            channel.truncate(0);
+            rowSlots = SLOT_STEP;
+        }
+        map();
+        if (!valid) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, intervalSeconds);
+            buffer.putInt(12, capacity);
+            buffer.putInt(ROW_SLOTS_POS, rowSlots);
+            return;
+        }
+        slotCount = buffer.getInt(SLOT_COUNT_POS);
+        for (int slot = 0; slot < slotCount; slot++) {
+            slots.put(buffer.getInt(indexOffset + slot * 4), slot);
+        }
+    }
+
+    private void map() throws IOException {
+        // mapping beyond the end of the file grows it, the new region reads as zeros
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, rowsOffset + (long) capacity * rowSlots * ENTRY_BYTES);
+        zeroRow = new byte[rowSlots * ENTRY_BYTES];
+    }
+
+    public synchronized int latestTimestamp() {
+        return buffer.getInt(LATEST_TIMESTAMP_POS);
+    }
+
+    public synchronized boolean hasBucket(int timestamp) {
+        return buffer.getInt(timeOffset(position(timestamp))) == timestamp;
+    }
+
+    /**
+     * Writes a bucket into its ring position, replacing whatever bucket previously occupied it. Buckets older than the
+     * one already held at their position have fallen out of the retained window and are ignored.
+     */
+    public synchronized void write(WikiPriceBucket bucket) throws IOException {
+        int timestamp = bucket.timestamp - bucket.timestamp % intervalSeconds;
+        int pos = position(timestamp);
+        int previous = buffer.getInt(timeOffset(pos));
+        if (previous > timestamp) {
+            return;
+        }
+        if (previous != timestamp) {
+            // items absent from the new bucket mustn't show the values of the bucket it's replacing
+            buffer.position(rowOffset(pos));
+            buffer.put(zeroRow, 0, slotCount * ENTRY_BYTES);
+        }
+        int newItems = 0;
+        for (int i = 0; i < bucket.size; i++) {
+            if (!slots.containsKey(bucket.itemIds[i])) {
+                newItems++;
+            }
+        }
+        int neededSlots = Math.min(MAX_SLOTS, slotCount + newItems);
+        if (neededSlots > rowSlots) {
+            // widened once per bucket, however many items it adds
+            widenRows((neededSlots + SLOT_STEP - 1) / SLOT_STEP * SLOT_STEP);
+        }
+        for (int i = 0; i < bucket.size; i++) {
+            int slot = slotFor(bucket.itemIds[i]);
+            if (slot < 0) {
+                continue;
+            }
+            buffer.putInt(valueOffset(slot, AVG_HIGH, pos), bucket.avgHighs[i]);
+            buffer.putInt(valueOffset(slot, AVG_LOW, pos), bucket.avgLows[i]);
+            buffer.putInt(valueOffset(slot, HIGH_VOLUME, pos), bucket.highVolumes[i]);
+            buffer.putInt(valueOffset(slot, LOW_VOLUME, pos), bucket.lowVolumes[i]);
+        }
+        buffer.putInt(timeOffset(pos), timestamp);
+        if (timestamp > buffer.getInt(LATEST_TIMESTAMP_POS)) {
+            buffer.putInt(LATEST_TIMESTAMP_POS, timestamp);
+        }
+    }
+
+    /**
+     * Reads the retained history of an item, oldest bucket first. Buckets we never fetched or in which the item
+     * didn't trade are skipped.
+     */
+    public synchronized PriceHistorySeries read(int itemId) {
+        Integer slot = slots.get(itemId);
+        int latest = buffer.getInt(LATEST_TIMESTAMP_POS);
+        if (slot == null || latest == 0) {
+            return PriceHistorySeries.EMPTY;
+        }
+        int[] times = new int[capacity];
+        int[] avgHighs = new int[capacity];
+        int[] avgLows = new int[capacity];
+        int[] highVolumes = new int[capacity];
+        int[] lowVolumes = new int[capacity];
+        int n = 0;
+        for (int k = capacity - 1; k >= 0; k--) {
+            int timestamp = latest - k * intervalSeconds;
+            int pos = position(timestamp);
+            if (timestamp <= 0 || buffer.getInt(timeOffset(pos)) != timestamp) {
+                continue;
+            }
+            int avgHigh = buffer.getInt(valueOffset(slot, AVG_HIGH, pos));
+            int avgLow = buffer.getInt(valueOffset(slot, AVG_LOW, pos));
+            if (avgHigh == 0 && avgLow == 0) {
+                continue;
+            }
+            times[n] = timestamp;
+            avgHighs[n] = avgHigh;
+            avgLows[n] = avgLow;
+            highVolumes[n] = buffer.getInt(valueOffset(slot, HIGH_VOLUME, pos));
+            lowVolumes[n] = buffer.getInt(valueOffset(slot, LOW_VOLUME, pos));
+            n++;
+        }
+        return new PriceHistorySeries(n, times, avgHighs, avgLows, highVolumes, lowVolumes);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private int slotFor(int itemId) throws IOException {
+        Integer slot = slots.get(itemId);
+        if (slot != null) {
+            return slot;
+        }
+        if (slotCount == rowSlots) {
+            return -1;
+        }
+        int newSlot = slotCount++;
+        buffer.putInt(indexOffset + newSlot * 4, itemId);
+        buffer.putInt(SLOT_COUNT_POS, slotCount);
+        slots.put(itemId, newSlot);
+        return newSlot;
+    }
+
+    /**
+     * Moves every row to its offset at the new width, last row first: a row's new offset is never below its old one,
+     * so it can't overwrite a row that hasn't moved yet. The header's row width is cleared while rows are in motion so
+     * a crash part way through resets the store on open.
+     */
+    private void widenRows(int newRowSlots) throws IOException {
+        int oldRowBytes = rowSlots * ENTRY_BYTES;
+        buffer.putInt(ROW_SLOTS_POS, 0);
+        rowSlots = newRowSlots;
+        map();
+        byte[] row = new byte[oldRowBytes];
+        for (int pos = capacity - 1; pos > 0; pos--) {
+            buffer.position(rowsOffset + pos * oldRowBytes);
+            buffer.get(row);
+            buffer.position(rowOffset(pos));
+            buffer.put(row);
+            buffer.put(zeroRow, 0, zeroRow.length - oldRowBytes);
+        }
+        buffer.position(rowOffset(0) + oldRowBytes);
+        buffer.put(zeroRow, 0, zeroRow.length - oldRowBytes);
+        buffer.putInt(ROW_SLOTS_POS, rowSlots);
+    }
+
+    private int position(int timestamp) {
+        return (timestamp / intervalSeconds) % capacity;
+    }
+
+    private static int timeOffset(int pos) {
+        return HEADER_BYTES + pos * 4;
+    }
+
+    private int rowOffset(int pos) {
+        return rowsOffset + pos * rowSlots * ENTRY_BYTES;
+    }
+
+    private int valueOffset(int slot, int column, int pos) {
+        return rowOffset(pos) + slot * ENTRY_BYTES + column * 4;
+    }
+}
@@ -0,0 +1,42 @@
+package com.flippingcopilot.model;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * The cumulative profit of a range of hours, as returned by FlipManager's profit curve queries. profits[i] is the
+ * profit of the flips closed from the start of the curve up to the end of the hour starting at hourStarts[i].
+ */
+@AllArgsConstructor
+public class ProfitCurve {
+
+    static final int HOUR_SECS = 60 * 60;
+    static final int HOURS_PER_WEEK = 7 * 24;
+
+    public final int[] hourStarts;
+    public final long[] profits;
+
+    public int size() {
+        return hourStarts.length;
+    }
+
+    public long profit() {
+        return profits.length == 0 ? 0 : profits[profits.length - 1];
+    }
+
+    public long hourlyProfit() {
+        return profits.length == 0 ? 0 : profit() / profits.length;
+    }
+
+    /**
+     * Returns the largest fall of the cumulative profit from a peak to a later low, 0 if it never falls.
+     */
+    public long maxDrawdown() {
+        long peak = 0;
+        long maxDrawdown = 0;
+        for (long p : profits) {
+            peak = Math.max(peak, p);
+            maxDrawdown = Math.max(maxDrawdown, peak - p);
+        }
+        return maxDrawdown;
+    }
+}
@@ -9,42 +9,42 @@ import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledExecutorService;
 
 @Singleton
 @Slf4j
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class SessionManager {
 
-    public static final String SESSION_DATA_FILE_TEMPLATE = "%s_session_data.jsonl";
+    private static final String LEGACY_SESSION_DATA_FILE_TEMPLATE = "%s_session_data.jsonl";
 
     private final OsrsLoginManager osrsLoginManager;
-    private final ScheduledExecutorService executorService;
+    private final StateStore stateStore;
     private final Gson gson;
 
-    private final Map<String, SessionData> cachedSessionData =  new HashMap<>();
-    private final Map<String, File> displayNameToFile = new HashMap<>();
+    private final Map<Long, SessionData> cachedSessionData =  new HashMap<>();
 
     private Instant lastSessionUpdateTime;
 
     public synchronized SessionData getCachedSessionData() {
-        SessionData sd = getSessionData(osrsLoginManager.getPlayerDisplayName());
+        SessionData sd = getSessionData(osrsLoginManager.getAccountHash());
         return new SessionData(sd.startTime,  sd.durationMillis, sd.averageCash);
     }
 
     public synchronized void resetSession() {
-        String displayName = osrsLoginManager.getPlayerDisplayName();
-        SessionData sd = getSessionData(displayName);
+        long accountHash = osrsLoginManager.getAccountHash();
+        SessionData sd = getSessionData(accountHash);
         sd.startTime = (int) Instant.now().getEpochSecond();
         sd.averageCash = 0;
         sd.durationMillis = 0;
-        saveAsync(displayName);
+        stateStore.saveSession(accountHash, sd);
     }
 
     public synchronized boolean updateSessionStats(boolean currentlyFlipping, long cashStack) {
@@ -56,57 +56,50 @@ public class SessionManager {
             lastSessionUpdateTime = Instant.now();
             return false;
         } else {
-            SessionData sd = getSessionData(displayName);
+            long accountHash = osrsLoginManager.getAccountHash();
+            SessionData sd = getSessionData(accountHash);
             Instant now = Instant.now();
             long duration = Duration.between(lastSessionUpdateTime, now).toMillis();
             long newAverageCashStack = (cashStack * duration + sd.durationMillis * sd.averageCash) / (sd.durationMillis + duration);
             sd.durationMillis = sd.durationMillis + duration;
             lastSessionUpdateTime = now;
             sd.averageCash = newAverageCashStack;
-            saveAsync(displayName);
+            stateStore.saveSession(accountHash, sd);
             return true;
         }
     }
 
-    private void saveAsync(String displayName) {
-        executorService.submit(() -> {
-            File file = getFile(displayName);
-            synchronized (file) {
-                SessionData data = cachedSessionData.computeIfAbsent(displayName, this::load);
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
-                    String json = gson.toJson(data);
-                    writer.write(json);
-                    writer.newLine();
-                } catch (IOException e) {
-                    log.warn("error storing session data to file {}", file, e);
-                }
-            }
-        });
+    private SessionData load(long accountHash) {
+        SessionData sd = stateStore.loadSession(accountHash);
+        if (sd == null) {
+            sd = migrateLegacySession(osrsLoginManager.getPlayerDisplayName());
+            stateStore.saveSession(accountHash, sd);
+        }
+        return sd;
     }
 
-     private SessionData load(String displayName) {
-        File file = getFile(displayName);
-        if (!file.exists()) {
+    /**
+     * Reads the session from the json file it was saved to, per display name, before the state file existed.
+     */
+    private SessionData migrateLegacySession(String displayName) {
+        File file = new File(Persistance.PARENT_DIRECTORY, String.format(LEGACY_SESSION_DATA_FILE_TEMPLATE, Persistance.hashDisplayName(displayName)));
+        if (displayName == null || !file.exists()) {
             return new SessionData((int) Instant.now().getEpochSecond(), 0 ,0);
         }
+        SessionData sd = null;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            SessionData sd =  gson.fromJson(reader, SessionData.class);
-            if (sd != null) {
-                return sd;
-            }
+            sd =  gson.fromJson(reader, SessionData.class);
         } catch (JsonSyntaxException | JsonIOException | IOException e) {
             log.warn("error loading session data json file {}", file, e);
         }
-        return new SessionData((int) Instant.now().getEpochSecond(), 0 ,0);
-    }
-
-    private File getFile(String displayName) {
-        return displayNameToFile.computeIfAbsent(displayName,
-                (k) -> new File(Persistance.PARENT_DIRECTORY, String.format(SESSION_DATA_FILE_TEMPLATE, Persistance.hashDisplayName(displayName))));
+        if (!file.delete()) {
+            log.warn("failed to delete migrated session data json file {}", file);
+        }
+        return sd != null ? sd : new SessionData((int) Instant.now().getEpochSecond(), 0 ,0);
     }
 
-    private SessionData getSessionData(String displayName) {
-         return cachedSessionData.computeIfAbsent(displayName, this::load);
+    private SessionData getSessionData(long accountHash) {
+         return cachedSessionData.computeIfAbsent(accountHash, this::load);
     }
 
     public synchronized void reset() {
@@ -0,0 +1,263 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.Persistance;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.GrandExchangeOfferState;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The small pieces of state that change on every GE event or session tick, kept in memory mapped files with a fixed
+ * layout so an update is an in place write to one page rather than a file rewrite. Each account has one file holding
+ * its GE slots and session:
+ * <pre>
+ * header    magic, version
+ * offers    8 slot records of OFFER_BYTES: present, state, flags, item id, quantity sold, total quantity, price, spent
+ * session   present, start time, duration millis, average cash
+ * </pre>
+ * The suggestion preferences are shared by all accounts so they get a file of their own:
+ * <pre>
+ * header       magic, version
+ * preferences  present, f2p only, sell only, timeframe, blocked item count, blocked item ids
+ * </pre>
+ * Nothing is forced to disk on update, the OS writes dirty pages back in its own time and close forces whatever's left.
+ * A file with a mismatched header is reset and reads as absent, so callers fall back to defaults (or old json files).
+ */
+@Slf4j
+@Singleton
+public class StateStore {
+
+    private static final String ACCOUNT_FILE_TEMPLATE = "acc_%d_state.bin";
+    private static final String SHARED_FILE = "shared_state.bin";
+    private static final int ACCOUNT_MAGIC = 0x46434153;
+    private static final int SHARED_MAGIC = 0x46435353;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private static final int SLOTS = 8;
+    private static final int OFFER_BYTES = 32;
+    private static final int OFFERS_POS = HEADER_BYTES;
+    private static final int SESSION_POS = OFFERS_POS + SLOTS * OFFER_BYTES;
+    private static final int SESSION_BYTES = 24;
+    private static final int ACCOUNT_FILE_BYTES = SESSION_POS + SESSION_BYTES;
+
+    private static final int MAX_BLOCKED_ITEMS = 8192;
+    private static final int PREFERENCES_POS = HEADER_BYTES;
+    private static final int BLOCKED_ITEMS_POS = PREFERENCES_POS + 24;
+    private static final int SHARED_FILE_BYTES = BLOCKED_ITEMS_POS + MAX_BLOCKED_ITEMS * 4;
+
+    // persisted by index so a reordering of the runelite enum can't change what a stored byte means
+    private static final GrandExchangeOfferState[] OFFER_STATES = {
+            GrandExchangeOfferState.EMPTY,
+            GrandExchangeOfferState.CANCELLED_BUY,
+            GrandExchangeOfferState.CANCELLED_SELL,
+            GrandExchangeOfferState.BUYING,
+            GrandExchangeOfferState.BOUGHT,
+            GrandExchangeOfferState.SELLING,
+            GrandExchangeOfferState.SOLD};
+
+    // state
+    private final Map<Long, MappedByteBuffer> accountBuffers = new HashMap<>();
+    private MappedByteBuffer sharedBuffer;
+    private File directory;
+
+    /**
+     * Returns the saved offer of a GE slot, or null if none has been saved. The file has no checksum, so a slot whose
+     * state byte isn't one we write is treated as unsaved rather than trusted.
+     */
+    public synchronized SavedOffer loadOffer(long accountHash, int slot) {
+        MappedByteBuffer b = accountBuffer(accountHash);
+        int pos = OFFERS_POS + slot * OFFER_BYTES;
+        if (b == null || b.get(pos) == 0) {
+            return null;
+        }
+        int stateIndex = b.get(pos + 1);
+        if (stateIndex < 0 || stateIndex >= OFFER_STATES.length) {
+            log.warn("ignoring saved offer of slot {} with invalid state {}", slot, stateIndex);
+            return null;
+        }
+        SavedOffer offer = new SavedOffer();
+        offer.setState(OFFER_STATES[stateIndex]);
+        byte flags = b.get(pos + 2);
+        offer.setCopilotPriceUsed((flags & 1) != 0);
+        offer.setWasCopilotSuggestion((flags & 2) != 0);
+        offer.setItemId(b.getInt(pos + 4));
+        offer.setQuantitySold(b.getInt(pos + 8));
+        offer.setTotalQuantity(b.getInt(pos + 12));
+        offer.setPrice(b.getInt(pos + 16));
+        offer.setSpent(b.getInt(pos + 20));
+        return offer;
+    }
+
+    public synchronized void saveOffer(long accountHash, int slot, SavedOffer offer) {
+        MappedByteBuffer b = accountBuffer(accountHash);
+        if (b == null) {
+            return;
+        }
+        int pos = OFFERS_POS + slot * OFFER_BYTES;
+        if (offer == null) {
+            b.put(pos, (byte) 0);
+            return;
+        }
+        b.put(pos + 1, (byte) stateIndex(offer.getState()));
+        b.put(pos + 2, (byte) ((offer.isCopilotPriceUsed() ? 1 : 0) | (offer.isWasCopilotSuggestion() ? 2 : 0)));
+        b.putInt(pos + 4, offer.getItemId());
+        b.putInt(pos + 8, offer.getQuantitySold());
+        b.putInt(pos + 12, offer.getTotalQuantity());
+        b.putInt(pos + 16, offer.getPrice());
+        b.putInt(pos + 20, offer.getSpent());
+        // set last so a half written record never reads as present
+        b.put(pos, (byte) 1);
+    }
+
+    /**
+     * Returns the saved session of an account, or null if none has been saved.
+     */
+    public synchronized SessionData loadSession(long accountHash) {
+        MappedByteBuffer b = accountBuffer(accountHash);
+        if (b == null || b.getInt(SESSION_POS) == 0) {
+            return null;
+        }
+        return new SessionData(b.getInt(SESSION_POS + 4), b.getLong(SESSION_POS + 8), b.getLong(SESSION_POS + 16));
+    }
+
+    public synchronized void saveSession(long accountHash, SessionData session) {
+        MappedByteBuffer b = accountBuffer(accountHash);
+        if (b == null) {
+            return;
+        }
+        b.putInt(SESSION_POS + 4, session.startTime);
+        b.putLong(SESSION_POS + 8, session.durationMillis);
+        b.putLong(SESSION_POS + 16, session.averageCash);
+        b.putInt(SESSION_POS, 1);
+    }
+
+    /**
+     * Returns the saved suggestion preferences, or null if none have been saved.
+     */
+    public synchronized SuggestionPreferences loadPreferences() {
+        MappedByteBuffer b = sharedBuffer();
+        if (b == null || b.getInt(PREFERENCES_POS) == 0) {
+            return null;
+        }
+        SuggestionPreferences preferences = new SuggestionPreferences();
+        preferences.setF2pOnlyMode(b.getInt(PREFERENCES_POS + 4) != 0);
+        preferences.setSellOnlyMode(b.getInt(PREFERENCES_POS + 8) != 0);
+        preferences.setTimeframe(b.getInt(PREFERENCES_POS + 12));
+        int blocked = Math.min(b.getInt(PREFERENCES_POS + 16), MAX_BLOCKED_ITEMS);
+        List<Integer> blockedItemIds = new ArrayList<>(blocked);
+        for (int i = 0; i < blocked; i++) {
+            blockedItemIds.add(b.getInt(BLOCKED_ITEMS_POS + i * 4));
+        }
+        preferences.setBlockedItemIds(blockedItemIds);
+        return preferences;
+    }
+
+    public synchronized void savePreferences(SuggestionPreferences preferences) {
+        MappedByteBuffer b = sharedBuffer();
+        if (b == null) {
+            return;
+        }
+        List<Integer> blockedItemIds = preferences.getBlockedItemIds() == null ? new ArrayList<>() : preferences.getBlockedItemIds();
+        if (blockedItemIds.size() > MAX_BLOCKED_ITEMS) {
+            log.warn("only storing the first {} of {} blocked items", MAX_BLOCKED_ITEMS, blockedItemIds.size());
+        }
+        int blocked = Math.min(blockedItemIds.size(), MAX_BLOCKED_ITEMS);
+        for (int i = 0; i < blocked; i++) {
+            b.putInt(BLOCKED_ITEMS_POS + i * 4, blockedItemIds.get(i));
+        }
+        b.putInt(PREFERENCES_POS + 4, preferences.isF2pOnlyMode() ? 1 : 0);
+        b.putInt(PREFERENCES_POS + 8, preferences.isSellOnlyMode() ? 1 : 0);
+        b.putInt(PREFERENCES_POS + 12, preferences.getTimeframe());
+        b.putInt(PREFERENCES_POS + 16, blocked);
+        b.putInt(PREFERENCES_POS, 1);
+    }
+
+    /**
+     * Forces every mapped file to disk.
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer b : accountBuffers.values()) {
+            b.force();
+        }
+        if (sharedBuffer != null) {
+            sharedBuffer.force();
+        }
+    }
+
+    /**
+     * Forces and unmaps everything, files are mapped again on next use.
+     */
+    public synchronized void close() {
+        force();
+        accountBuffers.clear();
+        sharedBuffer = null;
+    }
+
+    synchronized void setDirectory(File directory) {
+        close();
+        this.directory = directory;
+    }
+
+    private MappedByteBuffer accountBuffer(long accountHash) {
+        MappedByteBuffer b = accountBuffers.get(accountHash);
+        if (b == null) {
+            b = map(new File(directory(), String.format(ACCOUNT_FILE_TEMPLATE, accountHash)), ACCOUNT_MAGIC, ACCOUNT_FILE_BYTES);
+            if (b != null) {
+                accountBuffers.put(accountHash, b);
+            }
+        }
+        return b;
+    }
+
+    private MappedByteBuffer sharedBuffer() {
+        if (sharedBuffer == null) {
+            sharedBuffer = map(new File(directory(), SHARED_FILE), SHARED_MAGIC, SHARED_FILE_BYTES);
+        }
+        return sharedBuffer;
+    }
+
+    private File directory() {
+        return directory == null ? Persistance.PARENT_DIRECTORY : directory;
+    }
+
+    private static MappedByteBuffer map(File file, int magic, int bytes) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean valid = channel.size() == bytes;
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            if (!valid || b.getInt(0) != magic || b.getInt(4) != VERSION) {
+                if (channel.size() > 0) {
+                    log.info("resetting state file {} with an incompatible header", file);
+                }
+                for (int i = 0; i < bytes; i += 8) {
+                    b.putLong(i, 0);
+                }
+                b.putInt(0, magic);
+                b.putInt(4, VERSION);
+            }
+            return b;
+        } catch (IOException e) {
+            log.warn("error mapping state file {}", file, e);
+            return null;
+        }
+    }
+
+    private static int stateIndex(GrandExchangeOfferState state) {
+        for (int i = 0; i < OFFER_STATES.length; i++) {
+            if (OFFER_STATES[i] == state) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
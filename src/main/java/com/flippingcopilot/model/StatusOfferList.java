@@ -20,6 +20,10 @@ public class StatusOfferList extends ArrayList<Offer> {
         }
     }
 
+    StatusOfferList(StatusOfferList other) {
+        super(other);
+    }
+
     public static StatusOfferList fromRunelite(GrandExchangeOffer[] runeliteOffers) {
         StatusOfferList offers = new StatusOfferList();
         for (int i = 0; i < runeliteOffers.length; i++) {
@@ -34,7 +38,7 @@ public class StatusOfferList extends ArrayList<Offer> {
     }
 
     boolean emptySlotExists() {
-        return stream().anyMatch(offer -> offer.getStatus() == OfferStatus.EMPTY);
+        return findEmptySlot() != -1;
     }
 
     public long getGpOnMarket() {
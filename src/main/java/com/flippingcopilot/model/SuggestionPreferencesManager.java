@@ -16,7 +16,6 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -26,14 +25,14 @@ import java.util.stream.IntStream;
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class SuggestionPreferencesManager {
 
-    private static final String SHARED_PREFERENCES_FILE = "shared_preferences.json";
+    private static final String LEGACY_SHARED_PREFERENCES_FILE = "shared_preferences.json";
 
     // dependencies
     private final Gson gson;
     private final FuzzySearchScorer fuzzySearchScorer;
     private final Client client;
     private final ItemManager itemManager;
-    private final ScheduledExecutorService executorService;
+    private final StateStore stateStore;
 
     // state
     private SuggestionPreferences sharedPreferences;
@@ -48,21 +47,21 @@ public class SuggestionPreferencesManager {
     public synchronized void setSellOnlyMode(boolean sellOnlyMode) {
         SuggestionPreferences preferences = getPreferences();
         preferences.setSellOnlyMode(sellOnlyMode);
-        saveAsync();
+        save();
         log.debug("Sell only mode is now: {}", sellOnlyMode);
     }
 
     public synchronized void setF2pOnlyMode(boolean f2pOnlyMode) {
         SuggestionPreferences preferences = getPreferences();
         preferences.setF2pOnlyMode(f2pOnlyMode);
-        saveAsync();
+        save();
         log.debug("F2p only mode is now: {}", f2pOnlyMode);
     }
 
     public synchronized void setTimeframe(int minutes) {
         SuggestionPreferences preferences = getPreferences();
         preferences.setTimeframe(minutes);
-        saveAsync();
+        save();
         log.debug("Timeframe is now: {} minutes", minutes);
     }
 
@@ -80,7 +79,7 @@ public class SuggestionPreferencesManager {
             blockedList.add(itemId);
         }
         preferences.setBlockedItemIds(blockedList);
-        saveAsync();
+        save();
         log.debug("blocked item {}", itemId);
     }
 
@@ -92,7 +91,7 @@ public class SuggestionPreferencesManager {
         }
         blockedList.removeIf(i -> i==itemId);
         preferences.setBlockedItemIds(blockedList);
-        saveAsync();
+        save();
         log.debug("unblocked item {}", itemId);
     }
 
@@ -132,22 +131,34 @@ public class SuggestionPreferencesManager {
     }
 
     private SuggestionPreferences load() {
-        File file = getSharedFile();
+        SuggestionPreferences preferences = stateStore.loadPreferences();
+        if (preferences != null) {
+            return preferences;
+        }
+        preferences = loadLegacyPreferences();
+        stateStore.savePreferences(preferences);
+        return preferences;
+    }
+
+    /**
+     * Reads the preferences from the json file they were saved to before the state file existed, or merges the even
+     * older per account files if there isn't one.
+     */
+    private SuggestionPreferences loadLegacyPreferences() {
+        File file = new File(Persistance.PARENT_DIRECTORY, LEGACY_SHARED_PREFERENCES_FILE);
         if (!file.exists()) {
-            SuggestionPreferences merged = mergeExistingPreferences();
-            sharedPreferences = merged;
-            saveAsync();
-            return merged;
+            return mergeExistingPreferences();
         }
-        
+        SuggestionPreferences preferences = null;
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            return gson.fromJson(reader, SuggestionPreferences.class);
-        } catch (FileNotFoundException ignored) {
-            return new SuggestionPreferences();
+            preferences = gson.fromJson(reader, SuggestionPreferences.class);
         } catch (JsonSyntaxException | JsonIOException | IOException e) {
             log.warn("error loading preferences json file {}", file, e);
-            return new SuggestionPreferences();
         }
+        if (!file.delete()) {
+            log.warn("failed to delete migrated preferences json file {}", file);
+        }
+        return preferences != null ? preferences : new SuggestionPreferences();
     }
 
     private SuggestionPreferences mergeExistingPreferences() {
@@ -178,22 +189,7 @@ public class SuggestionPreferencesManager {
         return mergedPreferences;
     }
 
-    private void saveAsync() {
-        executorService.submit(() -> {
-            File file = getSharedFile();
-            synchronized (file) {
-                try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, false))) {
-                    String json = gson.toJson(sharedPreferences);
-                    writer.write(json);
-                    writer.newLine();
-                } catch (IOException e) {
-                    log.warn("error saving preferences json file {}", file, e);
-                }
-            }
-        });
-    }
-
-    private File getSharedFile() {
-        return new File(Persistance.PARENT_DIRECTORY, SHARED_PREFERENCES_FILE);
+    private void save() {
+        stateStore.savePreferences(sharedPreferences);
     }
 }
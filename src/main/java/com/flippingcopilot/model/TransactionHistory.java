@@ -0,0 +1,320 @@
+package com.flippingcopilot.model;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Every transaction an account has made, in the order they happened, as fixed width records so record n is at offset
+ * n * RECORD_BYTES. Two indexes sit beside it:
+ * <ul>
+ * <li>a sparse time index holding, per block of BLOCK_RECORDS records, the latest timestamp of any record up to and
+ * including that block. It never decreases, so a binary search finds the first block that can hold a record at or
+ * after a given time, even when transactions arrive slightly out of order.</li>
+ * <li>an item index holding the record numbers of each item's transactions.</li>
+ * </ul>
+ * A query intersects the two and reads just the matching records with positional reads, so asking for one item's last
+ * month only touches the pages holding that item's recent records.
+ * <p>
+ * The indexes are kept in memory and saved to a side file on close. If the side file is missing or doesn't cover every
+ * record (we didn't shut down cleanly) it is rebuilt with one scan of the records. Records aren't fsynced, the
+ * un-acked transaction journal is what makes a new transaction durable.
+ */
+@Slf4j
+public class TransactionHistory implements Closeable {
+
+    static final int RECORD_BYTES = 48;
+    static final int BLOCK_RECORDS = 64;
+    private static final int INDEX_MAGIC = 0x46435449;
+    private static final int INDEX_VERSION = 1;
+    // offsets within a record
+    private static final int ITEM_ID_POS = 16;
+    private static final int TIME_POS = 32;
+
+    private final File file;
+    private final File indexFile;
+    private final FileChannel channel;
+    private final Map<Integer, Postings> itemIndex = new HashMap<>();
+    private long[] blockMaxTimes = new long[16];
+    private int recordCount;
+
+    private TransactionHistory(File file, File indexFile, FileChannel channel) {
+        this.file = file;
+        this.indexFile = indexFile;
+        this.channel = channel;
+    }
+
+    public static TransactionHistory open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            TransactionHistory history = new TransactionHistory(file, new File(file.getPath() + ".idx"), channel);
+            history.load();
+            return history;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        long size = channel.size();
+        if (size % RECORD_BYTES != 0) {
+            log.warn("truncating {} trailing bytes of transaction history {}", size % RECORD_BYTES, file);
+            size -= size % RECORD_BYTES;
+            channel.truncate(size);
+        }
+        int records = (int) (size / RECORD_BYTES);
+        if (!loadIndex(records)) {
+            rebuildIndex(records);
+        }
+        channel.position(size);
+    }
+
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    public synchronized void append(Transaction transaction) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(RECORD_BYTES);
+        writeRecord(b, transaction);
+        b.flip();
+        while (b.hasRemaining()) {
+            channel.write(b);
+        }
+        index(recordCount++, transaction.getItemId(), transaction.getTimestamp().toEpochMilli());
+    }
+
+    /**
+     * Returns the transactions of an item at or after since, oldest first.
+     */
+    public synchronized List<Transaction> query(int itemId, Instant since) throws IOException {
+        Postings postings = itemIndex.get(itemId);
+        if (postings == null) {
+            return new ArrayList<>();
+        }
+        int first = Arrays.binarySearch(postings.records, 0, postings.size, firstBlock(since.toEpochMilli()) * BLOCK_RECORDS);
+        if (first < 0) {
+            first = -first - 1;
+        }
+        List<Transaction> transactions = new ArrayList<>(postings.size - first);
+        ByteBuffer b = ByteBuffer.allocate(RECORD_BYTES);
+        for (int i = first; i < postings.size; i++) {
+            Transaction t = readRecord(postings.records[i], b);
+            if (!t.getTimestamp().isBefore(since)) {
+                transactions.add(t);
+            }
+        }
+        return transactions;
+    }
+
+    /**
+     * Returns the transactions of all items at or after since, oldest first.
+     */
+    public synchronized List<Transaction> query(Instant since) throws IOException {
+        int first = firstBlock(since.toEpochMilli()) * BLOCK_RECORDS;
+        List<Transaction> transactions = new ArrayList<>(Math.max(0, recordCount - first));
+        ByteBuffer b = ByteBuffer.allocate(RECORD_BYTES);
+        for (int n = first; n < recordCount; n++) {
+            Transaction t = readRecord(n, b);
+            if (!t.getTimestamp().isBefore(since)) {
+                transactions.add(t);
+            }
+        }
+        return transactions;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            saveIndex();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private int firstBlock(long sinceMillis) {
+        int blocks = blockCount();
+        int lo = 0, hi = blocks;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockMaxTimes[mid] < sinceMillis) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int blockCount() {
+        return (recordCount + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+    }
+
+    private void index(int record, int itemId, long timeMillis) {
+        int block = record / BLOCK_RECORDS;
+        if (block == blockMaxTimes.length) {
+            blockMaxTimes = Arrays.copyOf(blockMaxTimes, block * 2);
+        }
+        long previousMax = block == 0 ? Long.MIN_VALUE : blockMaxTimes[block - 1];
+        long blockMax = record % BLOCK_RECORDS == 0 ? previousMax : blockMaxTimes[block];
+        blockMaxTimes[block] = Math.max(blockMax, timeMillis);
+        itemIndex.computeIfAbsent(itemId, k -> new Postings()).add(record);
+    }
+
+    private Transaction readRecord(int record, ByteBuffer b) throws IOException {
+        b.clear();
+        long pos = (long) record * RECORD_BYTES;
+        while (b.hasRemaining()) {
+            if (channel.read(b, pos + b.position()) < 0) {
+                throw new IOException("unexpected end of transaction history " + file);
+            }
+        }
+        b.flip();
+        return readRecord(b);
+    }
+
+    private void rebuildIndex(int records) throws IOException {
+        itemIndex.clear();
+        recordCount = 0;
+        if (records == 0) {
+            return;
+        }
+        log.info("rebuilding index of transaction history {} with {} records", file, records);
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) records * RECORD_BYTES);
+        for (int n = 0; n < records; n++) {
+            int base = n * RECORD_BYTES;
+            index(recordCount++, b.getInt(base + ITEM_ID_POS), b.getLong(base + TIME_POS));
+        }
+    }
+
+    private boolean loadIndex(int records) throws IOException {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try (FileChannel indexChannel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer b = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            if (b.remaining() < 12 || b.getInt() != INDEX_MAGIC || b.getInt() != INDEX_VERSION || b.getInt() != records) {
+                return false;
+            }
+            int blocks = b.getInt();
+            blockMaxTimes = new long[Math.max(16, blocks)];
+            for (int i = 0; i < blocks; i++) {
+                blockMaxTimes[i] = b.getLong();
+            }
+            int items = b.getInt();
+            for (int i = 0; i < items; i++) {
+                int itemId = b.getInt();
+                int n = b.getInt();
+                Postings postings = new Postings(n);
+                for (int j = 0; j < n; j++) {
+                    postings.add(b.getInt());
+                }
+                itemIndex.put(itemId, postings);
+            }
+            recordCount = records;
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("ignoring corrupt transaction history index {}", indexFile, e);
+            itemIndex.clear();
+            return false;
+        }
+    }
+
+    private void saveIndex() throws IOException {
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(recordCount);
+            int blocks = blockCount();
+            out.writeInt(blocks);
+            for (int i = 0; i < blocks; i++) {
+                out.writeLong(blockMaxTimes[i]);
+            }
+            out.writeInt(itemIndex.size());
+            for (Map.Entry<Integer, Postings> e : itemIndex.entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(e.getValue().size);
+                for (int i = 0; i < e.getValue().size; i++) {
+                    out.writeInt(e.getValue().records[i]);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void writeRecord(ByteBuffer b, Transaction t) {
+        b.putLong(t.getId().getMostSignificantBits());
+        b.putLong(t.getId().getLeastSignificantBits());
+        b.putInt(t.getItemId());
+        b.putInt(t.getPrice());
+        b.putInt(t.getQuantity());
+        b.putInt(t.getAmountSpent());
+        b.putLong(t.getTimestamp().toEpochMilli());
+        b.putInt(t.getOfferTotalQuantity());
+        b.put((byte) t.getType().ordinal());
+        b.put((byte) t.getBoxId());
+        b.put((byte) ((t.isCopilotPriceUsed() ? 1 : 0)
+                | (t.isWasCopilotSuggestion() ? 2 : 0)
+                | (t.isLogin() ? 4 : 0)
+                | (t.isConsistent() ? 8 : 0)));
+        b.put((byte) 0);
+    }
+
+    static Transaction readRecord(ByteBuffer b) {
+        Transaction t = new Transaction();
+        t.setId(new UUID(b.getLong(), b.getLong()));
+        t.setItemId(b.getInt());
+        t.setPrice(b.getInt());
+        t.setQuantity(b.getInt());
+        t.setAmountSpent(b.getInt());
+        t.setTimestamp(Instant.ofEpochMilli(b.getLong()));
+        t.setOfferTotalQuantity(b.getInt());
+        t.setType(OfferStatus.values()[b.get()]);
+        t.setBoxId(b.get());
+        byte flags = b.get();
+        t.setCopilotPriceUsed((flags & 1) != 0);
+        t.setWasCopilotSuggestion((flags & 2) != 0);
+        t.setLogin((flags & 4) != 0);
+        t.setConsistent((flags & 8) != 0);
+        return t;
+    }
+
+    private static class Postings {
+        int[] records;
+        int size;
+
+        Postings() {
+            this(8);
+        }
+
+        Postings(int capacity) {
+            records = new int[Math.max(1, capacity)];
+        }
+
+        void add(int record) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size++] = record;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.flippingcopilot.model;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the un-acked transactions of one account. Adding a transaction appends one record and
+ * acking appends one record listing the acked ids, so neither rewrites what's already on disk. Each record is
+ * <pre>
+ * length   int, bytes of type + payload
+ * crc      int, CRC32 of type + payload
+ * type     byte, ADD or ACK
+ * payload  an encoded transaction, or a count followed by transaction ids
+ * </pre>
+ * Records are queued in memory and made durable by group commit: whichever waiting thread finds no commit in
+ * progress writes and fsyncs everything queued so far, so a burst of transactions costs one fsync rather than one
+ * each. Once acked records make up most of the file the next commit compacts it instead, rewriting just the live
+ * transactions to a new file that atomically replaces the journal. A failed commit is recovered the same way.
+ * <p>
+ * Queueing is cheap and never does I/O, so callers can queue while holding their own locks to keep the journal order
+ * consistent with their state, then wait for durability after releasing them.
+ */
+@Slf4j
+public class TransactionJournal implements Closeable {
+
+    private static final byte ADD = 1;
+    private static final byte ACK = 2;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final String BAD_FILE_SUFFIX = ".bad";
+    private static final int TRANSACTION_BYTES = 16 + 1 + 4 * 5 + 8 + 1 + 4;
+    // don't bother compacting a journal that's still tiny
+    private static final int COMPACT_MIN_DEAD_RECORDS = 256;
+
+    private final File file;
+    private FileChannel channel;
+
+    // state guarded by this
+    private final Map<UUID, byte[]> liveRecords = new LinkedHashMap<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int deadRecords;
+    private long queuedSeq;
+    private long durableSeq;
+    private long failedSeq;
+    private boolean committing;
+    private boolean rewriteNeeded;
+
+    private TransactionJournal(File file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the journal, creating it if needed. A record torn by a crash mid write is truncated away. A journal that
+     * can't be replayed at all is moved aside, keeping it for recovery, and replaced by an empty one so adding
+     * transactions doesn't fail from then on.
+     */
+    public static TransactionJournal open(File file) throws IOException {
+        try {
+            return openAndReplay(file);
+        } catch (IOException | RuntimeException e) {
+            File aside = new File(file.getPath() + BAD_FILE_SUFFIX);
+            log.error("error replaying transaction journal {}, moving it to {}", file, aside, e);
+            Files.move(file.toPath(), aside.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return openAndReplay(file);
+        }
+    }
+
+    private static TransactionJournal openAndReplay(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            TransactionJournal journal = new TransactionJournal(file, channel);
+            journal.replay();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("transaction journal of " + size + " bytes is too large to replay");
+        }
+        // read onto the heap rather than mapped, Windows won't truncate a file while a mapping of it is alive
+        ByteBuffer b = ByteBuffer.allocate((int) size);
+        while (b.hasRemaining()) {
+            if (channel.read(b, b.position()) < 0) {
+                break;
+            }
+        }
+        b.flip();
+        CRC32 crc = new CRC32();
+        while (b.remaining() >= RECORD_HEADER_BYTES) {
+            int length = b.getInt(b.position());
+            if (length <= 0 || b.remaining() - RECORD_HEADER_BYTES < length) {
+                break;
+            }
+            ByteBuffer record = b.duplicate();
+            record.position(b.position() + RECORD_HEADER_BYTES).limit(b.position() + RECORD_HEADER_BYTES + length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != b.getInt(b.position() + 4)) {
+                break;
+            }
+            byte type = record.get();
+            if (type == ADD) {
+                byte[] encoded = new byte[record.remaining()];
+                record.duplicate().get(encoded);
+                liveRecords.put(new UUID(record.getLong(), record.getLong()), encoded);
+            } else if (type == ACK) {
+                int n = record.getInt();
+                for (int i = 0; i < n; i++) {
+                    if (liveRecords.remove(new UUID(record.getLong(), record.getLong())) != null) {
+                        deadRecords++;
+                    }
+                }
+                deadRecords++;
+            }
+            b.position(b.position() + RECORD_HEADER_BYTES + length);
+        }
+        if (b.hasRemaining()) {
+            log.warn("truncating {} trailing bytes of transaction journal {}", b.remaining(), file);
+            channel.truncate(b.position());
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Returns the transactions added and not yet acked, in the order they were added.
+     */
+    public synchronized List<Transaction> getTransactions() {
+        List<Transaction> transactions = new ArrayList<>(liveRecords.size());
+        for (byte[] encoded : liveRecords.values()) {
+            transactions.add(readTransaction(ByteBuffer.wrap(encoded)));
+        }
+        return transactions;
+    }
+
+    /**
+     * Queues a transaction to be added and returns the sequence number to pass to awaitDurable.
+     */
+    public synchronized long queueAdd(Transaction transaction) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(TRANSACTION_BYTES);
+        try {
+            writeTransaction(new DataOutputStream(bytes), transaction);
+        } catch (IOException e) {
+            // writing to a byte array doesn't throw
+            throw new IllegalStateException(e);
+        }
+        byte[] encoded = bytes.toByteArray();
+        if (liveRecords.put(transaction.getId(), encoded) != null) {
+            deadRecords++;
+        }
+        return queue(ADD, encoded);
+    }
+
+    /**
+     * Queues the removal of acked transactions and returns the sequence number to pass to awaitDurable.
+     */
+    public synchronized long queueAck(Collection<Transaction> transactions) {
+        ByteBuffer payload = ByteBuffer.allocate(4 + transactions.size() * 16);
+        payload.putInt(transactions.size());
+        for (Transaction t : transactions) {
+            payload.putLong(t.getId().getMostSignificantBits());
+            payload.putLong(t.getId().getLeastSignificantBits());
+            if (liveRecords.remove(t.getId()) != null) {
+                deadRecords++;
+            }
+        }
+        deadRecords++;
+        return queue(ACK, payload.array());
+    }
+
+    private long queue(byte type, byte[] payload) {
+        writeRecord(pending, type, payload);
+        return ++queuedSeq;
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is on disk, committing it along with everything else
+     * queued if no other thread is already doing so.
+     */
+    public void awaitDurable(long seq) throws IOException {
+        while (true) {
+            byte[] batch;
+            long batchSeq;
+            boolean compact;
+            synchronized (this) {
+                while (committing && durableSeq < seq) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("interrupted waiting for transaction journal commit", e);
+                    }
+                }
+                if (durableSeq >= seq) {
+                    return;
+                }
+                if (failedSeq >= seq) {
+                    throw new IOException("transaction journal commit failed");
+                }
+                committing = true;
+                batchSeq = queuedSeq;
+                compact = rewriteNeeded || (deadRecords >= COMPACT_MIN_DEAD_RECORDS && deadRecords > liveRecords.size());
+                batch = compact ? encodeLive() : pending.toByteArray();
+                pending.reset();
+                if (compact) {
+                    deadRecords = 0;
+                    rewriteNeeded = false;
+                }
+            }
+            IOException error = null;
+            try {
+                if (compact) {
+                    rewrite(batch);
+                } else {
+                    append(batch);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (this) {
+                committing = false;
+                if (error == null) {
+                    durableSeq = batchSeq;
+                } else {
+                    // the batch is lost from the queue but the live set is still right, so the next commit rewrites
+                    // the journal from it rather than appending
+                    failedSeq = batchSeq;
+                    rewriteNeeded = true;
+                }
+                notifyAll();
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Queues nothing, just commits whatever is queued.
+     */
+    public void flush() throws IOException {
+        long seq;
+        synchronized (this) {
+            seq = queuedSeq;
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private byte[] encodeLive() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(liveRecords.size() * (RECORD_HEADER_BYTES + 1 + TRANSACTION_BYTES));
+        for (byte[] encoded : liveRecords.values()) {
+            writeRecord(out, ADD, encoded);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES + 1);
+        header.putInt(1 + payload.length);
+        header.putInt((int) crc.getValue());
+        header.put(type);
+        out.write(header.array(), 0, header.capacity());
+        out.write(payload, 0, payload.length);
+    }
+
+    private void append(byte[] batch) throws IOException {
+        long start = channel.position();
+        try {
+            ByteBuffer b = ByteBuffer.wrap(batch);
+            while (b.hasRemaining()) {
+                channel.write(b);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            // don't leave a partial batch in front of the records the next commit appends
+            channel.truncate(start);
+            channel.position(start);
+            throw e;
+        }
+    }
+
+    private void rewrite(byte[] live) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.wrap(live);
+            while (b.hasRemaining()) {
+                out.write(b);
+            }
+            out.force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    static void writeTransaction(DataOutputStream out, Transaction t) throws IOException {
+        out.writeLong(t.getId().getMostSignificantBits());
+        out.writeLong(t.getId().getLeastSignificantBits());
+        out.writeByte(t.getType().ordinal());
+        out.writeInt(t.getItemId());
+        out.writeInt(t.getPrice());
+        out.writeInt(t.getQuantity());
+        out.writeInt(t.getBoxId());
+        out.writeInt(t.getAmountSpent());
+        out.writeLong(t.getTimestamp().toEpochMilli());
+        out.writeByte((t.isCopilotPriceUsed() ? 1 : 0)
+                | (t.isWasCopilotSuggestion() ? 2 : 0)
+                | (t.isLogin() ? 4 : 0)
+                | (t.isConsistent() ? 8 : 0));
+        out.writeInt(t.getOfferTotalQuantity());
+    }
+
+    static Transaction readTransaction(ByteBuffer b) {
+        Transaction t = new Transaction();
+        t.setId(new UUID(b.getLong(), b.getLong()));
+        t.setType(OfferStatus.values()[b.get()]);
+        t.setItemId(b.getInt());
+        t.setPrice(b.getInt());
+        t.setQuantity(b.getInt());
+        t.setBoxId(b.getInt());
+        t.setAmountSpent(b.getInt());
+        t.setTimestamp(Instant.ofEpochMilli(b.getLong()));
+        byte flags = b.get();
+        t.setCopilotPriceUsed((flags & 1) != 0);
+        t.setWasCopilotSuggestion((flags & 2) != 0);
+        t.setLogin((flags & 4) != 0);
+        t.setConsistent((flags & 8) != 0);
+        t.setOfferTotalQuantity(b.getInt());
+        return t;
+    }
+}
@@ -1,97 +1,208 @@
 package com.flippingcopilot.model;
 
-import com.flippingcopilot.controller.ApiRequestHandler;
 import com.flippingcopilot.controller.Persistance;
-import com.flippingcopilot.util.MutableReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.OkHttpClient;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Consumer;
 
 @Slf4j
 @Singleton
 @RequiredArgsConstructor(onConstructor_ = @Inject)
 public class TransactionManger {
 
+    private static final int LOG_FAILURE_RETRY_SECONDS = 5;
+
     // dependencies
     private final FlipManager flipManager;
+    private final FlipMatcher flipMatcher;
     private final ScheduledExecutorService executorService;
-    private final ApiRequestHandler api;
-    private final LoginResponseManager loginResponseManager;
-    private final OsrsLoginManager osrsLoginManager;
 
     // state
     private final ConcurrentMap<String, List<Transaction>> cachedUnAckedTransactions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TransactionJournal> journals = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TransactionHistory> histories = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, AtomicBoolean> transactionSyncScheduled = new ConcurrentHashMap<>();
 
+    /**
+     * Matches the un-acked transactions into flips locally and merges them into the FlipManager as one batch. Runs on
+     * the executor so a login burst of hundreds of transactions never holds up the client thread.
+     */
     public void syncUnAckedTransactions(String displayName) {
-
         long s = System.nanoTime();
-        List<Transaction> toSend;
-        synchronized (this) {
-            toSend = new ArrayList<>(getUnAckedTransactions(displayName));
-            if(toSend.isEmpty()) {
+        if (!flipManager.flipsLoaded) {
+            // the open flips the transactions match against aren't loaded yet
+            synchronized (this) {
                 transactionSyncScheduled.get(displayName).set(false);
-                return;
             }
+            scheduleSyncIn(1, displayName);
+            return;
         }
-
-        Consumer<List<FlipV2>> onSuccess = (flips) -> {
-            for (FlipV2 f : flips) {
-                log.debug("server updated flip for {} closed qty {}, profit {}", f.getItemName(), f.getClosedQuantity(), f.getProfit());
-            }
-            flipManager.mergeFlips(flips, displayName);
-            log.info("sending {} transactions took {}ms", toSend.size(), (System.nanoTime() - s) / 1000_000);
-            synchronized (this) {
-                List<Transaction> unAckedTransactions  = getUnAckedTransactions(displayName);
+        List<Transaction> toMatch;
+        synchronized (this) {
+            toMatch = new ArrayList<>(getUnAckedTransactions(displayName));
+            if(toMatch.isEmpty()) {
                 transactionSyncScheduled.get(displayName).set(false);
-                toSend.forEach(unAckedTransactions::remove);
-                if(!unAckedTransactions.isEmpty()) {
-                    scheduleSyncIn(0, displayName);
-                }
+                return;
             }
-        };
+        }
 
-        Consumer<HttpResponseException> onFailure = (e) -> {
+        List<FlipV2> flips = flipMatcher.match(toMatch, displayName);
+        for (FlipV2 f : flips) {
+            log.debug("updated flip for {} closed qty {}, profit {}", f.getItemName(), f.getClosedQuantity(), f.getProfit());
+        }
+        if (!flipManager.mergeFlips(flips, displayName)) {
+            // nothing was merged, so the transactions stay un-acked and are matched again on the retry
             synchronized (this) {
                 transactionSyncScheduled.get(displayName).set(false);
             }
-            String currentDisplayName = osrsLoginManager.getPlayerDisplayName();
-            if (loginResponseManager.isLoggedIn() && (currentDisplayName == null || currentDisplayName.equals(displayName))) {
-                log.warn("failed to send transactions to copilot server {}", e.getMessage(), e);
-                scheduleSyncIn(10, displayName);
+            scheduleSyncIn(LOG_FAILURE_RETRY_SECONDS, displayName);
+            return;
+        }
+        log.info("matching {} transactions into {} flips took {}ms", toMatch.size(), flips.size(), (System.nanoTime() - s) / 1000_000);
+        long seq;
+        synchronized (this) {
+            List<Transaction> unAckedTransactions  = getUnAckedTransactions(displayName);
+            transactionSyncScheduled.get(displayName).set(false);
+            unAckedTransactions.removeAll(toMatch);
+            seq = journal(displayName).queueAck(toMatch);
+            if(!unAckedTransactions.isEmpty()) {
+                scheduleSyncIn(0, displayName);
             }
-        };
-        api.sendTransactionsAsync(toSend, displayName, onSuccess, onFailure);
+        }
+        awaitDurable(displayName, seq);
     }
 
     public long addTransaction(Transaction transaction, String displayName) {
+        return addTransactions(Collections.singletonList(transaction), displayName)[0];
+    }
+
+    /**
+     * Adds a batch of transactions, e.g. those of a login burst, with one journal commit and one sync. Returns the
+     * estimated profit of each transaction, 0 for buys.
+     */
+    public long[] addTransactions(List<Transaction> transactions, String displayName) {
+        long[] profits = new long[transactions.size()];
+        if (transactions.isEmpty()) {
+            return profits;
+        }
+        long seq = 0;
         synchronized (this) {
             List<Transaction> unAckedTransactions = getUnAckedTransactions(displayName);
-            unAckedTransactions.add(transaction);
-            Persistance.storeUnAckedTransactions(unAckedTransactions, displayName);
-        }
-        MutableReference<Long> profit = new MutableReference<>(0L);
-        if (OfferStatus.SELL.equals(transaction.getType())) {
-            profit.setValue(flipManager.estimateTransactionProfit(displayName, transaction));
+            for (Transaction transaction : transactions) {
+                unAckedTransactions.add(transaction);
+                // queued under the lock so the journal sees adds and acks in the same order as the list
+                seq = journal(displayName).queueAdd(transaction);
+            }
         }
-        if (loginResponseManager.isLoggedIn()) {
-            scheduleSyncIn(0, displayName);
+        awaitDurable(displayName, seq);
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            appendToHistory(transaction, displayName);
+            if (OfferStatus.SELL.equals(transaction.getType())) {
+                profits[i] = flipManager.estimateTransactionProfit(displayName, transaction);
+            }
         }
-        return profit.getValue();
+        scheduleSyncIn(0, displayName);
+        return profits;
     }
 
     private List<Transaction> getUnAckedTransactions(String displayName) {
-        return cachedUnAckedTransactions.computeIfAbsent(displayName, (k) -> Persistance.loadUnAckedTransactions(displayName));
+        return cachedUnAckedTransactions.computeIfAbsent(displayName, (k) -> journal(displayName).getTransactions());
+    }
+
+    private TransactionJournal journal(String displayName) {
+        return journals.computeIfAbsent(displayName, (k) -> {
+            try {
+                return Persistance.openUnAckedTransactionJournal(displayName);
+            } catch (IOException e) {
+                throw new UncheckedIOException("error opening un acked transaction journal for " + displayName, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the transactions of an item made at or after since, read from the account's full transaction history.
+     */
+    public List<Transaction> getTransactionHistory(String displayName, int itemId, Instant since) {
+        TransactionHistory history = history(displayName);
+        if (history == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return history.query(itemId, since);
+        } catch (IOException e) {
+            log.warn("error reading transaction history for {}", displayName, e);
+            return new ArrayList<>();
+        }
+    }
+
+    private void appendToHistory(Transaction transaction, String displayName) {
+        TransactionHistory history = history(displayName);
+        if (history == null) {
+            return;
+        }
+        try {
+            history.append(transaction);
+        } catch (IOException e) {
+            log.warn("error appending to transaction history for {}", displayName, e);
+        }
+    }
+
+    private TransactionHistory history(String displayName) {
+        return histories.computeIfAbsent(displayName, (k) -> {
+            try {
+                return Persistance.openTransactionHistory(displayName);
+            } catch (IOException e) {
+                log.warn("error opening transaction history for {}", displayName, e);
+                return null;
+            }
+        });
+    }
+
+    private void awaitDurable(String displayName, long seq) {
+        try {
+            journal(displayName).awaitDurable(seq);
+        } catch (IOException e) {
+            log.warn("error committing un acked transaction journal for {}", displayName, e);
+        }
+    }
+
+    public void close() {
+        List<TransactionJournal> journalsToClose;
+        List<TransactionHistory> historiesToClose;
+        synchronized (this) {
+            journalsToClose = new ArrayList<>(journals.values());
+            historiesToClose = new ArrayList<>(histories.values());
+            journals.clear();
+            histories.clear();
+            cachedUnAckedTransactions.clear();
+        }
+        for (TransactionJournal journal : journalsToClose) {
+            try {
+                journal.flush();
+                journal.close();
+            } catch (IOException e) {
+                log.warn("error closing un acked transaction journal", e);
+            }
+        }
+        for (TransactionHistory history : historiesToClose) {
+            try {
+                history.close();
+            } catch (IOException e) {
+                log.warn("error closing transaction history", e);
+            }
+        }
     }
 
     public synchronized void scheduleSyncIn(int seconds, String displayName) {
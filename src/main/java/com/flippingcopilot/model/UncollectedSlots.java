@@ -0,0 +1,84 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The uncollected items of one account's GE slots: per slot a small table of item ids and quantities in primitive
+ * arrays. A slot rarely holds more than its offer's item and coins, so a linear scan of its table beats hashing and
+ * nothing is boxed.
+ */
+class UncollectedSlots {
+
+    private static final int INITIAL_SLOT_CAPACITY = 2;
+
+    private final int[][] itemIds = new int[StatusOfferList.NUM_SLOTS][INITIAL_SLOT_CAPACITY];
+    private final long[][] quantities = new long[StatusOfferList.NUM_SLOTS][INITIAL_SLOT_CAPACITY];
+    private final int[] sizes = new int[StatusOfferList.NUM_SLOTS];
+
+    boolean contains(int slot, int itemId) {
+        return indexOf(slot, itemId) != -1;
+    }
+
+    void add(int slot, int itemId, long quantity) {
+        int i = indexOf(slot, itemId);
+        if (i != -1) {
+            quantities[slot][i] += quantity;
+            return;
+        }
+        int size = sizes[slot];
+        if (size == itemIds[slot].length) {
+            itemIds[slot] = Arrays.copyOf(itemIds[slot], size * 2);
+            quantities[slot] = Arrays.copyOf(quantities[slot], size * 2);
+        }
+        itemIds[slot][size] = itemId;
+        quantities[slot][size] = quantity;
+        sizes[slot] = size + 1;
+    }
+
+    void clear(int slot) {
+        sizes[slot] = 0;
+    }
+
+    /**
+     * Returns the first slot with a positive quantity of some item, or -1 if there is nothing to collect.
+     */
+    int findUncollectedSlot() {
+        for (int slot = 0; slot < sizes.length; slot++) {
+            long[] q = quantities[slot];
+            for (int i = 0; i < sizes[slot]; i++) {
+                if (q[i] > 0) {
+                    return slot;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the positive quantities of a slot to itemIdToQuantity.
+     */
+    void addSlotTo(int slot, Map<Integer, Long> itemIdToQuantity) {
+        for (int i = 0; i < sizes[slot]; i++) {
+            if (quantities[slot][i] > 0) {
+                itemIdToQuantity.merge(itemIds[slot][i], quantities[slot][i], Long::sum);
+            }
+        }
+    }
+
+    void addAllTo(Map<Integer, Long> itemIdToQuantity) {
+        for (int slot = 0; slot < sizes.length; slot++) {
+            addSlotTo(slot, itemIdToQuantity);
+        }
+    }
+
+    private int indexOf(int slot, int itemId) {
+        int[] ids = itemIds[slot];
+        for (int i = 0; i < sizes[slot]; i++) {
+            if (ids[i] == itemId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,83 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+
+/**
+ * The wiki /mapping document (name, buy limit, members, high alch of every item) held as parallel arrays rather than
+ * a JsonNode tree. Entry i describes item itemIds[i]; item ids are kept sorted so lookups are a binary search.
+ */
+public class WikiItemMapping {
+
+    public int size;
+    public int[] itemIds;
+    public String[] names;
+    public int[] limits;
+    public int[] highAlchs;
+    public boolean[] members;
+
+    public WikiItemMapping(int capacity) {
+        itemIds = new int[capacity];
+        names = new String[capacity];
+        limits = new int[capacity];
+        highAlchs = new int[capacity];
+        members = new boolean[capacity];
+    }
+
+    public void add(int itemId, String name, int limit, int highAlch, boolean isMembers) {
+        if (size == itemIds.length) {
+            int capacity = Math.max(16, size * 2);
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            limits = Arrays.copyOf(limits, capacity);
+            highAlchs = Arrays.copyOf(highAlchs, capacity);
+            members = Arrays.copyOf(members, capacity);
+        }
+        itemIds[size] = itemId;
+        names[size] = name;
+        limits[size] = limit;
+        highAlchs[size] = highAlch;
+        members[size] = isMembers;
+        size++;
+    }
+
+    public int indexOf(int itemId) {
+        int i = Arrays.binarySearch(itemIds, 0, size, itemId);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * The wiki doesn't promise any order for /mapping, so this sorts by item id if it isn't already.
+     */
+    public void ensureSorted() {
+        for (int i = 1; i < size; i++) {
+            if (itemIds[i - 1] > itemIds[i]) {
+                sort();
+                return;
+            }
+        }
+    }
+
+    private void sort() {
+        long[] idToPos = new long[size];
+        for (int i = 0; i < size; i++) {
+            idToPos[i] = ((long) itemIds[i] << 32) | i;
+        }
+        Arrays.sort(idToPos);
+        String[] sortedNames = new String[names.length];
+        int[] sortedLimits = new int[limits.length];
+        int[] sortedHighAlchs = new int[highAlchs.length];
+        boolean[] sortedMembers = new boolean[members.length];
+        for (int i = 0; i < size; i++) {
+            int pos = (int) idToPos[i];
+            itemIds[i] = (int) (idToPos[i] >>> 32);
+            sortedNames[i] = names[pos];
+            sortedLimits[i] = limits[pos];
+            sortedHighAlchs[i] = highAlchs[pos];
+            sortedMembers[i] = members[pos];
+        }
+        names = sortedNames;
+        limits = sortedLimits;
+        highAlchs = sortedHighAlchs;
+        members = sortedMembers;
+    }
+}
@@ -16,4 +16,8 @@ public class WikiItemStats {
     private int overallAverage;
     private int highPriceVolume;
     private int lowPriceVolume;
+    private int highTime;
+    private int lowTime;
+    private int buyLimit;
+    private boolean members;
 }
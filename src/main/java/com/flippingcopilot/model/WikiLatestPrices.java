@@ -0,0 +1,83 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+
+/**
+ * The wiki /latest snapshot held as primitive parallel arrays rather than an object per item. Entry i describes item
+ * itemIds[i]; item ids are kept sorted so lookups are a binary search. Prices and times the wiki reports as null are
+ * stored as 0.
+ */
+public class WikiLatestPrices {
+
+    public int size;
+    public int[] itemIds;
+    public int[] highs;
+    public int[] lows;
+    public int[] highTimes;
+    public int[] lowTimes;
+
+    public WikiLatestPrices(int capacity) {
+        itemIds = new int[capacity];
+        highs = new int[capacity];
+        lows = new int[capacity];
+        highTimes = new int[capacity];
+        lowTimes = new int[capacity];
+    }
+
+    public void add(int itemId, int high, int highTime, int low, int lowTime) {
+        if (size == itemIds.length) {
+            int capacity = Math.max(16, size * 2);
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            highs = Arrays.copyOf(highs, capacity);
+            lows = Arrays.copyOf(lows, capacity);
+            highTimes = Arrays.copyOf(highTimes, capacity);
+            lowTimes = Arrays.copyOf(lowTimes, capacity);
+        }
+        itemIds[size] = itemId;
+        highs[size] = high;
+        lows[size] = low;
+        highTimes[size] = highTime;
+        lowTimes[size] = lowTime;
+        size++;
+    }
+
+    public int indexOf(int itemId) {
+        int i = Arrays.binarySearch(itemIds, 0, size, itemId);
+        return i >= 0 ? i : -1;
+    }
+
+    /**
+     * The wiki returns items in ascending id order, this only does any work if that ever stops being the case.
+     */
+    public void ensureSorted() {
+        for (int i = 1; i < size; i++) {
+            if (itemIds[i - 1] > itemIds[i]) {
+                sort();
+                return;
+            }
+        }
+    }
+
+    private void sort() {
+        long[] idToPos = new long[size];
+        for (int i = 0; i < size; i++) {
+            idToPos[i] = ((long) itemIds[i] << 32) | i;
+        }
+        Arrays.sort(idToPos);
+        int[][] columns = {highs, lows, highTimes, lowTimes};
+        for (int c = 0; c < columns.length; c++) {
+            int[] sorted = new int[columns[c].length];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = columns[c][(int) idToPos[i]];
+            }
+            columns[c] = sorted;
+        }
+        for (int i = 0; i < size; i++) {
+            itemIds[i] = (int) (idToPos[i] >>> 32);
+        }
+        highs = columns[0];
+        lows = columns[1];
+        highTimes = columns[2];
+        lowTimes = columns[3];
+    }
+}
@@ -0,0 +1,43 @@
+package com.flippingcopilot.model;
+
+import java.util.Arrays;
+
+/**
+ * One bucket of the wiki /5m or /1h timeseries for every item, held as primitive parallel arrays. Entry i describes
+ * item itemIds[i]. Averages the wiki reports as null (no trades in the bucket) are stored as 0.
+ */
+public class WikiPriceBucket {
+
+    public int timestamp;
+    public int size;
+    public int[] itemIds;
+    public int[] avgHighs;
+    public int[] avgLows;
+    public int[] highVolumes;
+    public int[] lowVolumes;
+
+    public WikiPriceBucket(int capacity) {
+        itemIds = new int[capacity];
+        avgHighs = new int[capacity];
+        avgLows = new int[capacity];
+        highVolumes = new int[capacity];
+        lowVolumes = new int[capacity];
+    }
+
+    public void add(int itemId, int avgHigh, int highVolume, int avgLow, int lowVolume) {
+        if (size == itemIds.length) {
+            int capacity = Math.max(16, size * 2);
+            itemIds = Arrays.copyOf(itemIds, capacity);
+            avgHighs = Arrays.copyOf(avgHighs, capacity);
+            avgLows = Arrays.copyOf(avgLows, capacity);
+            highVolumes = Arrays.copyOf(highVolumes, capacity);
+            lowVolumes = Arrays.copyOf(lowVolumes, capacity);
+        }
+        itemIds[size] = itemId;
+        avgHighs[size] = avgHigh;
+        avgLows[size] = avgLow;
+        highVolumes[size] = highVolume;
+        lowVolumes[size] = lowVolume;
+        size++;
+    }
+}
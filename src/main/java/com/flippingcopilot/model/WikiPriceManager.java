@@ -0,0 +1,195 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.util.WikiPriceFetcher;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Keeps an up-to-date snapshot of the wiki prices by polling the /latest, /1h and /mapping endpoints in the
+ * background. Each endpoint is fetched with a conditional GET (ETag / If-Modified-Since) so unchanged responses cost
+ * a 304 and no parsing. Failures back off exponentially with jitter. Readers only ever see complete snapshots which
+ * are swapped in atomically so getSnapshot never blocks.
+ */
+@Slf4j
+@Singleton
+@RequiredArgsConstructor(onConstructor_ = @Inject)
+public class WikiPriceManager {
+
+    private static final String API_URL = "https://prices.runescape.wiki/api/v1/osrs";
+    private static final String USER_AGENT = "FlippingCopilot/1.0";
+    private static final long REFRESH_MILLIS = 60_000;
+    private static final long REFRESH_JITTER_MILLIS = 5_000;
+    private static final long MIN_BACKOFF_MILLIS = 5_000;
+    private static final long MAX_BACKOFF_MILLIS = 15 * 60_000;
+
+    // dependencies
+    private final OkHttpClient okHttpClient;
+    private final ScheduledExecutorService executorService;
+
+    @Setter
+    private Consumer<Map<Integer, WikiItemStats>> pricesChangedCallback = (prices) -> {};
+    @Setter(AccessLevel.PACKAGE)
+    private String apiUrl = API_URL;
+
+    // state
+    private final AtomicReference<WikiPriceSnapshot> snapshot = new AtomicReference<>(WikiPriceSnapshot.EMPTY);
+    private final Endpoint<WikiLatestPrices> latest = new Endpoint<>("/latest", 60, WikiPriceFetcher::parseLatest);
+    private final Endpoint<WikiPriceBucket> hourly = new Endpoint<>("/1h", 5 * 60, WikiPriceFetcher::parseBucket);
+    private final Endpoint<WikiItemMapping> mapping = new Endpoint<>("/mapping", 6 * 60 * 60, WikiPriceFetcher::parseMapping);
+    private final Random random = new Random();
+    private OkHttpClient client;
+    private boolean dirty = false;
+    private int consecutiveFailures = 0;
+    private ScheduledFuture<?> scheduled;
+
+    public WikiPriceSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    public synchronized void start() {
+        if (scheduled == null) {
+            scheduled = executorService.schedule(this::refreshAndReschedule, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+    }
+
+    private void refreshAndReschedule() {
+        try {
+            refresh(Instant.now());
+        } finally {
+            synchronized (this) {
+                if (scheduled != null) {
+                    scheduled = executorService.schedule(this::refreshAndReschedule, nextDelayMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    // only ever called from the executor (or a test) so the endpoint state isn't shared between threads
+    boolean refresh(Instant now) {
+        try {
+            dirty |= fetchIfDue(latest, now);
+            dirty |= fetchIfDue(hourly, now);
+            dirty |= fetchIfDue(mapping, now);
+            consecutiveFailures = 0;
+        } catch (IOException e) {
+            consecutiveFailures++;
+            log.warn("error refreshing wiki prices ({} consecutive failures): {}", consecutiveFailures, e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            // e.g. a malformed body the parser chokes on, back off the same as for an io error
+            consecutiveFailures++;
+            log.warn("unexpected error refreshing wiki prices ({} consecutive failures)", consecutiveFailures, e);
+            return false;
+        }
+        if (dirty && latest.value != null) {
+            try {
+                Map<Integer, WikiItemStats> prices = Collections.unmodifiableMap(WikiPriceFetcher.join(latest.value, hourly.value, mapping.value, snapshot.get().getPrices()));
+                snapshot.set(new WikiPriceSnapshot(prices, now));
+                dirty = false;
+                log.debug("published wiki price snapshot with {} items", prices.size());
+                pricesChangedCallback.accept(prices);
+            } catch (RuntimeException e) {
+                log.warn("error publishing wiki price snapshot", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long nextDelayMillis() {
+        if (consecutiveFailures == 0) {
+            return REFRESH_MILLIS + (long) (random.nextDouble() * REFRESH_JITTER_MILLIS);
+        }
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(consecutiveFailures - 1, 16));
+        // jitter between 0.5x and 1.5x so many clients don't retry in lock step
+        return backoff / 2 + (long) (random.nextDouble() * backoff);
+    }
+
+    private <T> boolean fetchIfDue(Endpoint<T> endpoint, Instant now) throws IOException {
+        if (endpoint.checkedAt != null && endpoint.checkedAt.plusSeconds(endpoint.refreshSeconds).isAfter(now)) {
+            return false;
+        }
+        Request.Builder builder = new Request.Builder()
+                .url(apiUrl + endpoint.path)
+                .header("User-Agent", USER_AGENT);
+        if (endpoint.etag != null) {
+            builder.header("If-None-Match", endpoint.etag);
+        }
+        if (endpoint.lastModified != null) {
+            builder.header("If-Modified-Since", endpoint.lastModified);
+        }
+        try (Response response = client().newCall(builder.build()).execute()) {
+            if (response.code() == 304) {
+                endpoint.checkedAt = now;
+                return false;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("wiki " + endpoint.path + " responded with http status " + response.code());
+            }
+            try (InputStream in = response.body().byteStream()) {
+                endpoint.value = endpoint.parser.parse(in);
+            }
+            endpoint.etag = response.header("ETag");
+            endpoint.lastModified = response.header("Last-Modified");
+            endpoint.checkedAt = now;
+            return true;
+        }
+    }
+
+    private OkHttpClient client() {
+        if (client == null) {
+            // derived clients share the connection pool and dispatcher of the injected client
+            client = okHttpClient.newBuilder()
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .build();
+        }
+        return client;
+    }
+
+    private interface BodyParser<T> {
+        T parse(InputStream in) throws IOException;
+    }
+
+    private static class Endpoint<T> {
+        final String path;
+        final int refreshSeconds;
+        final BodyParser<T> parser;
+        String etag;
+        String lastModified;
+        Instant checkedAt;
+        T value;
+
+        Endpoint(String path, int refreshSeconds, BodyParser<T> parser) {
+            this.path = path;
+            this.refreshSeconds = refreshSeconds;
+            this.parser = parser;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.flippingcopilot.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable view of the wiki prices at one point in time. A new snapshot is published for every refresh that
+ * changed anything so readers can hold on to one without locking.
+ */
+@Getter
+@AllArgsConstructor
+public class WikiPriceSnapshot {
+
+    public static final WikiPriceSnapshot EMPTY = new WikiPriceSnapshot(Collections.emptyMap(), null);
+
+    private final Map<Integer, WikiItemStats> prices;
+    private final Instant fetchedAt;
+}
@@ -0,0 +1,92 @@
+package com.flippingcopilot.ui;
+
+import com.flippingcopilot.controller.FlippingCopilotConfig;
+import com.flippingcopilot.model.FlipV2;
+import net.runelite.client.ui.ColorScheme;
+
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.JList;
+import javax.swing.ListSelectionModel;
+import javax.swing.ToolTipManager;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shows flips as rows of a JList. A single FlipPanel renders every row, so only the rows visible in the scroll pane
+ * are formatted and painted, and a row's tooltip is only formatted when the mouse hovers over it.
+ */
+public class FlipList extends JList<FlipV2> {
+
+    private final FlipListModel model = new FlipListModel();
+
+    public FlipList(FlippingCopilotConfig config) {
+        setModel(model);
+        FlipPanel renderer = new FlipPanel(config);
+        setCellRenderer((list, flip, index, isSelected, cellHasFocus) -> {
+            renderer.setFlip(flip);
+            return renderer;
+        });
+        setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+        setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        setFocusable(false);
+
+        // with a fixed cell size the list doesn't measure every row on layout, rows still span the list width
+        FlipV2 prototype = new FlipV2();
+        prototype.setItemName("Prototype");
+        renderer.setFlip(prototype);
+        setFixedCellHeight(renderer.getPreferredSize().height);
+        setFixedCellWidth(1);
+        ToolTipManager.sharedInstance().registerComponent(this);
+    }
+
+    public void setFlips(List<FlipV2> flips) {
+        model.setFlips(flips);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        Point p = event.getPoint();
+        int index = locationToIndex(p);
+        if (index < 0) {
+            return null;
+        }
+        Rectangle bounds = getCellBounds(index, index);
+        if (bounds == null || !bounds.contains(p)) {
+            return null;
+        }
+        return FlipPanel.tooltipText(model.getElementAt(index));
+    }
+
+    private static class FlipListModel extends AbstractListModel<FlipV2> {
+
+        private List<FlipV2> flips = Collections.emptyList();
+
+        void setFlips(List<FlipV2> flips) {
+            int oldSize = this.flips.size();
+            this.flips = new ArrayList<>(flips);
+            // one removed and one added event for the whole page rather than one per row
+            if (oldSize > 0) {
+                fireIntervalRemoved(this, 0, oldSize - 1);
+            }
+            if (!this.flips.isEmpty()) {
+                fireIntervalAdded(this, 0, this.flips.size() - 1);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return flips.size();
+        }
+
+        @Override
+        public FlipV2 getElementAt(int index) {
+            return flips.get(index);
+        }
+    }
+}
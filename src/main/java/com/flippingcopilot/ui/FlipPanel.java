@@ -8,7 +8,6 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.time.Instant;
 import java.time.ZoneId;
@@ -17,15 +16,18 @@ import java.time.format.FormatStyle;
 
 public class FlipPanel extends JPanel {
 
-    public FlipPanel(FlipV2 flip, FlippingCopilotConfig config) {
+    private final FlippingCopilotConfig config;
+    private final JLabel itemQuantity = new JLabel();
+    private final JLabel itemNameLabel = new JLabel();
+    private final JLabel profitLabel = new JLabel();
+
+    public FlipPanel(FlippingCopilotConfig config) {
+        this.config = config;
         setLayout(new BorderLayout());
         setBackground(ColorScheme.DARKER_GRAY_COLOR);
 
-        JLabel itemQuantity = new JLabel(String.format("%d x ", flip.getClosedQuantity()));
         itemQuantity.setForeground(Color.WHITE);
 
-        JLabel itemNameLabel = new JLabel(UIUtilities.truncateString(flip.getItemName(), 20));
-
         // Create a sub-panel for the left side
         JPanel leftPanel = new JPanel();
         leftPanel.setLayout(new FlowLayout(FlowLayout.LEFT, 0, 0));
@@ -33,17 +35,26 @@ public class FlipPanel extends JPanel {
         leftPanel.add(itemQuantity);
         leftPanel.add(itemNameLabel);
 
-        JLabel profitLabel = new JLabel(UIUtilities.formatProfitWithoutGp(flip.getProfit()));
-        profitLabel.setForeground(UIUtilities.getProfitColor(flip.getProfit(), config));
-
         // Add the sub-panel to the LINE_START position
         add(leftPanel, BorderLayout.LINE_START);
         add(profitLabel, BorderLayout.LINE_END);
-        setMaximumSize(new Dimension(Integer.MAX_VALUE, getPreferredSize().height));
+    }
+
+    /**
+     * Shows flip in this panel. The panel is used as the cell renderer of FlipList, so this runs for every visible row
+     * on each paint and leaves the tooltip to tooltipText.
+     */
+    public void setFlip(FlipV2 flip) {
+        itemQuantity.setText(String.format("%d x ", flip.getClosedQuantity()));
+        itemNameLabel.setText(UIUtilities.truncateString(flip.getItemName(), 20));
+        profitLabel.setText(UIUtilities.formatProfitWithoutGp(flip.getProfit()));
+        profitLabel.setForeground(UIUtilities.getProfitColor(flip.getProfit(), config));
+    }
 
+    public static String tooltipText(FlipV2 flip) {
         String closeLabel = flip.getClosedQuantity() == flip.getOpenedQuantity() ? "Close time" : "Partial close time";
 
-        String tooltipText = String.format("Opened time: %s\nAvg buy price: %s\n%s: %s\nAvg sell price: %s\nTax paid: %s\nProfit: %s",
+        return String.format("Opened time: %s\nAvg buy price: %s\n%s: %s\nAvg sell price: %s\nTax paid: %s\nProfit: %s",
                 formatEpoch(flip.getOpenedTime()),
                 UIUtilities.formatProfit(flip.getAvgBuyPrice()),
                 closeLabel,
@@ -51,7 +62,6 @@ public class FlipPanel extends JPanel {
                 UIUtilities.formatProfit(flip.getAvgSellPrice()),
                 UIUtilities.formatProfit(flip.getTaxPaid()),
                 UIUtilities.formatProfit(flip.getProfit()));
-        setToolTipText(tooltipText);
     }
 
     public static String formatEpoch(long epochSeconds) {
@@ -0,0 +1,64 @@
+package com.flippingcopilot.ui;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.swing.Timer;
+import java.util.function.BiConsumer;
+
+/**
+ * Collapses bursts of refresh requests into one run on the Swing EDT. The first request starts a one-shot timer of
+ * windowMillis, requests arriving before it fires are folded into the pending run: flipsMaybeChanged is or-ed and the
+ * latest validLoginState wins. A login that merges many transaction batches then rebuilds the panel once per window
+ * rather than once per batch.
+ */
+@Slf4j
+public class RefreshCoalescer {
+
+    // dependencies
+    private final BiConsumer<Boolean, Boolean> refresh;
+    private final Timer timer;
+
+    // state
+    private boolean pending;
+    private boolean pendingFlipsMaybeChanged;
+    private boolean pendingValidLoginState;
+    private long requests;
+    private long runs;
+
+    public RefreshCoalescer(int windowMillis, BiConsumer<Boolean, Boolean> refresh) {
+        this.refresh = refresh;
+        this.timer = new Timer(windowMillis, e -> run());
+        this.timer.setRepeats(false);
+    }
+
+    public synchronized void request(boolean flipsMaybeChanged, boolean validLoginState) {
+        requests++;
+        pendingFlipsMaybeChanged |= flipsMaybeChanged;
+        pendingValidLoginState = validLoginState;
+        if (!pending) {
+            pending = true;
+            timer.restart();
+        }
+    }
+
+    /**
+     * @return the number of requests that were folded into another one instead of running on their own
+     */
+    public synchronized long getRefreshesAvoided() {
+        return requests - runs - (pending ? 1 : 0);
+    }
+
+    private void run() {
+        boolean flipsMaybeChanged;
+        boolean validLoginState;
+        synchronized (this) {
+            flipsMaybeChanged = pendingFlipsMaybeChanged;
+            validLoginState = pendingValidLoginState;
+            pending = false;
+            pendingFlipsMaybeChanged = false;
+            runs++;
+            log.debug("coalesced refresh running, {} refreshes avoided of {} requested", requests - runs, requests);
+        }
+        refresh.accept(flipsMaybeChanged, validLoginState);
+    }
+}
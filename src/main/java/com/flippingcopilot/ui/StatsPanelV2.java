@@ -2,6 +2,7 @@ package com.flippingcopilot.ui;
 
 import com.flippingcopilot.controller.*;
 import com.flippingcopilot.model.*;
+import com.flippingcopilot.ui.graph.ProfitCurvePanel;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.ui.ColorScheme;
@@ -18,8 +19,11 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -47,6 +51,11 @@ public class StatsPanelV2 extends JPanel {
             "Session",
             "All"};
 
+    private static final int FLIPS_PER_PAGE = 50;
+    private static final int REFRESH_WINDOW_MILLIS = 16;
+    private static final int TOP_ITEMS = 5;
+    private static final int TOP_ITEM_NAME_CHARS = 22;
+
     private static final Pattern INTERVAL_PATTERN = Pattern.compile("^-?(\\d+)([hdwmy])[()\\w\\s]*");
 
     // dependencies
@@ -65,7 +74,8 @@ public class StatsPanelV2 extends JPanel {
     private final JButton sessionResetButton = new JButton("  Reset session ");
     private JPanel profitAndSubInfoPanel;
     private JPanel subInfoPanel;
-    private final JPanel flipsPanel = new JPanel();
+    private JPanel topItemsPanel;
+    private final FlipList flipList;
     private final JLabel totalProfitVal = new JLabel("0 gp");
     private final JLabel roiVal = new JLabel("-0.00%");
     private final JLabel flipsMadeVal = new JLabel("0");
@@ -74,6 +84,7 @@ public class StatsPanelV2 extends JPanel {
     private final JLabel hourlyProfitVal = new JLabel("0 gp/hr");
     private final JLabel avgCashVal = new JLabel("0 gp");
     private final Paginator paginator;
+    private final RefreshCoalescer refreshCoalescer = new RefreshCoalescer(REFRESH_WINDOW_MILLIS, this::doRefresh);
 
     private IntervalTimeUnit selectedIntervalTimeUnit = IntervalTimeUnit.SESSION;
     private int selectedIntervalValue = -1;
@@ -100,11 +111,9 @@ public class StatsPanelV2 extends JPanel {
         setupProfitAndSubInfoPanel();
         setupSessionResetButton();
 
-        flipsPanel.setLayout(new BoxLayout(flipsPanel, BoxLayout.Y_AXIS));
-        flipsPanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
-        flipsPanel.setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+        flipList = new FlipList(config);
 
-        JScrollPane scrollPane = new JScrollPane(flipsPanel);
+        JScrollPane scrollPane = new JScrollPane(flipList);
         scrollPane.setBackground(ColorScheme.DARKER_GRAY_COLOR);
         scrollPane.getVerticalScrollBar().setPreferredSize(new Dimension(2, 0));
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
@@ -315,10 +324,15 @@ public class StatsPanelV2 extends JPanel {
 
         // Create the sub-info panel
         subInfoPanel = buildSubInfoPanel();
+        topItemsPanel = UIUtilities.newVerticalBoxLayoutJPanel();
+        topItemsPanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        topItemsPanel.setBorder(BorderFactory.createCompoundBorder(BorderFactory.createMatteBorder(0,0,1,0, ColorScheme.DARK_GRAY_COLOR),
+                new EmptyBorder(2, 5, 5, 5)));
 
         headerPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 70));
         profitAndSubInfoPanel.add(headerPanel);
         profitAndSubInfoPanel.add(subInfoPanel);
+        profitAndSubInfoPanel.add(topItemsPanel);
 
         // Mouse listener to handle expand/collapse and hover effects
         MouseAdapter headerMouseListener = new MouseAdapter() {
@@ -331,6 +345,7 @@ public class StatsPanelV2 extends JPanel {
                     rsAccountDropdown.setVisible(false);
                 }
                 subInfoPanel.setVisible(!isExpanded);
+                topItemsPanel.setVisible(!isExpanded);
                 arrowLabel.setIcon(isExpanded ? OPEN_ICON : CLOSE_ICON);
                 log.debug("profit and sub info panel clicked");
             }
@@ -350,6 +365,20 @@ public class StatsPanelV2 extends JPanel {
             }
         };
 
+        JPopupMenu flipsMenu = new JPopupMenu();
+        JMenuItem exportItem = new JMenuItem("Export flips to CSV...");
+        exportItem.addActionListener(e -> exportFlips());
+        JMenuItem importItem = new JMenuItem("Import flips from CSV...");
+        importItem.addActionListener(e -> importFlips());
+        JMenuItem profitCurveItem = new JMenuItem("Show profit chart");
+        profitCurveItem.addActionListener(e -> showProfitCurve());
+        flipsMenu.add(profitCurveItem);
+        flipsMenu.addSeparator();
+        flipsMenu.add(exportItem);
+        flipsMenu.add(importItem);
+        headerPanel.setComponentPopupMenu(flipsMenu);
+        profitTextPanel.setInheritsPopupMenu(true);
+
         // Add mouse listener to header components
         headerPanel.addMouseListener(headerMouseListener);
         totalProfitVal.addMouseListener(headerMouseListener);
@@ -367,13 +396,17 @@ public class StatsPanelV2 extends JPanel {
     // - plugin config changed (Client thread)
     // - page changed (Swing EDT thread)
     //
+    // calls within REFRESH_WINDOW_MILLIS of each other are coalesced into one update on the Swing EDT thread
 
     public void refresh(boolean flipsMaybeChanged, boolean validLoginState) {
-        if(!SwingUtilities.isEventDispatchThread()) {
-            // we always execute this in the Swing EDT thread
-            SwingUtilities.invokeLater(() -> refresh(flipsMaybeChanged, validLoginState));
-            return;
-        }
+        refreshCoalescer.request(flipsMaybeChanged, validLoginState);
+    }
+
+    public long getRefreshesAvoided() {
+        return refreshCoalescer.getRefreshesAvoided();
+    }
+
+    private void doRefresh(boolean flipsMaybeChanged, boolean validLoginState) {
         lastValidState = validLoginState;
         if (!validLoginState) {
             totalProfitVal.setText("0 gp");
@@ -383,7 +416,8 @@ public class StatsPanelV2 extends JPanel {
             sessionTimeVal.setText("00:00:00");
             hourlyProfitVal.setText("0 gp/hr");
             avgCashVal.setText("0 gp");
-            flipsPanel.removeAll();
+            flipList.setFlips(Collections.emptyList());
+            topItemsPanel.removeAll();
             paginator.setTotalPages(1);
             boolean v = IntervalTimeUnit.SESSION.equals(selectedIntervalTimeUnit);
             SESSION_STATS_INDS.forEach(i -> subInfoPanel.getComponent(i).setVisible(v));
@@ -410,11 +444,10 @@ public class StatsPanelV2 extends JPanel {
 
         SessionData sd = sessionManager.getCachedSessionData();
         Stats stats = flipManager.getIntervalStats();
-        paginator.setTotalPages(1 + stats.flipsMade / 50);
+        paginator.setTotalPages(1 + stats.flipsMade / FLIPS_PER_PAGE);
         long s = System.nanoTime();
         if (flipsMaybeChanged) {
-            flipsPanel.removeAll();
-            flipManager.getPageFlips(paginator.getPageNumber(), 50).forEach(f -> flipsPanel.add(new FlipPanel(f, config)));
+            flipList.setFlips(flipManager.getPageFlips(paginator.getPageNumber(), FLIPS_PER_PAGE));
             // labels displayed to the user
             roiVal.setText(String.format("%.3f%%", stats.calculateRoi() * 100));
             roiVal.setForeground(UIUtilities.getProfitColor(stats.profit, config));
@@ -422,6 +455,7 @@ public class StatsPanelV2 extends JPanel {
             taxPaidVal.setText(UIUtilities.formatProfit(stats.taxPaid));
             totalProfitVal.setText(UIUtilities.formatProfit(stats.profit));
             totalProfitVal.setForeground(UIUtilities.getProfitColor(stats.profit, config));
+            populateTopItems(flipManager.getIntervalTopItems(TOP_ITEMS));
             log.debug("populating flips took {}ms", (System.nanoTime() - s) / 1000_000);
         }
 
@@ -441,6 +475,91 @@ public class StatsPanelV2 extends JPanel {
         }
     }
 
+    private void showProfitCurve() {
+        String displayName = flipManager.getIntervalDisplayName();
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this),
+                "Profit chart - " + (displayName == null ? ALL_ACCOUNTS_DROPDOWN_OPTION : displayName));
+        dialog.setContentPane(new ProfitCurvePanel(flipManager.getIntervalProfitCurve()));
+        dialog.setModalityType(Dialog.ModalityType.MODELESS);
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.setMinimumSize(new Dimension(500, 250));
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    private void exportFlips() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("flips_" + LocalDate.now() + ".csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        ProgressMonitor monitor = new ProgressMonitor(this, "Exporting flips to " + file.getName(), null, 0, 1);
+        flipManager.exportFlipsAsync(file,
+                (written, total) -> SwingUtilities.invokeLater(() -> {
+                    monitor.setMaximum(Math.max(1, total));
+                    monitor.setProgress(written);
+                }),
+                (error) -> SwingUtilities.invokeLater(() -> {
+                    monitor.close();
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(this, "Error exporting flips: " + error.getMessage(), "Export failed", JOptionPane.ERROR_MESSAGE);
+                    }
+                }));
+    }
+
+    private void importFlips() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        // the number of flips isn't known up front, the file size is a good enough guide at ~130 bytes a flip
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing flips from " + file.getName(), "", 0, (int) Math.max(1, file.length() / 130));
+        flipManager.importFlipsAsync(file,
+                (imported) -> SwingUtilities.invokeLater(() -> {
+                    monitor.setNote(imported + " flips imported");
+                    monitor.setProgress(Math.min(imported, monitor.getMaximum() - 1));
+                }),
+                (error) -> SwingUtilities.invokeLater(() -> {
+                    monitor.close();
+                    if (error != null) {
+                        JOptionPane.showMessageDialog(this, "Error importing flips: " + error.getMessage(), "Import failed", JOptionPane.ERROR_MESSAGE);
+                    }
+                }));
+    }
+
+    private void populateTopItems(List<ItemProfit> topItems) {
+        topItemsPanel.removeAll();
+        if (!topItems.isEmpty()) {
+            JLabel title = new JLabel("Top items:");
+            title.setFont(FontManager.getRunescapeSmallFont());
+            title.setBorder(new EmptyBorder(4, 2, 0, 2));
+            topItemsPanel.add(title);
+        }
+        for (ItemProfit item : topItems) {
+            String name = item.itemName == null ? "Item " + item.itemId : item.itemName;
+            if (name.length() > TOP_ITEM_NAME_CHARS) {
+                name = name.substring(0, TOP_ITEM_NAME_CHARS - 3) + "...";
+            }
+            JLabel value = new JLabel(UIUtilities.formatProfit(item.profit) + " (" + item.flipsMade + ")");
+            JPanel row = buildSubInfoPanelItem(name, value, UIUtilities.getProfitColor(item.profit, config));
+            row.setToolTipText(String.format("<html>%s<br>Flips: %d<br>ROI: %.3f%%<br>Avg hold: %s</html>",
+                    name, item.flipsMade, item.calculateRoi() * 100, formatHoldTime(item.avgHoldSeconds)));
+            topItemsPanel.add(row);
+        }
+        topItemsPanel.revalidate();
+        topItemsPanel.repaint();
+    }
+
+    private static String formatHoldTime(long seconds) {
+        if (seconds < 3600) {
+            return String.format("%dm", seconds / 60);
+        }
+        return String.format("%dh %02dm", seconds / 3600, (seconds % 3600) / 60);
+    }
+
     private boolean selectedDisplayNameOutOfDate(String selectedDisplayName) {
         String oldSelectedDisplayName = (String) rsAccountDropdown.getSelectedItem();
         if (ALL_ACCOUNTS_DROPDOWN_OPTION.equals(oldSelectedDisplayName) && selectedDisplayName == null) {
@@ -5,6 +5,8 @@ import com.flippingcopilot.controller.FlippingCopilotConfig;
 import com.flippingcopilot.manger.PriceGraphConfigManager;
 import com.flippingcopilot.model.ItemPrice;
 import com.flippingcopilot.model.OsrsLoginManager;
+import com.flippingcopilot.model.PriceHistoryManager;
+import com.flippingcopilot.model.WikiPriceManager;
 import com.flippingcopilot.ui.Spinner;
 import com.flippingcopilot.ui.graph.model.Constants;
 import com.flippingcopilot.ui.graph.model.Data;
@@ -41,6 +43,8 @@ public class PriceGraphController {
     private final ApiRequestHandler apiRequestHandler;
     private final OsrsLoginManager osrsLoginManager;
     private final ItemManager itemManager;
+    private final PriceHistoryManager priceHistoryManager;
+    private final WikiPriceManager wikiPriceManager;
 
     // state
     private GraphPanel graphPanel;
@@ -104,13 +108,19 @@ public class PriceGraphController {
     }
 
     public void loadAndAndShowPriceGraph(int itemId) {
-        Consumer<ItemPrice> consumer = (ItemPrice i) -> {
-            Data d = firstNonNull(i.getGraphData(), new Data());
-            d.loadingErrorMessage = i.getMessage();
-            setUserItemGraphData(d);
-        };
         ItemComposition item = itemManager.getItemComposition(itemId);
-        apiRequestHandler.asyncGetItemPriceWithGraphData(itemId, osrsLoginManager.getPlayerDisplayName(), consumer);
+        // prefer the local wiki history, it's on disk so there's nothing to wait for
+        Data local = priceHistoryManager.buildGraphData(itemId, item.getName(), wikiPriceManager.getSnapshot().getPrices().get(itemId));
+        if (local != null) {
+            setUserItemGraphData(local);
+        } else {
+            Consumer<ItemPrice> consumer = (ItemPrice i) -> {
+                Data d = firstNonNull(i.getGraphData(), new Data());
+                d.loadingErrorMessage = i.getMessage();
+                setUserItemGraphData(d);
+            };
+            apiRequestHandler.asyncGetItemPriceWithGraphData(itemId, osrsLoginManager.getPlayerDisplayName(), consumer);
+        }
         showPriceGraph(item.getName(), false);
     }
 
@@ -0,0 +1,99 @@
+package com.flippingcopilot.ui.graph;
+
+import com.flippingcopilot.model.ProfitCurve;
+import com.flippingcopilot.ui.UIUtilities;
+import com.flippingcopilot.ui.graph.model.*;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws the cumulative profit of a ProfitCurve as a line, with the same axes and grid as the price graph, plus its
+ * profit, gp/hr and max drawdown above the plot.
+ */
+public class ProfitCurvePanel extends JPanel {
+
+    private static final int MIN_Y_RANGE = 100;
+
+    private final ProfitCurve curve;
+    private final Config config = new Config();
+    private final RenderV2 renderer = new RenderV2();
+    private final PlotArea pa = new PlotArea();
+    private final List<Datapoint> datapoints = new ArrayList<>();
+    // the graph plots int prices, so a curve beyond the int range is plotted in thousands (or millions) of gp
+    private final long priceUnit;
+
+    public ProfitCurvePanel(ProfitCurve curve) {
+        this.curve = curve;
+        long min = 0;
+        long max = 0;
+        for (long p : curve.profits) {
+            min = Math.min(min, p);
+            max = Math.max(max, p);
+        }
+        long unit = 1;
+        while (Math.max(max, -min) / unit > Integer.MAX_VALUE / 4) {
+            unit *= 1000;
+        }
+        priceUnit = unit;
+
+        if (curve.size() > 0) {
+            datapoints.add(new Datapoint(curve.hourStarts[0], 0, true, Datapoint.Type.HOUR_AVERAGE));
+            for (int i = 0; i < curve.size(); i++) {
+                int hourEnd = curve.hourStarts[i] + Constants.HOUR_SECONDS;
+                datapoints.add(new Datapoint(hourEnd, (int) (curve.profits[i] / priceUnit), true, Datapoint.Type.HOUR_AVERAGE));
+            }
+        }
+        int yMin = (int) (min / priceUnit);
+        int yMax = (int) (max / priceUnit);
+        int padding = Math.max(MIN_Y_RANGE, (yMax - yMin) / 10);
+        int xMin = curve.size() > 0 ? curve.hourStarts[0] : 0;
+        int xMax = curve.size() > 0 ? curve.hourStarts[curve.size() - 1] + Constants.HOUR_SECONDS : Constants.HOUR_SECONDS;
+        pa.bounds = new Bounds(xMin, xMax, yMin - padding, yMax + padding);
+
+        setBackground(config.backgroundColor);
+        setPreferredSize(new Dimension(800, 450));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        pa.w = getWidth() - pa.leftPadding - pa.rightPadding;
+        pa.h = getHeight() - pa.topPadding - pa.bottomPadding;
+        if (pa.w <= 0 || pa.h <= 0) {
+            return;
+        }
+
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+        Graphics2D plotAreaG2 = (Graphics2D) g2.create(pa.leftPadding, pa.topPadding, pa.w, pa.h);
+        plotAreaG2.setColor(config.plotAreaColor);
+        plotAreaG2.fillRect(0, 0, pa.w, pa.h);
+
+        TimeAxis xAxis = AxisCalculator.calculateTimeAxis(pa, AxisCalculator.getLocalTimeOffsetSeconds());
+        PriceAxis yAxis = AxisCalculator.calculatePriceAxis(pa);
+        renderer.drawGrid(plotAreaG2, config, pa, xAxis, yAxis);
+        renderer.drawAxes(g2, config, pa, xAxis, yAxis, priceUnit);
+        renderer.drawLines(plotAreaG2, pa, datapoints, config.lowColor, Config.NORMAL_STROKE);
+        plotAreaG2.dispose();
+
+        drawSummary(g2);
+    }
+
+    private void drawSummary(Graphics2D g2) {
+        String summary = String.format("Profit: %s    %s gp/hr    Max drawdown: %s",
+                UIUtilities.formatProfit(curve.profit()),
+                UIUtilities.formatProfitWithoutGp(curve.hourlyProfit()),
+                UIUtilities.formatProfit(curve.maxDrawdown()));
+        g2.setFont(g2.getFont().deriveFont(Font.PLAIN, Config.FONT_SIZE));
+        g2.setColor(config.textColor);
+        FontMetrics metrics = g2.getFontMetrics();
+        g2.drawString(summary, pa.leftPadding + (pa.w - metrics.stringWidth(summary)) / 2, pa.topPadding / 2);
+    }
+}
@@ -37,12 +37,17 @@ public class RenderV2 {
     }
 
     public void drawAxes(Graphics2D g2, Config config,  PlotArea pa, TimeAxis xAxis, PriceAxis yAxis) {
+        drawAxes(g2, config, pa, xAxis, yAxis, 1);
+    }
+
+    // priceUnit is the gp one unit of the y axis stands for, for values too large to plot as int gp
+    public void drawAxes(Graphics2D g2, Config config,  PlotArea pa, TimeAxis xAxis, PriceAxis yAxis, long priceUnit) {
         g2.setColor(config.axisColor);
         g2.setStroke(new BasicStroke(1.0f));
         g2.drawLine(pa.leftPadding,  pa.topPadding + pa.h, pa.leftPadding + pa.w, pa.topPadding + pa.h);
         g2.drawLine(pa.leftPadding, pa.topPadding, pa.leftPadding, pa.topPadding +pa.h);
         drawXAxisLabels(g2,config, pa, xAxis);
-        drawYAxisLabels(g2, config,pa, yAxis);
+        drawYAxisLabels(g2, config,pa, yAxis, priceUnit);
     }
 
     public void drawXAxisLabels(Graphics2D g2, Config config, PlotArea pa, TimeAxis xAxis) {
@@ -75,6 +80,10 @@ public class RenderV2 {
     }
 
     public void drawYAxisLabels(Graphics2D g2, Config config, PlotArea pa, PriceAxis yAxis) {
+        drawYAxisLabels(g2, config, pa, yAxis, 1);
+    }
+
+    public void drawYAxisLabels(Graphics2D g2, Config config, PlotArea pa, PriceAxis yAxis, long priceUnit) {
         g2.setFont(g2.getFont().deriveFont(Config.FONT_SIZE));
         g2.setColor(config.textColor);
         FontMetrics metrics = g2.getFontMetrics();
@@ -83,7 +92,7 @@ public class RenderV2 {
             g2.drawLine(pa.leftPadding - Config.TICK_SIZE,pa.topPadding + y, pa.leftPadding, pa.topPadding+ y);
 
             // Format and draw the price label
-            String label = com.flippingcopilot.ui.UIUtilities.quantityToRSDecimalStack(price, true);
+            String label = com.flippingcopilot.ui.UIUtilities.formatProfitWithoutGp(price * priceUnit);
             g2.drawString(label,
                     pa.leftPadding - metrics.stringWidth(label) - Config.LABEL_PADDING,
                     pa.topPadding + y + metrics.getHeight() / 3);
@@ -1,9 +1,12 @@
 package com.flippingcopilot.ui.graph.model;
 
+import com.flippingcopilot.model.PriceHistorySeries;
+import com.flippingcopilot.model.WikiItemStats;
 import com.flippingcopilot.util.MsgPackUtil;
 import com.google.gson.annotations.SerializedName;
 import lombok.Getter;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 public class Data {
 
@@ -178,4 +181,63 @@ public class Data {
 
         return d;
     }
-}
\ No newline at end of file
+
+    /**
+     * Builds graph data from the locally stored wiki history. There are no predictions offline and the latest prices
+     * are the single most recent insta-buy/insta-sell points.
+     */
+    public static Data fromHistory(int itemId, String name, PriceHistorySeries hour, PriceHistorySeries fiveMin, WikiItemStats latest) {
+        Data d = new Data();
+        d.itemId = itemId;
+        d.name = name;
+
+        int[][] lows = nonZeroPoints(hour.times, hour.avgLows, hour.size);
+        d.low1hTimes = lows[0];
+        d.low1hPrices = lows[1];
+        int[][] highs = nonZeroPoints(hour.times, hour.avgHighs, hour.size);
+        d.high1hTimes = highs[0];
+        d.high1hPrices = highs[1];
+        lows = nonZeroPoints(fiveMin.times, fiveMin.avgLows, fiveMin.size);
+        d.low5mTimes = lows[0];
+        d.low5mPrices = lows[1];
+        highs = nonZeroPoints(fiveMin.times, fiveMin.avgHighs, fiveMin.size);
+        d.high5mTimes = highs[0];
+        d.high5mPrices = highs[1];
+
+        boolean hasLow = latest != null && latest.getLowTime() > 0 && latest.getSellPrice() > 0;
+        boolean hasHigh = latest != null && latest.getHighTime() > 0 && latest.getBuyPrice() > 0;
+        d.lowLatestTimes = hasLow ? new int[]{latest.getLowTime()} : new int[0];
+        d.lowLatestPrices = hasLow ? new int[]{latest.getSellPrice()} : new int[0];
+        d.highLatestTimes = hasHigh ? new int[]{latest.getHighTime()} : new int[0];
+        d.highLatestPrices = hasHigh ? new int[]{latest.getBuyPrice()} : new int[0];
+
+        d.predictionTimes = new int[0];
+        d.predictionLowMeans = new int[0];
+        d.predictionLowIQRUpper = new int[0];
+        d.predictionLowIQRLower = new int[0];
+        d.predictionHighMeans = new int[0];
+        d.predictionHighIQRUpper = new int[0];
+        d.predictionHighIQRLower = new int[0];
+
+        if (latest != null) {
+            d.dailyVolume = 24.0 * (latest.getHighPriceVolume() + latest.getLowPriceVolume());
+            d.buyPrice = latest.getSellPrice() > 0 ? latest.getSellPrice() + 1 : 0;
+            d.sellPrice = latest.getBuyPrice() > 1 ? latest.getBuyPrice() - 1 : 0;
+        }
+        return d;
+    }
+
+    private static int[][] nonZeroPoints(int[] times, int[] prices, int size) {
+        int[] t = new int[size];
+        int[] p = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (prices[i] > 0) {
+                t[n] = times[i];
+                p[n] = prices[i];
+                n++;
+            }
+        }
+        return new int[][]{Arrays.copyOf(t, n), Arrays.copyOf(p, n)};
+    }
+}
@@ -1,53 +1,237 @@
 package com.flippingcopilot.util;
 
+import com.flippingcopilot.model.WikiItemMapping;
 import com.flippingcopilot.model.WikiItemStats;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.extern.slf4j.Slf4j;
+import com.flippingcopilot.model.WikiLatestPrices;
+import com.flippingcopilot.model.WikiPriceBucket;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
-@Slf4j
 public class WikiPriceFetcher {
 
-    private static final String API_URL = "https://prices.runescape.wiki/api/v1/osrs/latest";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // a little over the number of items the wiki currently reports so the arrays never need to grow
+    private static final int EXPECTED_ITEM_COUNT = 4096;
 
-    public static Map<Integer, WikiItemStats> fetchPrices() {
-        Map<Integer, WikiItemStats> itemStatsMap = new HashMap<>();
+    /**
+     * Joins the latest insta-buy/insta-sell prices with the hourly traded volumes and the item mapping (name, buy
+     * limit, members, high alch) so each entry carries everything the suggestion engine scores on. The hourly and
+     * mapping documents may be null if they haven't been fetched yet. An item whose stats are unchanged since previous
+     * keeps its WikiItemStats, so the snapshot only holds new objects for the items that moved.
+     */
+    public static Map<Integer, WikiItemStats> join(WikiLatestPrices latest, WikiPriceBucket hourly, WikiItemMapping mapping,
+                                                   Map<Integer, WikiItemStats> previous) {
+        int[] highVolumes = new int[latest.size];
+        int[] lowVolumes = new int[latest.size];
+        if (hourly != null) {
+            for (int j = 0; j < hourly.size; j++) {
+                int i = latest.indexOf(hourly.itemIds[j]);
+                if (i != -1) {
+                    highVolumes[i] = hourly.highVolumes[j];
+                    lowVolumes[i] = hourly.lowVolumes[j];
+                }
+            }
+        }
 
-        try {
-            URL url = new URL(API_URL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestProperty("User-Agent", "FlippingCopilot/1.0");
+        Map<Integer, WikiItemStats> itemStatsMap = new HashMap<>(latest.size * 2);
+        for (int i = 0; i < latest.size; i++) {
+            int itemId = latest.itemIds[i];
+            int m = mapping == null ? -1 : mapping.indexOf(itemId);
+            WikiItemStats stats = new WikiItemStats(itemId,
+                    m == -1 ? null : mapping.names[m],
+                    m == -1 ? 0 : mapping.highAlchs[m],
+                    latest.highs[i],
+                    latest.lows[i],
+                    0,
+                    highVolumes[i],
+                    lowVolumes[i],
+                    latest.highTimes[i],
+                    latest.lowTimes[i],
+                    m == -1 ? 0 : mapping.limits[m],
+                    m != -1 && mapping.members[m]);
+            WikiItemStats prev = previous.get(itemId);
+            itemStatsMap.put(itemId, stats.equals(prev) ? prev : stats);
+        }
+        return itemStatsMap;
+    }
 
-            InputStream in = conn.getInputStream();
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(in).get("data");
+    /**
+     * Streams the /mapping response, a json array with an object per item, into a WikiItemMapping.
+     */
+    public static WikiItemMapping parseMapping(InputStream in) throws IOException {
+        WikiItemMapping mapping = new WikiItemMapping(EXPECTED_ITEM_COUNT);
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("expected /mapping response to be a json array");
+            }
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                int itemId = -1, limit = 0, highAlch = 0;
+                boolean members = false;
+                String name = null;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.getCurrentName();
+                    JsonToken value = p.nextToken();
+                    switch (field) {
+                        case "id":
+                            itemId = value == JsonToken.VALUE_NUMBER_INT ? p.getIntValue() : -1;
+                            break;
+                        case "name":
+                            name = value == JsonToken.VALUE_STRING ? p.getText() : null;
+                            break;
+                        case "limit":
+                            limit = value == JsonToken.VALUE_NUMBER_INT ? p.getIntValue() : 0;
+                            break;
+                        case "highalch":
+                            highAlch = value == JsonToken.VALUE_NUMBER_INT ? p.getIntValue() : 0;
+                            break;
+                        case "members":
+                            members = value == JsonToken.VALUE_TRUE;
+                            break;
+                        default:
+                            p.skipChildren();
+                    }
+                }
+                if (itemId != -1) {
+                    mapping.add(itemId, name, limit, highAlch, members);
+                }
+            }
+        }
+        mapping.ensureSorted();
+        return mapping;
+    }
 
-            for (Iterator<Map.Entry<String, JsonNode>> it = root.fields(); it.hasNext(); ) {
-                Map.Entry<String, JsonNode> entry = it.next();
-                int itemId = Integer.parseInt(entry.getKey());
-                JsonNode node = entry.getValue();
+    /**
+     * Streams the /latest response straight into primitive arrays. Unlike building a JsonNode tree this never holds
+     * the whole document in memory and allocates nothing per item beyond the array slots.
+     */
+    public static WikiLatestPrices parseLatest(InputStream in) throws IOException {
+        WikiLatestPrices prices = new WikiLatestPrices(EXPECTED_ITEM_COUNT);
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected /latest response to be a json object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                boolean isData = "data".equals(p.getCurrentName());
+                if (p.nextToken() == JsonToken.START_OBJECT && isData) {
+                    parseLatestData(p, prices);
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        prices.ensureSorted();
+        return prices;
+    }
 
-                WikiItemStats stats = new WikiItemStats();
-                stats.setItemId(itemId);
-                stats.setBuyPrice(node.get("high").asInt());
-                stats.setSellPrice(node.get("low").asInt());
-                stats.setHighPriceVolume(node.get("highTime").asInt());
-                stats.setLowPriceVolume(node.get("lowTime").asInt());
+    /**
+     * Streams a /5m or /1h timeseries response (optionally for a ?timestamp=) into primitive arrays, the same way as
+     * parseLatest.
+     */
+    public static WikiPriceBucket parseBucket(InputStream in) throws IOException {
+        WikiPriceBucket bucket = new WikiPriceBucket(EXPECTED_ITEM_COUNT);
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected timeseries response to be a json object");
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if (value == JsonToken.START_OBJECT && "data".equals(name)) {
+                    parseBucketData(p, bucket);
+                } else if (value == JsonToken.VALUE_NUMBER_INT && "timestamp".equals(name)) {
+                    bucket.timestamp = p.getIntValue();
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return bucket;
+    }
 
-                itemStatsMap.put(itemId, stats);
+    private static void parseBucketData(JsonParser p, WikiPriceBucket bucket) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            int itemId = parseInt(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
             }
+            int avgHigh = 0, highVolume = 0, avgLow = 0, lowVolume = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if (value != JsonToken.VALUE_NUMBER_INT) {
+                    p.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "avgHighPrice":
+                        avgHigh = p.getIntValue();
+                        break;
+                    case "highPriceVolume":
+                        highVolume = p.getIntValue();
+                        break;
+                    case "avgLowPrice":
+                        avgLow = p.getIntValue();
+                        break;
+                    case "lowPriceVolume":
+                        lowVolume = p.getIntValue();
+                        break;
+                }
+            }
+            bucket.add(itemId, avgHigh, highVolume, avgLow, lowVolume);
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Error fetching prices from OSRS Wiki", e);
+    private static void parseLatestData(JsonParser p, WikiLatestPrices prices) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            int itemId = parseInt(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            int high = 0, highTime = 0, low = 0, lowTime = 0;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                // field names are canonicalized by the parser so this doesn't allocate
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if (value != JsonToken.VALUE_NUMBER_INT) {
+                    p.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "high":
+                        high = p.getIntValue();
+                        break;
+                    case "highTime":
+                        highTime = p.getIntValue();
+                        break;
+                    case "low":
+                        low = p.getIntValue();
+                        break;
+                    case "lowTime":
+                        lowTime = p.getIntValue();
+                        break;
+                }
+            }
+            prices.add(itemId, high, highTime, low, lowTime);
         }
+    }
 
-        return itemStatsMap;
+    private static int parseInt(char[] chars, int offset, int length) throws IOException {
+        int v = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int d = chars[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new IOException("invalid item id " + new String(chars, offset, length));
+            }
+            v = v * 10 + d;
+        }
+        return v;
     }
 }
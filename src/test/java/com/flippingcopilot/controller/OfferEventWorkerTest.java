@@ -0,0 +1,88 @@
+package com.flippingcopilot.controller;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+public class OfferEventWorkerTest {
+
+    @Test
+    public void testTasksRunInOrderOnOneThread() throws InterruptedException {
+        OfferEventWorker worker = new OfferEventWorker();
+        int producers = 4;
+        int tasksPerProducer = 2_000;
+        // only touched by the worker thread
+        List<Integer> lastSeen = new ArrayList<>(Collections.nCopies(producers, -1));
+        Set<String> threadNames = new HashSet<>();
+        List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < tasksPerProducer; i++) {
+                    int seq = i;
+                    worker.submit(() -> {
+                        threadNames.add(Thread.currentThread().getName());
+                        if (lastSeen.get(producer) != seq - 1) {
+                            errors.add("producer " + producer + " task " + seq + " ran after " + lastSeen.get(producer));
+                        }
+                        lastSeen.set(producer, seq);
+                    });
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        worker.close();
+
+        Assert.assertEquals(Collections.emptyList(), errors);
+        Assert.assertEquals(Collections.nCopies(producers, tasksPerProducer - 1), lastSeen);
+        Assert.assertEquals(1, threadNames.size());
+        Assert.assertEquals(0, worker.getQueueDepth());
+    }
+
+    @Test
+    public void testSubmitAfterCloseStartsAgain() throws InterruptedException {
+        OfferEventWorker worker = new OfferEventWorker();
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        worker.submit(() -> ran.add(1));
+        worker.close();
+        worker.submit(() -> ran.add(2));
+        worker.close();
+        Assert.assertEquals(List.of(1, 2), ran);
+    }
+
+    @Test
+    public void testSubmitDoesntWaitForAStalledWorker() throws InterruptedException {
+        OfferEventWorker worker = new OfferEventWorker();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        worker.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // far more tasks than the worker used to buffer, all queued while it's stuck on the first
+        for (int i = 0; i < 1_000; i++) {
+            int seq = i;
+            worker.submit(() -> ran.add(seq));
+        }
+        Assert.assertTrue(worker.getQueueDepth() >= 1_000);
+        release.countDown();
+        worker.close();
+        Assert.assertEquals(1_000, ran.size());
+        Assert.assertEquals(999, (int) ran.get(999));
+    }
+}
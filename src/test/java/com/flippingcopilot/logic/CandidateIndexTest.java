@@ -0,0 +1,112 @@
+package com.flippingcopilot.logic;
+
+import com.flippingcopilot.model.WikiItemStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class CandidateIndexTest {
+
+    @Test
+    public void testBestFollowsIncrementalUpdates() {
+        CandidateIndex index = new CandidateIndex();
+        index.update(stats(1, 100, 110, false));
+        index.update(stats(2, 1000, 1100, false));
+        index.update(stats(3, 1000, 1200, true));
+        Assert.assertEquals(3, bestId(index, false, Collections.emptySet(), Long.MAX_VALUE));
+
+        // item 3's margin collapses so it should drop out of the ranking entirely
+        index.update(stats(3, 1000, 1001, true));
+        Assert.assertEquals(2, bestId(index, false, Collections.emptySet(), Long.MAX_VALUE));
+
+        index.remove(2);
+        Assert.assertEquals(1, bestId(index, false, Collections.emptySet(), Long.MAX_VALUE));
+        Assert.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testReadFilters() {
+        CandidateIndex index = new CandidateIndex();
+        index.update(stats(1, 100, 110, false));
+        index.update(stats(2, 1000, 1100, false));
+        index.update(stats(3, 1000, 1200, true));
+        Assert.assertEquals(2, bestId(index, true, Collections.emptySet(), Long.MAX_VALUE));
+        Assert.assertEquals(3, bestId(index, false, Collections.singleton(2), Long.MAX_VALUE));
+        Assert.assertEquals(1, bestId(index, false, Set.of(2, 3), Long.MAX_VALUE));
+        Assert.assertEquals(-1, bestId(index, false, Set.of(1, 2, 3), Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testBudgetTooSmallForTheLeadingItems() {
+        CandidateIndex index = new CandidateIndex();
+        // plenty of expensive items outrank the one the budget can buy
+        for (int i = 0; i < 500; i++) {
+            index.update(stats(i, 1_000_000 + i, 1_100_000 + i, false));
+        }
+        index.update(stats(1000, 100, 110, false));
+        Assert.assertEquals(1000, bestId(index, false, Collections.emptySet(), 10_000));
+        Assert.assertEquals(-1, bestId(index, false, Collections.emptySet(), 50));
+    }
+
+    @Test
+    public void testBestMatchesFullScan() {
+        Random random = new Random(0);
+        CandidateIndex index = new CandidateIndex();
+        Map<Integer, WikiItemStats> universe = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            int low = 1 + random.nextInt(random.nextBoolean() ? 1_000 : 50_000_000);
+            WikiItemStats s = stats(i, low, low + random.nextInt(low / 8 + 2), random.nextBoolean());
+            s.setHighPriceVolume(random.nextInt(100_000));
+            s.setLowPriceVolume(random.nextInt(100_000));
+            s.setBuyLimit(random.nextInt(20_000));
+            universe.put(i, s);
+            index.update(s);
+        }
+        Set<Integer> excluded = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            excluded.add(random.nextInt(3000));
+        }
+        for (long budget : new long[]{1, 100, 10_000, 1_000_000, 50_000_000, 2_000_000_000L, Long.MAX_VALUE}) {
+            for (boolean f2pOnly : new boolean[]{false, true}) {
+                Assert.assertEquals("budget " + budget + " f2p " + f2pOnly,
+                        fullScan(universe, f2pOnly, excluded, budget), bestId(index, f2pOnly, excluded, budget));
+            }
+        }
+    }
+
+    // the best item by scoring every item, the lowest id on a tie, as the index should find it
+    private static int fullScan(Map<Integer, WikiItemStats> universe, boolean f2pOnly, Set<Integer> excluded, long budget) {
+        int best = -1;
+        long bestScore = 0;
+        for (WikiItemStats s : universe.values()) {
+            if ((f2pOnly && s.isMembers()) || excluded.contains(s.getItemId())) {
+                continue;
+            }
+            long score = (long) CandidateIndex.flipMargin(s) * CandidateIndex.flipQuantity(s, budget);
+            if (score > bestScore || (score == bestScore && score > 0 && s.getItemId() < best)) {
+                bestScore = score;
+                best = s.getItemId();
+            }
+        }
+        return best;
+    }
+
+    private static int bestId(CandidateIndex index, boolean f2pOnly, Set<Integer> excluded, long budget) {
+        WikiItemStats best = index.best(f2pOnly, excluded, budget);
+        return best == null ? -1 : best.getItemId();
+    }
+
+    private static WikiItemStats stats(int itemId, int low, int high, boolean members) {
+        WikiItemStats s = new WikiItemStats();
+        s.setItemId(itemId);
+        s.setName("Item " + itemId);
+        s.setSellPrice(low);
+        s.setBuyPrice(high);
+        s.setHighPriceVolume(10_000);
+        s.setLowPriceVolume(10_000);
+        s.setBuyLimit(10_000);
+        s.setMembers(members);
+        return s;
+    }
+}
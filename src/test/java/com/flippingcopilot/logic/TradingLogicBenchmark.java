@@ -0,0 +1,69 @@
+package com.flippingcopilot.logic;
+
+import com.flippingcopilot.model.AccountStatus;
+import com.flippingcopilot.model.RSItem;
+import com.flippingcopilot.model.Suggestion;
+import com.flippingcopilot.model.WikiItemStats;
+import net.runelite.api.ItemID;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times generating a buy suggestion against a universe of 4000 items, for an account with little gp (which walks past
+ * the expensive items leading the ranking) and one with plenty. Run with ./gradlew jmh -Pbenchmark=TradingLogicBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TradingLogicBenchmark {
+
+    @Param({"100000", "50000000"})
+    public long gp;
+
+    private final TradingLogic tradingLogic = new TradingLogic();
+    private AccountStatus status;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        Map<Integer, WikiItemStats> prices = new HashMap<>();
+        for (int i = 0; i < 4000; i++) {
+            int low = 10 + random.nextInt(1_000_000);
+            WikiItemStats s = new WikiItemStats();
+            s.setItemId(i + 100);
+            s.setName("Item " + i);
+            s.setSellPrice(low);
+            s.setBuyPrice(low + random.nextInt(low / 10 + 1));
+            int volume = random.nextInt(50_000);
+            s.setHighPriceVolume(volume);
+            s.setLowPriceVolume(volume);
+            s.setBuyLimit(10_000);
+            s.setMembers(random.nextBoolean());
+            prices.put(s.getItemId(), s);
+        }
+        tradingLogic.setPrices(prices);
+        status = new AccountStatus();
+        status.setMember(true);
+        status.setUncollected(new HashMap<>());
+        status.setBlockedItems(new ArrayList<>());
+        status.getInventory().add(new RSItem(ItemID.COINS_995, gp));
+    }
+
+    @Benchmark
+    public Suggestion generateSuggestion() {
+        // generation 0, so the suggestion is generated every time rather than reused
+        return tradingLogic.generateSuggestion(status);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{TradingLogicBenchmark.class.getSimpleName(), "-prof", "gc"});
+    }
+}
@@ -0,0 +1,169 @@
+package com.flippingcopilot.logic;
+
+import com.flippingcopilot.model.*;
+import net.runelite.api.ItemID;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class TradingLogicTest {
+
+    @Test
+    public void testSuggestsMostProfitableBuy() {
+        TradingLogic tradingLogic = newTradingLogic(Arrays.asList(
+                stats(1, "Small margin", 100, 110, 10_000, false),
+                stats(2, "Big margin", 1000, 1100, 10_000, false),
+                stats(3, "Illiquid", 1000, 1200, 0, false)));
+
+        Suggestion s = tradingLogic.generateSuggestion(accountStatus(10_000_000));
+        Assert.assertEquals("buy", s.getType());
+        Assert.assertEquals(2, s.getItemId());
+        Assert.assertEquals(1001, s.getPrice());
+    }
+
+    @Test
+    public void testBlockedAndMembersItemsAreNotSuggested() {
+        TradingLogic tradingLogic = newTradingLogic(Arrays.asList(
+                stats(1, "F2p item", 100, 110, 10_000, false),
+                stats(2, "Members item", 1000, 1100, 10_000, true),
+                stats(3, "Blocked item", 1000, 1200, 10_000, false)));
+
+        AccountStatus status = accountStatus(10_000_000);
+        status.setF2pOnlyMode(true);
+        status.setBlockedItems(Collections.singletonList(3));
+        Suggestion s = tradingLogic.generateSuggestion(status);
+        Assert.assertEquals("buy", s.getType());
+        Assert.assertEquals(1, s.getItemId());
+    }
+
+    @Test
+    public void testSellsInventoryItemsBeforeBuying() {
+        TradingLogic tradingLogic = newTradingLogic(Arrays.asList(
+                stats(1, "Held item", 100, 110, 10_000, false),
+                stats(2, "Big margin", 1000, 1100, 10_000, false)));
+
+        AccountStatus status = accountStatus(10_000_000);
+        status.getInventory().add(new RSItem(1, 500));
+        Suggestion s = tradingLogic.generateSuggestion(status);
+        Assert.assertEquals("sell", s.getType());
+        Assert.assertEquals(1, s.getItemId());
+        Assert.assertEquals(500, s.getQuantity());
+        Assert.assertEquals(109, s.getPrice());
+    }
+
+    @Test
+    public void testAbortsUnprofitableBuyOffer() {
+        TradingLogic tradingLogic = newTradingLogic(Collections.singletonList(
+                stats(1, "Crashed item", 100, 110, 10_000, false)));
+
+        AccountStatus status = accountStatus(10_000_000);
+        status.getOffers().set(3, new Offer(OfferStatus.BUY, 1, 150, 100, 0, 0, 0, 0, 3, true, false));
+        Suggestion s = tradingLogic.generateSuggestion(status);
+        Assert.assertEquals("abort", s.getType());
+        Assert.assertEquals(3, s.getBoxId());
+    }
+
+    @Test
+    public void testSellOnlyModeWaits() {
+        TradingLogic tradingLogic = newTradingLogic(Collections.singletonList(
+                stats(1, "Item", 1000, 1100, 10_000, false)));
+
+        AccountStatus status = accountStatus(10_000_000);
+        status.setSellOnlyMode(true);
+        Assert.assertEquals("wait", tradingLogic.generateSuggestion(status).getType());
+    }
+
+    @Test
+    public void testReusesSuggestionForUnchangedGeneration() {
+        TradingLogic tradingLogic = newTradingLogic(Collections.singletonList(
+                stats(1, "Item", 1000, 1100, 10_000, false)));
+
+        AccountStatus status = accountStatus(10_000_000);
+        status.setGeneration(1);
+        Suggestion first = tradingLogic.generateSuggestion(status);
+        Assert.assertSame(first, tradingLogic.generateSuggestion(status));
+
+        AccountStatus next = accountStatus(10_000_000);
+        next.setGeneration(2);
+        next.setSellOnlyMode(true);
+        Assert.assertEquals("wait", tradingLogic.generateSuggestion(next).getType());
+
+        // a status built outside AccountStatusManager is never reused
+        AccountStatus untracked = accountStatus(10_000_000);
+        Assert.assertNotSame(tradingLogic.generateSuggestion(untracked), tradingLogic.generateSuggestion(untracked));
+    }
+
+    @Test
+    public void testSmallBudgetSkipsUnaffordableItems() {
+        List<WikiItemStats> universe = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            universe.add(stats(i + 100, "Expensive " + i, 5_000_000 + i, 5_500_000 + i, 10_000, false));
+        }
+        universe.add(stats(1, "Cheap item", 100, 110, 10_000, false));
+        TradingLogic tradingLogic = newTradingLogic(universe);
+
+        Suggestion s = tradingLogic.generateSuggestion(accountStatus(200_000));
+        Assert.assertEquals("buy", s.getType());
+        Assert.assertEquals(1, s.getItemId());
+        Assert.assertEquals(200_000 / 8 / 101, s.getQuantity());
+    }
+
+    @Test
+    public void testBuyMatchesFullScan() {
+        Random random = new Random(0);
+        List<WikiItemStats> universe = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            int low = 10 + random.nextInt(1_000_000);
+            universe.add(stats(i + 100, "Item " + i, low, low + random.nextInt(low / 10 + 1), random.nextInt(50_000), random.nextBoolean()));
+        }
+        TradingLogic tradingLogic = newTradingLogic(universe);
+        for (long gp : new long[]{10_000, 1_000_000, 50_000_000, 2_000_000_000L}) {
+            long budget = gp / 8;
+            WikiItemStats expected = null;
+            long bestScore = 0;
+            for (WikiItemStats stats : universe) {
+                long score = (long) CandidateIndex.flipMargin(stats) * CandidateIndex.flipQuantity(stats, budget);
+                if (score > bestScore || (score == bestScore && score > 0 && stats.getItemId() < expected.getItemId())) {
+                    bestScore = score;
+                    expected = stats;
+                }
+            }
+            Suggestion suggestion = tradingLogic.generateSuggestion(accountStatus(gp));
+            Assert.assertNotNull(expected);
+            Assert.assertEquals("buy", suggestion.getType());
+            Assert.assertEquals(expected.getItemId(), suggestion.getItemId());
+            Assert.assertEquals(CandidateIndex.flipQuantity(expected, budget), suggestion.getQuantity());
+        }
+    }
+
+    private static TradingLogic newTradingLogic(List<WikiItemStats> stats) {
+        TradingLogic tradingLogic = new TradingLogic();
+        Map<Integer, WikiItemStats> prices = new HashMap<>();
+        stats.forEach(s -> prices.put(s.getItemId(), s));
+        tradingLogic.setPrices(prices);
+        return tradingLogic;
+    }
+
+    private static AccountStatus accountStatus(long gp) {
+        AccountStatus status = new AccountStatus();
+        status.setMember(true);
+        status.setUncollected(new HashMap<>());
+        status.setBlockedItems(new ArrayList<>());
+        status.getInventory().add(new RSItem(ItemID.COINS_995, gp));
+        return status;
+    }
+
+    private static WikiItemStats stats(int itemId, String name, int low, int high, int volume, boolean members) {
+        WikiItemStats s = new WikiItemStats();
+        s.setItemId(itemId);
+        s.setName(name);
+        s.setSellPrice(low);
+        s.setBuyPrice(high);
+        s.setHighPriceVolume(volume);
+        s.setLowPriceVolume(volume);
+        s.setBuyLimit(10_000);
+        s.setMembers(members);
+        return s;
+    }
+}
@@ -0,0 +1,92 @@
+package com.flippingcopilot.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory taken by a week's worth of flips held as FlipV2 objects (the layout WeekAggregate used to have) versus held in
+ * FlipColumns. Each op builds 100k rows in a presized container, the way a snapshot is read back, so the
+ * gc.alloc.rate.norm reported by -prof gc is the footprint of the layout in bytes. Item names are shared by both, as
+ * they are when flips are read from the FlipStore. Run with ./gradlew jmh -Pbenchmark=FlipColumnsMemoryBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlipColumnsMemoryBenchmark {
+
+    private static final int FLIPS = 100_000;
+
+    private final Map<Integer, String> itemNames = new HashMap<>();
+    private final UUID[] ids = new UUID[FLIPS];
+    private final int[] itemIds = new int[FLIPS];
+    private final int[] closedTimes = new int[FLIPS];
+    private final long[] spents = new long[FLIPS];
+    private final long[] profits = new long[FLIPS];
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        int time = 1_700_000_000;
+        for (int i = 0; i < FLIPS; i++) {
+            ids[i] = UUID.randomUUID();
+            itemIds[i] = random.nextInt(4000);
+            itemNames.computeIfAbsent(itemIds[i], id -> "Item " + id);
+            time += random.nextInt(60);
+            closedTimes[i] = time;
+            spents[i] = 1000 + random.nextInt(100_000);
+            profits[i] = random.nextInt(10_000) - 5_000;
+        }
+    }
+
+    @Benchmark
+    public List<FlipV2> flipObjects() {
+        List<FlipV2> flips = new ArrayList<>(FLIPS);
+        for (int i = 0; i < FLIPS; i++) {
+            FlipV2 f = new FlipV2();
+            // a flip read from the store gets its own UUID
+            f.setId(new UUID(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits()));
+            fill(f, i);
+            flips.add(f);
+        }
+        return flips;
+    }
+
+    @Benchmark
+    public FlipColumns flipColumns() {
+        FlipColumns flips = new FlipColumns(0, FLIPS);
+        FlipV2 f = new FlipV2();
+        for (int i = 0; i < FLIPS; i++) {
+            f.setId(ids[i]);
+            fill(f, i);
+            flips.append(f);
+        }
+        return flips;
+    }
+
+    private void fill(FlipV2 f, int i) {
+        f.setItemId(itemIds[i]);
+        f.setItemName(itemNames.get(itemIds[i]));
+        f.setOpenedTime(closedTimes[i] - 600);
+        f.setOpenedQuantity(100);
+        f.setSpent(spents[i]);
+        f.setClosedTime(closedTimes[i]);
+        f.setClosedQuantity(100);
+        f.setReceivedPostTax(spents[i] + profits[i]);
+        f.setProfit(profits[i]);
+        f.setClosed(true);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{FlipColumnsMemoryBenchmark.class.getSimpleName(), "-prof", "gc"});
+    }
+}
@@ -0,0 +1,59 @@
+package com.flippingcopilot.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class FlipColumnsTest {
+
+    @Test
+    public void testStatsAfterMatchesSumOfFlips() {
+        Random random = new Random(0);
+        FlipColumns columns = new FlipColumns(0);
+        List<FlipV2> flips = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            if (!flips.isEmpty() && random.nextInt(4) == 0) {
+                FlipV2 removed = flips.remove(random.nextInt(flips.size()));
+                int row = columns.find(removed.getId(), removed.getClosedTime());
+                Assert.assertTrue(row >= 0);
+                Assert.assertEquals(removed, columns.remove(row, Collections.emptyMap()));
+            } else {
+                FlipV2 f = flip(random);
+                flips.add(f);
+                columns.insert(f);
+            }
+        }
+        Assert.assertEquals(flips.size(), columns.size());
+        for (int time : new int[]{0, 100, 2_500, 5_000, 9_999, 10_000}) {
+            Stats expected = new Stats();
+            flips.stream().filter(f -> f.getClosedTime() > time).forEach(expected::addFlip);
+            Stats actual = new Stats();
+            columns.addStats(actual, columns.firstClosedAfter(time));
+            Assert.assertEquals(expected, actual);
+        }
+        for (FlipV2 f : flips) {
+            Assert.assertEquals(f, columns.get(columns.find(f.getId(), f.getClosedTime()), Collections.emptyMap()));
+        }
+    }
+
+    private static FlipV2 flip(Random random) {
+        FlipV2 f = new FlipV2();
+        f.setId(UUID.randomUUID());
+        f.setItemId(random.nextInt(100));
+        f.setOpenedQuantity(10);
+        f.setClosedQuantity(10);
+        f.setSpent(random.nextInt(1_000_000));
+        f.setReceivedPostTax(random.nextInt(1_000_000));
+        f.setTaxPaid(random.nextInt(10_000));
+        f.setProfit(f.getReceivedPostTax() - f.getSpent());
+        f.setClosedTime(random.nextInt(10_000));
+        f.setOpenedTime(f.getClosedTime() - 60);
+        f.setClosed(true);
+        return f;
+    }
+}
@@ -0,0 +1,92 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import okhttp3.OkHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class FlipCsvTest {
+
+    @Test
+    public void testParseQuotedNames() {
+        FlipV2 f = FlipCsv.parseFlip(UUID.randomUUID() + ",3,\"Zezima, \"\"the\"\" one\",4151,\"Abyssal whip\",100,1,2000000,200,1,2100000,79000,21000,true");
+        Assert.assertEquals("Zezima, \"the\" one", f.getAccountDisplayName());
+        Assert.assertEquals("Abyssal whip", f.getItemName());
+        Assert.assertEquals(2_100_000, f.getReceivedPostTax());
+        Assert.assertTrue(f.isClosed());
+    }
+
+    @Test
+    public void testExportThenImportRoundTrip() throws IOException {
+        FlipManager source = newFlipManager();
+        Random random = new Random(0);
+        for (String displayName : new String[]{"Acc, 1", "Acc 2"}) {
+            int accountId = source.getOrAssignAccountId(displayName);
+            List<FlipV2> flips = new ArrayList<>();
+            for (int i = 0; i < 3_000; i++) {
+                FlipV2 f = new FlipV2();
+                f.setId(UUID.randomUUID());
+                f.setAccountId(accountId);
+                f.setItemId(random.nextInt(200));
+                f.setItemName("Item \"" + f.getItemId() + "\"");
+                f.setClosedTime(1_600_000_000 + random.nextInt(100_000_000));
+                f.setOpenedTime(f.getClosedTime() - 600);
+                f.setOpenedQuantity(10);
+                f.setClosedQuantity(10);
+                f.setSpent(random.nextInt(1_000_000));
+                f.setProfit(random.nextInt(20_000) - 10_000);
+                f.setReceivedPostTax(f.getSpent() + f.getProfit());
+                f.setClosed(true);
+                flips.add(f);
+            }
+            source.mergeFlips(flips, displayName);
+        }
+
+        File file = File.createTempFile("flips", ".csv");
+        try {
+            int[] lastProgress = {0, 0};
+            source.exportFlips(file, (written, total) -> {
+                lastProgress[0] = written;
+                lastProgress[1] = total;
+            });
+            Assert.assertEquals(6_000, lastProgress[0]);
+            Assert.assertEquals(6_000, lastProgress[1]);
+
+            FlipManager target = newFlipManager();
+            // an account that already exists here keeps its id, the imported ones get the next free ids
+            target.getOrAssignAccountId("Other");
+            Assert.assertEquals(6_000, target.importFlips(file, (n) -> {}));
+            Assert.assertEquals(6_000, target.importFlips(file, (n) -> {}));
+            for (String displayName : new String[]{"Acc, 1", "Acc 2"}) {
+                Assert.assertEquals(source.calculateStats(0, displayName), target.calculateStats(0, displayName));
+            }
+            Assert.assertEquals(source.calculateStats(0, null), target.calculateStats(0, null));
+            Assert.assertEquals(0, target.getOrAssignAccountId("Other"));
+            source.setIntervalDisplayName("Acc 2");
+            target.setIntervalDisplayName("Acc 2");
+            List<FlipV2> expected = source.getPageFlips(1, 100);
+            List<FlipV2> actual = target.getPageFlips(1, 100);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getId(), actual.get(i).getId());
+                Assert.assertEquals(expected.get(i).getItemName(), actual.get(i).getItemName());
+                Assert.assertEquals(expected.get(i).getProfit(), actual.get(i).getProfit());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static FlipManager newFlipManager() {
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipsChangedCallback(() -> {});
+        return flipManager;
+    }
+}
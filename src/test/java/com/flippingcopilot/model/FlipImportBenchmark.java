@@ -0,0 +1,75 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import a history of 500k flips spread over three years into an empty FlipManager, in random order like an
+ * export from several accounts. With batchSize 10000 each mergeFlips call takes the bulk path, with 100 each flip is
+ * merged one at a time, which is how a large import used to go. Run with
+ * ./gradlew jmh -Pbenchmark=FlipImportBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class FlipImportBenchmark {
+
+    private static final int FLIPS = 500_000;
+
+    @Param({"100", "10000"})
+    public int batchSize;
+
+    private List<FlipV2> flips;
+    private FlipManager flipManager;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(0);
+        int start = 1_600_000_000;
+        int span = 3 * 365 * 24 * 60 * 60;
+        flips = new ArrayList<>(FLIPS);
+        for (int i = 0; i < FLIPS; i++) {
+            FlipV2 f = new FlipV2();
+            f.setId(UUID.randomUUID());
+            f.setAccountId(random.nextInt(3));
+            f.setItemId(random.nextInt(4000));
+            f.setItemName("Item " + f.getItemId());
+            f.setOpenedQuantity(100);
+            f.setClosedQuantity(100);
+            f.setSpent(1000 + random.nextInt(100_000));
+            f.setReceivedPostTax(f.getSpent() + random.nextInt(10_000) - 5_000);
+            f.setProfit(f.getReceivedPostTax() - f.getSpent());
+            f.setClosedTime(start + random.nextInt(span));
+            f.setOpenedTime(f.getClosedTime() - 600);
+            f.setClosed(true);
+            flips.add(f);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+    }
+
+    @Benchmark
+    public Stats importFlips() {
+        for (int i = 0; i < FLIPS; i += batchSize) {
+            flipManager.mergeFlips(flips.subList(i, Math.min(FLIPS, i + batchSize)), null);
+        }
+        return flipManager.calculateStats(0, null);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{FlipImportBenchmark.class.getSimpleName(), "-prof", "gc"});
+    }
+}
@@ -0,0 +1,102 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the UI's FlipManager reads while the executor merges flips, over a history of 100k flips. One thread
+ * merges batches of updated flips while three read the interval stats, the first page and the stats since a month ago,
+ * roughly what a StatsPanelV2 refresh does. Run with ./gradlew jmh -Pbenchmark=FlipManagerBenchmark, and against the
+ * commit before the lock free read view to compare. The topItems groups time the per item breakdown over all flips and
+ * over the past month.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlipManagerBenchmark {
+
+    private static final int FLIPS = 100_000;
+    private static final int BATCH = 10;
+
+    private FlipManager flipManager;
+    private List<FlipV2> flips;
+    private int monthAgo;
+    private final Random random = new Random(0);
+
+    @Setup
+    public void setUp() {
+        int now = (int) Instant.now().getEpochSecond();
+        int start = (int) Instant.now().minus(3 * 365, ChronoUnit.DAYS).getEpochSecond();
+        monthAgo = (int) Instant.now().minus(30, ChronoUnit.DAYS).getEpochSecond();
+        flips = new ArrayList<>(FLIPS);
+        for (int i = 0; i < FLIPS; i++) {
+            FlipV2 f = new FlipV2();
+            f.setId(UUID.randomUUID());
+            f.setAccountId(random.nextInt(3));
+            f.setItemId(random.nextInt(4000));
+            f.setOpenedQuantity(100);
+            f.setClosedQuantity(100);
+            f.setSpent(1000 + random.nextInt(100_000));
+            f.setReceivedPostTax(f.getSpent() + random.nextInt(10_000) - 5_000);
+            f.setProfit(f.getReceivedPostTax() - f.getSpent());
+            f.setClosedTime(start + random.nextInt(now - start));
+            f.setOpenedTime(f.getClosedTime() - 600);
+            f.setClosed(true);
+            flips.add(f);
+        }
+        flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.mergeFlips(flips, "Acc 0");
+        flipManager.setIntervalStartTime(monthAgo);
+    }
+
+    @Benchmark
+    @Group("mergeAndRead")
+    @GroupThreads(1)
+    public void merge() {
+        List<FlipV2> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            FlipV2 f = flips.get(random.nextInt(FLIPS)).copy();
+            f.setProfit(f.getProfit() + 1);
+            batch.add(f);
+        }
+        flipManager.mergeFlips(batch, "Acc 0");
+    }
+
+    @Benchmark
+    @Group("mergeAndRead")
+    @GroupThreads(3)
+    public long read() {
+        Stats interval = flipManager.getIntervalStats();
+        List<FlipV2> page = flipManager.getPageFlips(1, 50);
+        Stats month = flipManager.calculateStats(monthAgo, null);
+        return interval.profit + page.size() + month.profit;
+    }
+
+    @Benchmark
+    @Group("topItems")
+    public List<ItemProfit> topItemsAll() {
+        return flipManager.calculateTopItems(1, null, 10);
+    }
+
+    @Benchmark
+    @Group("topItemsMonth")
+    public List<ItemProfit> topItemsMonth() {
+        return flipManager.calculateTopItems(monthAgo, null, 10);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{FlipManagerBenchmark.class.getSimpleName(), "-prof", "gc"});
+    }
+}
@@ -0,0 +1,114 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import okhttp3.OkHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public class FlipMatcherTest {
+
+    private static final int ITEM_ID = 560;
+    private static final String DISPLAY_NAME = "Acc 1";
+
+    @Test
+    public void testBuyThenSellsCloseFlipAtAverageCost() {
+        FlipManager flipManager = newFlipManager();
+        FlipMatcher matcher = newFlipMatcher(flipManager);
+
+        List<FlipV2> flips = matcher.match(List.of(
+                transaction(OfferStatus.BUY, 100, 200, 1000),
+                transaction(OfferStatus.BUY, 100, 220, 1010)), DISPLAY_NAME);
+        Assert.assertEquals(1, flips.size());
+        FlipV2 flip = flips.get(0);
+        Assert.assertEquals(200, flip.getOpenedQuantity());
+        Assert.assertEquals(42_000, flip.getSpent());
+        Assert.assertFalse(flip.isClosed());
+        flipManager.mergeFlips(flips, DISPLAY_NAME);
+
+        // a partial sell realises profit against the average buy price of 210
+        flips = matcher.match(List.of(transaction(OfferStatus.SELL, 50, 300, 1100)), DISPLAY_NAME);
+        Assert.assertEquals(1, flips.size());
+        FlipV2 partial = flips.get(0);
+        Assert.assertEquals(flip.getId(), partial.getId());
+        Assert.assertEquals(50, partial.getClosedQuantity());
+        Assert.assertEquals(50 * 294, partial.getReceivedPostTax());
+        Assert.assertEquals(50 * 6, partial.getTaxPaid());
+        Assert.assertEquals(50 * 294 - 50 * 210, partial.getProfit());
+        Assert.assertFalse(partial.isClosed());
+        // the merged flip wasn't mutated
+        Assert.assertEquals(0, flip.getClosedQuantity());
+        flipManager.mergeFlips(flips, DISPLAY_NAME);
+
+        flips = matcher.match(List.of(transaction(OfferStatus.SELL, 150, 300, 1200)), DISPLAY_NAME);
+        FlipV2 closed = flips.get(0);
+        Assert.assertEquals(200, closed.getClosedQuantity());
+        Assert.assertEquals(200 * 294 - 42_000, closed.getProfit());
+        Assert.assertEquals(1200, closed.getClosedTime());
+        Assert.assertTrue(closed.isClosed());
+        flipManager.mergeFlips(flips, DISPLAY_NAME);
+        Assert.assertNull(flipManager.getOpenFlip(closed.getAccountId(), ITEM_ID));
+    }
+
+    @Test
+    public void testSellWithoutOpenFlipIsIgnored() {
+        FlipMatcher matcher = newFlipMatcher(newFlipManager());
+        Assert.assertTrue(matcher.match(List.of(transaction(OfferStatus.SELL, 10, 300, 1000)), DISPLAY_NAME).isEmpty());
+    }
+
+    @Test
+    public void testBuyAfterCloseInSameBatchOpensNewFlip() {
+        FlipMatcher matcher = newFlipMatcher(newFlipManager());
+        List<FlipV2> flips = matcher.match(List.of(
+                transaction(OfferStatus.BUY, 10, 200, 1000),
+                transaction(OfferStatus.SELL, 10, 300, 1100),
+                transaction(OfferStatus.BUY, 5, 250, 1200)), DISPLAY_NAME);
+        Assert.assertEquals(2, flips.size());
+        Assert.assertTrue(flips.get(0).isClosed());
+        Assert.assertFalse(flips.get(1).isClosed());
+        Assert.assertNotEquals(flips.get(0).getId(), flips.get(1).getId());
+        Assert.assertEquals(5, flips.get(1).getOpenedQuantity());
+        Assert.assertEquals(flips.get(0).getAccountId(), flips.get(1).getAccountId());
+    }
+
+    @Test
+    public void testSellAtSeveralPricesKeepsActualProceeds() {
+        FlipManager flipManager = newFlipManager();
+        FlipMatcher matcher = newFlipMatcher(flipManager);
+        flipManager.mergeFlips(matcher.match(List.of(transaction(OfferStatus.BUY, 3, 200, 1000)), DISPLAY_NAME), DISPLAY_NAME);
+
+        // filled at 300, 301 and 301: 902 gp, an average the 300 floor would under-report by 2 gp
+        Transaction sell = transaction(OfferStatus.SELL, 3, 300, 1100);
+        sell.setAmountSpent(902);
+        FlipV2 flip = matcher.match(List.of(sell), DISPLAY_NAME).get(0);
+        Assert.assertEquals(3 * 6, flip.getTaxPaid());
+        Assert.assertEquals(902 - 3 * 6, flip.getReceivedPostTax());
+        Assert.assertEquals(902 - 3 * 6 - 600, flip.getProfit());
+    }
+
+    private static FlipManager newFlipManager() {
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipsChangedCallback(() -> {});
+        return flipManager;
+    }
+
+    private static FlipMatcher newFlipMatcher(FlipManager flipManager) {
+        WikiPriceManager wikiPriceManager = new WikiPriceManager(new OkHttpClient.Builder().build(), new DoesNothingExecutorService());
+        return new FlipMatcher(flipManager, wikiPriceManager);
+    }
+
+    private static Transaction transaction(OfferStatus type, int quantity, int price, long time) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setType(type);
+        t.setItemId(ITEM_ID);
+        t.setQuantity(quantity);
+        t.setPrice(price);
+        t.setAmountSpent(quantity * price);
+        t.setTimestamp(Instant.ofEpochSecond(time));
+        return t;
+    }
+}
@@ -37,7 +37,7 @@ public class FlipPriceGraphControllerTest { // The class name in your error was
 
         verifyflipManagerStoredOrder(flipManager); // Renamed from verifyFlipManagerStoredOrder
 
-        flips.sort(Comparator.comparing(FlipV2::getClosedTime).reversed().thenComparing(FlipV2::getId));
+        flips.sort(Comparator.comparing(FlipV2::getClosedTime).reversed().thenComparing(Comparator.comparing(FlipV2::getId).reversed()));
 
         // create list of test interval start times
         List<Integer> testTimes = Stream.generate(()-> randomIntBetween(sixMonthsAgo, now)).limit(100).collect(Collectors.toList());
@@ -125,6 +125,210 @@ public class FlipPriceGraphControllerTest { // The class name in your error was
         }
     }
 
+    @Test
+    public void testTopItems() {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 10_000, List.of(0, 1, 2));
+        for (FlipV2 f : flips) {
+            f.setItemId(f.getItemId() % 50);
+            f.setItemName("Test Item " + f.getItemId());
+        }
+
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+        flipManager.mergeFlips(flips, null);
+        // re-merging a flip with a new profit must move it between items, not add it twice
+        FlipV2 updated = flips.get(0).copy();
+        updated.setItemId(49 - updated.getItemId());
+        updated.setItemName("Test Item " + updated.getItemId());
+        updated.setProfit(updated.getProfit() + 1_000);
+        flipManager.mergeFlips(List.of(updated), null);
+        flips.set(0, updated);
+
+        List<Integer> testTimes = Stream.generate(()-> randomIntBetween(sixMonthsAgo, now)).limit(20).collect(Collectors.toList());
+        testTimes.add(0, 0);
+        for (String name : Arrays.asList(DISPLAY_NAME_1, DISPLAY_NAME_2, null)) {
+            for (int time : testTimes) {
+                Assert.assertEquals(expectedTopItems(flips, time, name, 10), flipManager.calculateTopItems(time, name, 10));
+            }
+        }
+    }
+
+    @Test
+    public void testProfitCurve() {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 10_000, List.of(0, 1, 2));
+
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+        flipManager.mergeFlips(flips, null);
+        // re-merged flips move between hours and weeks
+        for (int i = 0; i < 20; i++) {
+            FlipV2 updated = flips.get(i).copy();
+            updated.setClosedTime(randomIntBetween(sixMonthsAgo, now));
+            updated.setProfit(updated.getProfit() + 1_000);
+            flipManager.mergeFlips(List.of(updated), null);
+            flips.set(i, updated);
+        }
+
+        List<Integer> testTimes = Stream.generate(()-> randomIntBetween(sixMonthsAgo, now)).limit(10).collect(Collectors.toList());
+        testTimes.add(0, 0);
+        for (String name : Arrays.asList(DISPLAY_NAME_1, DISPLAY_NAME_2, null)) {
+            Integer accountId = name == null ? null : displayNameToAccountId.get(name);
+            for (int time : testTimes) {
+                ProfitCurve curve = flipManager.calculateProfitCurve(time, now, name);
+                Assert.assertTrue(curve.size() > 0);
+                Assert.assertTrue(curve.hourStarts[curve.size() - 1] < now);
+                Assert.assertTrue(curve.hourStarts[curve.size() - 1] + 60 * 60 >= now);
+                int from = curve.hourStarts[0];
+                long[] expected = new long[curve.size()];
+                for (FlipV2 f : flips) {
+                    if (accountId != null && accountId != f.getAccountId()) {
+                        continue;
+                    }
+                    Assert.assertFalse("flips after the start time are on the curve", f.getClosedTime() > time && f.getClosedTime() < from);
+                    if (f.getClosedTime() >= from) {
+                        expected[(f.getClosedTime() - from) / (60 * 60)] += f.getProfit();
+                    }
+                }
+                for (int h = 1; h < expected.length; h++) {
+                    expected[h] += expected[h - 1];
+                }
+                Assert.assertArrayEquals(expected, curve.profits);
+            }
+        }
+    }
+
+    @Test
+    public void testProfitCurveDrawdown() {
+        ProfitCurve curve = new ProfitCurve(new int[]{0, 3600, 7200, 10800}, new long[]{5, -3, 10, 4});
+        Assert.assertEquals(4, curve.profit());
+        Assert.assertEquals(1, curve.hourlyProfit());
+        Assert.assertEquals(8, curve.maxDrawdown());
+    }
+
+    @Test
+    public void testBulkMergeMatchesMergingOneByOne() {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 5_000, List.of(0, 1));
+        Random random = new Random();
+        // updates of earlier flips, some moving to another week and some left open, in the same batch as the originals
+        for (int i = 0; i < 1_000; i++) {
+            FlipV2 updated = flips.get(random.nextInt(flips.size())).copy();
+            updated.setClosedTime(randomIntBetween(sixMonthsAgo, now, random));
+            updated.setProfit(updated.getProfit() + 1);
+            if (i % 10 == 0) {
+                updated.setClosedQuantity(updated.getOpenedQuantity() - 1);
+                updated.setClosed(false);
+            }
+            flips.add(updated);
+        }
+
+        FlipManager bulk = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        FlipManager oneByOne = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        for (FlipManager flipManager : Arrays.asList(bulk, oneByOne)) {
+            flipManager.setFlipsChangedCallback(() -> {});
+            flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+            flipManager.setIntervalStartTime(sixMonthsAgo + 30 * 24 * 60 * 60);
+        }
+        // half merged in small batches first so the bulk merge also has to replace flips already stored
+        for (int i = 0; i < flips.size() / 2; i += 10) {
+            bulk.mergeFlips(flips.subList(i, i + 10), null);
+        }
+        bulk.mergeFlips(flips.subList(flips.size() / 2, flips.size()), null);
+        for (int i = 0; i < flips.size(); i += 10) {
+            oneByOne.mergeFlips(flips.subList(i, Math.min(flips.size(), i + 10)), null);
+        }
+
+        verifyflipManagerStoredOrder(bulk);
+        Assert.assertEquals(oneByOne.getIntervalStats(), bulk.getIntervalStats());
+        for (String name : Arrays.asList(DISPLAY_NAME_1, DISPLAY_NAME_2, null)) {
+            Assert.assertEquals(oneByOne.calculateStats(0, name), bulk.calculateStats(0, name));
+            Assert.assertEquals(oneByOne.calculateTopItems(0, name, 20), bulk.calculateTopItems(0, name, 20));
+            Assert.assertArrayEquals(oneByOne.calculateProfitCurve(0, now, name).profits, bulk.calculateProfitCurve(0, now, name).profits);
+            oneByOne.setIntervalDisplayName(name);
+            bulk.setIntervalDisplayName(name);
+            assertFlipListsEqual(bulk.getPageFlips(1, flips.size()), oneByOne.getPageFlips(1, flips.size()));
+        }
+        for (FlipV2 f : flips) {
+            Assert.assertEquals(oneByOne.getOpenFlip(f.getAccountId(), f.getItemId()), bulk.getOpenFlip(f.getAccountId(), f.getItemId()));
+        }
+    }
+
+    @Test
+    public void testReadersSeePublishedViewsWhileMerging() throws InterruptedException {
+        int now = (int) Instant.now().getEpochSecond();
+        int sixMonthsAgo = (int) Instant.now().minus(365/ 2, ChronoUnit.DAYS).getEpochSecond();
+        List<FlipV2> flips = generateFlipsBetween(sixMonthsAgo, now, 20_000, List.of(0, 1));
+
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+
+        // readers don't lock, so each read must see one whole published view: the flip count only ever grows and a
+        // page is always in order
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread reader = new Thread(() -> {
+            int lastFlipsMade = 0;
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    int flipsMade = flipManager.calculateStats(0, null).flipsMade;
+                    Assert.assertTrue(flipsMade >= lastFlipsMade);
+                    lastFlipsMade = flipsMade;
+                    List<FlipV2> page = flipManager.getPageFlips(1, 50);
+                    for (int i = 1; i < page.size(); i++) {
+                        Assert.assertTrue(page.get(i - 1).getClosedTime() >= page.get(i).getClosedTime());
+                    }
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < flips.size(); i += 100) {
+            flipManager.mergeFlips(flips.subList(i, Math.min(flips.size(), i + 100)), null);
+        }
+        reader.interrupt();
+        reader.join();
+        Assert.assertTrue(failures.toString(), failures.isEmpty());
+        Assert.assertEquals(expectedStats(flips, 0, null), flipManager.calculateStats(0, null));
+    }
+
+    @Test
+    public void testMergeCopiesOnlyTheChangedAccount() {
+        int now = (int) Instant.now().getEpochSecond();
+        int weekStart = now - now % (7 * 24 * 60 * 60);
+        List<FlipV2> flips = generateFlipsBetween(weekStart, now, 2_000, List.of(0, 1));
+
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipsChangedCallback(() -> {});
+        flipManager.displayNameToAccountId.putAll(displayNameToAccountId);
+        flipManager.mergeFlips(flips, null);
+        FlipManager.WeekAggregate published = flipManager.weeks.get(flipManager.weeks.size() - 1);
+        int publishedSize = published.accountIdToFlips.get(0).size();
+        Stats publishedStats = flipManager.calculateStats(weekStart, DISPLAY_NAME_1);
+
+        FlipV2 updated = flips.stream().filter(f -> f.getAccountId() == 0).findFirst().get().copy();
+        updated.setId(UUID.randomUUID());
+        updated.setClosedTime(now);
+        flipManager.mergeFlips(List.of(updated), null);
+
+        FlipManager.WeekAggregate current = flipManager.weeks.get(flipManager.weeks.size() - 1);
+        Assert.assertNotSame(published, current);
+        // the untouched account is shared with the published week, the changed one was copied before being changed
+        Assert.assertSame(published.accountIdToFlips.get(1), current.accountIdToFlips.get(1));
+        Assert.assertSame(published.accountIdToItemStats.get(1), current.accountIdToItemStats.get(1));
+        Assert.assertNotSame(published.accountIdToFlips.get(0), current.accountIdToFlips.get(0));
+        Assert.assertEquals(publishedSize, published.accountIdToFlips.get(0).size());
+        Assert.assertEquals(publishedSize + 1, current.accountIdToFlips.get(0).size());
+        Assert.assertEquals(publishedStats.flipsMade + 1, flipManager.calculateStats(weekStart, DISPLAY_NAME_1).flipsMade);
+    }
+
     // Renamed method to match convention and avoid potential conflicts
     public void verifyflipManagerStoredOrder(FlipManager flipManager) {
         for (int i =0; i < flipManager.weeks.size(); i++) {
@@ -133,9 +337,9 @@ public class FlipPriceGraphControllerTest { // The class name in your error was
                 Assert.assertTrue("Weeks should be sorted by start time", flipManager.weeks.get(i-1).weekStart <= flipManager.weeks.get(i).weekStart);
             }
             FlipManager.WeekAggregate w = flipManager.weeks.get(i);
-            for (List<FlipV2> flipsInAccount : w.accountIdToFlips.values()) { // Renamed variable for clarity
+            for (FlipColumns flipsInAccount : w.accountIdToFlips.values()) { // Renamed variable for clarity
                 for (int ii =1; ii < flipsInAccount.size(); ii++) {
-                    Assert.assertTrue("Flips within a week and account should be sorted by close time", flipsInAccount.get(ii-1).getClosedTime() <= flipsInAccount.get(ii).getClosedTime());
+                    Assert.assertTrue("Flips within a week and account should be sorted by close time", flipsInAccount.closedTime(ii-1) <= flipsInAccount.closedTime(ii));
                 }
             }
         }
@@ -188,6 +392,25 @@ public class FlipPriceGraphControllerTest { // The class name in your error was
         return stats;
     }
 
+    private List<ItemProfit> expectedTopItems(List<FlipV2> flips, int time, String displayName, int n) {
+        Integer accountId = displayName == null ? null : displayNameToAccountId.getOrDefault(displayName, -1);
+        Map<Integer, List<FlipV2>> byItem = flips.stream()
+                .filter(f -> f.getClosedTime() > time && (accountId == null || Objects.equals(accountId, f.getAccountId())))
+                .collect(Collectors.groupingBy(FlipV2::getItemId));
+        List<ItemProfit> items = new ArrayList<>();
+        byItem.forEach((itemId, itemFlips) -> {
+            Stats s = new Stats();
+            long hold = 0;
+            for (FlipV2 f : itemFlips) {
+                s.addFlip(f);
+                hold += f.getClosedTime() - f.getOpenedTime();
+            }
+            items.add(new ItemProfit(itemId, "Test Item " + itemId, s.profit, s.gross, s.taxPaid, s.flipsMade, hold / s.flipsMade));
+        });
+        items.sort(Comparator.comparingLong((ItemProfit p) -> p.profit).reversed());
+        return items.subList(0, Math.min(n, items.size()));
+    }
+
     private List<FlipV2> generateFlipsBetween(int start, int end, int number, List<Integer> accountIds) {
         List<FlipV2> flips = new ArrayList<>();
         Random random = new Random(); // Create Random instance once
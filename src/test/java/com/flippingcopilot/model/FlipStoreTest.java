@@ -0,0 +1,219 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import okhttp3.OkHttpClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class FlipStoreTest {
+
+    @Test
+    public void testSnapshotAndLogTailRoundTrip() throws IOException {
+        File dir = Files.createTempDirectory("flip_store").toFile();
+        try {
+            int now = (int) Instant.now().getEpochSecond();
+            int start = (int) Instant.now().minus(180, ChronoUnit.DAYS).getEpochSecond();
+            List<FlipV2> snapshotted = generateFlips(start, now, 3_000);
+            List<FlipV2> logged = generateFlips(start, now, 500);
+
+            FlipManager flipManager = newFlipManager(dir);
+            flipManager.mergeFlips(snapshotted, "Acc 1");
+            flipManager.saveSnapshot();
+            flipManager.mergeFlips(logged, "Acc 1");
+            // re-merging a flip with new values replaces it rather than duplicating it
+            FlipV2 updated = copy(snapshotted.get(0));
+            updated.setProfit(updated.getProfit() + 1_000);
+            flipManager.mergeFlips(List.of(updated), "Acc 1");
+
+            FlipManager reloaded = newFlipManager(dir);
+            Assert.assertEquals(flipManager.calculateStats(0, null), reloaded.calculateStats(0, null));
+            Assert.assertEquals(flipManager.getDisplayNameOptions(), reloaded.getDisplayNameOptions());
+            int mid = (start + now) / 2;
+            Assert.assertEquals(flipManager.calculateStats(mid, "Acc 1"), reloaded.calculateStats(mid, "Acc 1"));
+            Assert.assertArrayEquals(flipManager.calculateProfitCurve(0, now, null).profits, reloaded.calculateProfitCurve(0, now, null).profits);
+
+            List<FlipV2> expected = flipManager.getPageFlips(1, 10_000);
+            List<FlipV2> actual = reloaded.getPageFlips(1, 10_000);
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getId(), actual.get(i).getId());
+                Assert.assertEquals(expected.get(i).getProfit(), actual.get(i).getProfit());
+                Assert.assertEquals(expected.get(i).getItemName(), actual.get(i).getItemName());
+            }
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testFlipsThatCantBeLoggedArentMerged() throws IOException {
+        File dir = Files.createTempDirectory("flip_store").toFile();
+        File missing = new File(dir, "missing");
+        try {
+            int now = (int) Instant.now().getEpochSecond();
+            List<FlipV2> flips = generateFlips(now - 3600, now, 10);
+            FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+            flipManager.setFlipStore(new FlipStore(missing));
+
+            // the log can't be created, so nothing is merged and the caller knows not to ack the transactions
+            Assert.assertFalse(flipManager.mergeFlips(flips, "Acc 1"));
+            Assert.assertEquals(0, flipManager.calculateStats(0, null).flipsMade);
+
+            Assert.assertTrue(missing.mkdir());
+            Assert.assertTrue(flipManager.mergeFlips(flips, "Acc 1"));
+            Assert.assertEquals(flips.size(), flipManager.calculateStats(0, null).flipsMade);
+        } finally {
+            for (File f : missing.listFiles() == null ? new File[0] : missing.listFiles()) {
+                f.delete();
+            }
+            missing.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        File dir = Files.createTempDirectory("flip_store").toFile();
+        try {
+            int now = (int) Instant.now().getEpochSecond();
+            List<FlipV2> flips = generateFlips(now - 3600, now, 10);
+            FlipStore store = new FlipStore(dir);
+            store.append(flips);
+            store.close();
+            File logFile = new File(dir, "flips_0.log");
+            long intact = logFile.length();
+            // a crash part way through the next record
+            Files.write(logFile.toPath(), new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+            List<FlipV2> replayed = new ArrayList<>();
+            FlipStore reloaded = new FlipStore(dir);
+            reloaded.load(content -> {}, replayed::add, new HashMap<>());
+            reloaded.close();
+            Assert.assertEquals(flips.size(), replayed.size());
+            Assert.assertEquals(intact, logFile.length());
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testUnreadableLogIsMovedAside() throws IOException {
+        File dir = Files.createTempDirectory("flip_store").toFile();
+        try {
+            int now = (int) Instant.now().getEpochSecond();
+            List<FlipV2> flips = generateFlips(now - 3600, now, 10);
+            FlipStore store = new FlipStore(dir);
+            // nothing was replayed yet, a snapshot could delete logs holding the only copy of some flips
+            Assert.assertThrows(IOException.class, store::rollGeneration);
+            store.append(flips);
+            store.close();
+            // a whole record whose item name length runs past the end of it
+            byte[] record = new byte[84];
+            ByteBuffer.wrap(record).putInt(80).position(4 + 73).putShort((short) -1);
+            Files.write(new File(dir, "flips_1.log").toPath(), record);
+
+            List<FlipV2> replayed = new ArrayList<>();
+            FlipStore reloaded = new FlipStore(dir);
+            reloaded.load(content -> {}, replayed::add, new HashMap<>());
+            Assert.assertEquals(flips.size(), replayed.size());
+            Assert.assertFalse(new File(dir, "flips_1.log").exists());
+            Assert.assertTrue(new File(dir, "flips_1.log.bad").exists());
+            // the bad log no longer looks like a log, so the snapshot won't delete it
+            reloaded.writeSnapshot(reloaded.rollGeneration(), new byte[0]);
+            reloaded.close();
+            Assert.assertTrue(new File(dir, "flips_1.log.bad").exists());
+            Assert.assertFalse(new File(dir, "flips_0.log").exists());
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testOlderSnapshotDoesntReplaceNewer() throws IOException {
+        File dir = Files.createTempDirectory("flip_store").toFile();
+        try {
+            FlipStore store = new FlipStore(dir);
+            // the shutdown snapshot finishes before the one started earlier on the executor
+            store.writeSnapshot(3, new byte[]{3});
+            store.writeSnapshot(2, new byte[]{2});
+
+            byte[] read = new byte[1];
+            new FlipStore(dir).load(content -> content.get(read), f -> {}, new HashMap<>());
+            Assert.assertEquals(3, read[0]);
+            Assert.assertArrayEquals(new String[]{"flips.snapshot"}, dir.list());
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static FlipManager newFlipManager(File dir) {
+        FlipManager flipManager = new FlipManager(new DoesNothingExecutorService(), new OkHttpClient.Builder().build());
+        flipManager.setFlipStore(new FlipStore(dir));
+        flipManager.loadFlips();
+        return flipManager;
+    }
+
+    private static List<FlipV2> generateFlips(int start, int end, int n) {
+        Random random = new Random(n);
+        List<FlipV2> flips = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            FlipV2 f = new FlipV2();
+            f.setId(UUID.randomUUID());
+            f.setAccountId(0);
+            f.setItemId(random.nextInt(100));
+            f.setItemName("Item " + f.getItemId());
+            f.setOpenedQuantity(10);
+            f.setClosedQuantity(10);
+            f.setSpent(1000 + random.nextInt(1000));
+            f.setReceivedPostTax(1000 + random.nextInt(1000));
+            f.setProfit(f.getReceivedPostTax() - f.getSpent());
+            f.setClosedTime(start + random.nextInt(end - start));
+            f.setOpenedTime(f.getClosedTime() - 60);
+            f.setClosed(true);
+            flips.add(f);
+        }
+        return flips;
+    }
+
+    private static FlipV2 copy(FlipV2 f) {
+        FlipV2 c = new FlipV2();
+        c.setId(f.getId());
+        c.setAccountId(f.getAccountId());
+        c.setItemId(f.getItemId());
+        c.setItemName(f.getItemName());
+        c.setOpenedQuantity(f.getOpenedQuantity());
+        c.setClosedQuantity(f.getClosedQuantity());
+        c.setSpent(f.getSpent());
+        c.setReceivedPostTax(f.getReceivedPostTax());
+        c.setProfit(f.getProfit());
+        c.setClosedTime(f.getClosedTime());
+        c.setOpenedTime(f.getOpenedTime());
+        c.setClosed(f.isClosed());
+        return c;
+    }
+}
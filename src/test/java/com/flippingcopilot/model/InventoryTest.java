@@ -0,0 +1,35 @@
+package com.flippingcopilot.model;
+
+import net.runelite.api.ItemID;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class InventoryTest {
+
+    @Test
+    public void testTotalsFollowChanges() {
+        Inventory inventory = new Inventory();
+        inventory.add(new RSItem(ItemID.COINS_995, 1_000));
+        inventory.add(new RSItem(560, 10));
+        inventory.add(new RSItem(560, 5));
+        Assert.assertEquals(15, inventory.getTotalAmount(560));
+        Assert.assertEquals(1_000, inventory.getTotalGp());
+
+        inventory.add(new RSItem(ItemID.PLATINUM_TOKEN, 2));
+        Assert.assertEquals(3_000, inventory.getTotalGp());
+
+        inventory.mergeItem(new RSItem(560, 100));
+        Assert.assertEquals(115, inventory.getTotalAmount(560));
+
+        inventory.set(2, new RSItem(561, 7));
+        Assert.assertEquals(110, inventory.getTotalAmount(560));
+        Assert.assertEquals(7, inventory.getTotalAmount(561));
+
+        inventory.remove(0);
+        Assert.assertEquals(2_000, inventory.getTotalGp());
+        Assert.assertEquals(Map.of(561, 7L, 560, 110L, ItemID.PLATINUM_TOKEN, 2L), inventory.getItemAmounts());
+        Assert.assertEquals(0, inventory.getTotalAmount(562));
+    }
+}
@@ -0,0 +1,30 @@
+package com.flippingcopilot.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class ItemAmountsTest {
+
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(0);
+        // few enough ids to repeat, enough to grow the table a few times
+        ItemAmounts amounts = new ItemAmounts(0);
+        Map<Integer, Long> expected = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            int itemId = random.nextInt(400) - 10;
+            long amount = random.nextInt(1_000_000);
+            amounts.add(itemId, amount);
+            expected.merge(itemId, amount, Long::sum);
+        }
+        Assert.assertEquals(expected.size(), amounts.size());
+        Assert.assertEquals(expected, amounts.toMap());
+        for (int itemId = -20; itemId < 500; itemId++) {
+            Assert.assertEquals(expected.getOrDefault(itemId, 0L).longValue(), amounts.get(itemId));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+public class PriceHistoryManagerTest {
+
+    private static final int INTERVAL = 300;
+    private static final int CAPACITY = 12;
+    private static final int NOW = 1_700_000_100;
+    private static final int NEWEST = (NOW / INTERVAL - 1) * INTERVAL;
+
+    private HttpServer server;
+    // buckets the wiki has nothing for: the newest isn't averaged yet, the others are gaps in its history
+    private final Set<Integer> emptyBuckets = Set.of(NEWEST, NEWEST - 5 * INTERVAL, NEWEST - 9 * INTERVAL);
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/5m", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            int timestamp = Integer.parseInt(query.substring(query.indexOf('=') + 1));
+            respond(exchange, emptyBuckets.contains(timestamp)
+                    ? "{\"data\":{}}"
+                    : "{\"data\":{\"2\":{\"avgHighPrice\":200,\"highPriceVolume\":5,\"avgLowPrice\":190,\"lowPriceVolume\":4}}}");
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testGapsInTheWikiHistoryArentRequestedForever() throws IOException {
+        File file = Files.createTempFile("price_history", ".bin").toFile();
+        try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+            PriceHistoryManager manager = new PriceHistoryManager(new OkHttpClient(), new DoesNothingExecutorService());
+            manager.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+            for (int run = 0; run < CAPACITY; run++) {
+                manager.fillMissing(store, "/5m", NOW, 3);
+            }
+
+            Assert.assertFalse(store.hasBucket(NEWEST));
+            for (int k = 1; k < CAPACITY; k++) {
+                Assert.assertTrue(store.hasBucket(NEWEST - k * INTERVAL));
+            }
+            Assert.assertEquals(CAPACITY - 3, store.read(2).size);
+            // only the bucket that may still be averaged is asked for again
+            Assert.assertEquals(1, manager.fillMissing(store, "/5m", NOW, 3));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.flippingcopilot.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class PriceHistoryStoreTest {
+
+    private static final int INTERVAL = 300;
+    private static final int CAPACITY = 12;
+    private static final int T0 = 1_700_000_100;
+
+    @Test
+    public void testWriteAndReadBack() throws IOException {
+        File file = Files.createTempFile("price_history", ".bin").toFile();
+        try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+            store.write(bucket(T0, 2, 100, 90));
+            store.write(bucket(T0 + INTERVAL, 2, 110, 95));
+            store.write(bucket(T0 + 2 * INTERVAL, 561, 200, 190));
+
+            PriceHistorySeries series = store.read(2);
+            Assert.assertEquals(2, series.size);
+            Assert.assertEquals(T0, series.times[0]);
+            Assert.assertEquals(100, series.avgHighs[0]);
+            Assert.assertEquals(95, series.avgLows[1]);
+            Assert.assertEquals(1, store.read(561).size);
+            Assert.assertEquals(0, store.read(4151).size);
+            Assert.assertTrue(store.hasBucket(T0 + INTERVAL));
+            Assert.assertFalse(store.hasBucket(T0 + 3 * INTERVAL));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testPersistsAcrossReopen() throws IOException {
+        File file = Files.createTempFile("price_history", ".bin").toFile();
+        try {
+            try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+                store.write(bucket(T0, 2, 100, 90));
+            }
+            try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+                Assert.assertEquals(T0, store.latestTimestamp());
+                Assert.assertEquals(90, store.read(2).avgLows[0]);
+            }
+            // a store opened with a different layout starts afresh instead of misreading the file
+            try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY * 2)) {
+                Assert.assertEquals(0, store.latestTimestamp());
+                Assert.assertEquals(0, store.read(2).size);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRingDropsBucketsOutsideWindow() throws IOException {
+        File file = Files.createTempFile("price_history", ".bin").toFile();
+        try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+            for (int i = 0; i <= CAPACITY; i++) {
+                store.write(bucket(T0 + i * INTERVAL, i == 0 ? 2 : 561, 100 + i, 90));
+            }
+            // the first bucket was overwritten by the last, so item 2 no longer shows its old price
+            Assert.assertEquals(0, store.read(2).size);
+            Assert.assertEquals(CAPACITY, store.read(561).size);
+            Assert.assertEquals(100 + CAPACITY, store.read(561).avgHighs[CAPACITY - 1]);
+
+            // a backfilled bucket older than what its ring position holds is ignored
+            store.write(bucket(T0, 2, 100, 90));
+            Assert.assertEquals(0, store.read(2).size);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testWidensRowsForNewItems() throws IOException {
+        File file = Files.createTempFile("price_history", ".bin").toFile();
+        try {
+            try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+                store.write(bucket(T0, 2, 100, 90));
+                store.write(bucket(T0 + INTERVAL, 2, 110, 95));
+                // more items than the initial rows hold, so every row is moved to a wider layout
+                WikiPriceBucket wide = new WikiPriceBucket(3000);
+                wide.timestamp = T0 + 2 * INTERVAL;
+                for (int itemId = 1; itemId <= 3000; itemId++) {
+                    wide.add(itemId, itemId + 1, 10, itemId, 20);
+                }
+                long before = file.length();
+                store.write(wide);
+                // widened in one step to the next multiple of 512 slots of 16 bytes, not doubled or sized for every item
+                Assert.assertEquals(before + CAPACITY * (3072 - 512) * 16L, file.length());
+                Assert.assertEquals(3, store.read(2).size);
+                Assert.assertEquals(110, store.read(2).avgHighs[1]);
+                Assert.assertEquals(3001, store.read(3000).avgHighs[0]);
+                Assert.assertEquals(1, store.read(3000).size);
+            }
+            try (PriceHistoryStore store = PriceHistoryStore.open(file, INTERVAL, CAPACITY)) {
+                Assert.assertEquals(3, store.read(2).size);
+                Assert.assertEquals(2500, store.read(2500).avgLows[0]);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static WikiPriceBucket bucket(int timestamp, int itemId, int avgHigh, int avgLow) {
+        WikiPriceBucket bucket = new WikiPriceBucket(1);
+        bucket.timestamp = timestamp;
+        bucket.add(itemId, avgHigh, 10, avgLow, 20);
+        return bucket;
+    }
+}
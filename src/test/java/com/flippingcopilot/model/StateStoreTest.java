@@ -0,0 +1,123 @@
+package com.flippingcopilot.model;
+
+import net.runelite.api.GrandExchangeOfferState;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+
+public class StateStoreTest {
+
+    @Test
+    public void testStateSurvivesReopen() throws IOException {
+        File dir = Files.createTempDirectory("state_store").toFile();
+        try {
+            StateStore store = new StateStore();
+            store.setDirectory(dir);
+            Assert.assertNull(store.loadOffer(1L, 3));
+            Assert.assertNull(store.loadSession(1L));
+            Assert.assertNull(store.loadPreferences());
+
+            SavedOffer offer = new SavedOffer();
+            offer.setItemId(560);
+            offer.setState(GrandExchangeOfferState.BUYING);
+            offer.setTotalQuantity(1000);
+            offer.setQuantitySold(250);
+            offer.setPrice(180);
+            offer.setSpent(45_000);
+            offer.setCopilotPriceUsed(true);
+            store.saveOffer(1L, 3, offer);
+            store.saveSession(1L, new SessionData(1_700_000_000, 60_000, 5_000_000));
+            SuggestionPreferences preferences = new SuggestionPreferences();
+            preferences.setF2pOnlyMode(true);
+            preferences.setTimeframe(30);
+            preferences.setBlockedItemIds(List.of(1, 2, 3));
+            store.savePreferences(preferences);
+            store.close();
+
+            StateStore reopened = new StateStore();
+            reopened.setDirectory(dir);
+            SavedOffer loaded = reopened.loadOffer(1L, 3);
+            Assert.assertEquals(offer, loaded);
+            Assert.assertTrue(loaded.isCopilotPriceUsed());
+            Assert.assertFalse(loaded.isWasCopilotSuggestion());
+            Assert.assertNull(reopened.loadOffer(1L, 4));
+            // accounts don't share offers
+            Assert.assertNull(reopened.loadOffer(2L, 3));
+            SessionData session = reopened.loadSession(1L);
+            Assert.assertEquals(1_700_000_000, session.startTime);
+            Assert.assertEquals(60_000, session.durationMillis);
+            Assert.assertEquals(5_000_000, session.averageCash);
+            Assert.assertEquals(preferences, reopened.loadPreferences());
+            reopened.close();
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testCorruptOfferStateIsIgnored() throws IOException {
+        File dir = Files.createTempDirectory("state_store").toFile();
+        try {
+            StateStore store = new StateStore();
+            store.setDirectory(dir);
+            SavedOffer offer = new SavedOffer();
+            offer.setItemId(560);
+            offer.setState(GrandExchangeOfferState.SELLING);
+            offer.setTotalQuantity(10);
+            for (int slot = 2; slot <= 4; slot++) {
+                store.saveOffer(1L, slot, offer);
+            }
+            store.close();
+            // the state byte follows the present byte of each 32 byte slot, after the 16 byte header
+            try (RandomAccessFile raf = new RandomAccessFile(new File(dir, "acc_1_state.bin"), "rw")) {
+                raf.seek(16 + 3 * 32 + 1);
+                raf.writeByte(42);
+                raf.seek(16 + 4 * 32 + 1);
+                raf.writeByte(-3);
+            }
+
+            StateStore reopened = new StateStore();
+            reopened.setDirectory(dir);
+            Assert.assertEquals(offer, reopened.loadOffer(1L, 2));
+            Assert.assertNull(reopened.loadOffer(1L, 3));
+            Assert.assertNull(reopened.loadOffer(1L, 4));
+            reopened.close();
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testIncompatibleFileIsReset() throws IOException {
+        File dir = Files.createTempDirectory("state_store").toFile();
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(new File(dir, "acc_1_state.bin"), "rw")) {
+                raf.writeInt(0x12345678);
+                raf.setLength(100);
+            }
+            StateStore store = new StateStore();
+            store.setDirectory(dir);
+            for (int slot = 0; slot < 8; slot++) {
+                Assert.assertNull(store.loadOffer(1L, slot));
+            }
+            Assert.assertNull(store.loadSession(1L));
+            store.close();
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.flippingcopilot.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class TransactionHistoryTest {
+
+    @Test
+    public void testItemQueryMatchesFullScan() throws IOException {
+        File file = File.createTempFile("all_transactions", ".bin");
+        File indexFile = new File(file.getPath() + ".idx");
+        try {
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            List<Transaction> all = generateTransactions(now, 5_000);
+            try (TransactionHistory history = TransactionHistory.open(file)) {
+                for (Transaction t : all) {
+                    history.append(t);
+                }
+                assertQueries(history, all, now);
+            }
+            // reopening with the saved index and then with a rebuilt one must give the same answers
+            try (TransactionHistory history = TransactionHistory.open(file)) {
+                Assert.assertEquals(all.size(), history.size());
+                assertQueries(history, all, now);
+            }
+            Assert.assertTrue(indexFile.delete());
+            try (TransactionHistory history = TransactionHistory.open(file)) {
+                assertQueries(history, all, now);
+                Transaction t = transaction(7, now, new Random(1));
+                history.append(t);
+                all.add(t);
+            }
+            try (TransactionHistory history = TransactionHistory.open(file)) {
+                assertQueries(history, all, now);
+            }
+        } finally {
+            file.delete();
+            indexFile.delete();
+        }
+    }
+
+    private static void assertQueries(TransactionHistory history, List<Transaction> all, Instant now) throws IOException {
+        for (int days : new int[]{0, 1, 7, 30, 365}) {
+            Instant since = now.minus(days, ChronoUnit.DAYS);
+            for (int itemId = 0; itemId < 20; itemId++) {
+                int id = itemId;
+                List<UUID> expected = all.stream()
+                        .filter(t -> t.getItemId() == id && !t.getTimestamp().isBefore(since))
+                        .map(Transaction::getId)
+                        .collect(Collectors.toList());
+                List<UUID> actual = history.query(itemId, since).stream()
+                        .map(Transaction::getId)
+                        .collect(Collectors.toList());
+                Assert.assertEquals(expected, actual);
+            }
+            long expectedAll = all.stream().filter(t -> !t.getTimestamp().isBefore(since)).count();
+            Assert.assertEquals(expectedAll, history.query(since).size());
+        }
+    }
+
+    private static List<Transaction> generateTransactions(Instant now, int n) {
+        Random random = new Random(n);
+        List<Transaction> transactions = new ArrayList<>(n);
+        Instant time = now.minus(90, ChronoUnit.DAYS);
+        for (int i = 0; i < n; i++) {
+            // mostly in order but with the odd transaction a little late, like offers collected after login
+            time = time.plusSeconds(random.nextInt(3000));
+            Instant t = random.nextInt(20) == 0 ? time.minusSeconds(random.nextInt(7200)) : time;
+            transactions.add(transaction(random.nextInt(20), t, random));
+        }
+        return transactions;
+    }
+
+    private static Transaction transaction(int itemId, Instant time, Random random) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setType(random.nextBoolean() ? OfferStatus.BUY : OfferStatus.SELL);
+        t.setItemId(itemId);
+        t.setPrice(1 + random.nextInt(10_000));
+        t.setQuantity(1 + random.nextInt(100));
+        t.setAmountSpent(t.getPrice() * t.getQuantity());
+        t.setBoxId(random.nextInt(8));
+        t.setTimestamp(time);
+        return t;
+    }
+}
@@ -0,0 +1,179 @@
+package com.flippingcopilot.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+public class TransactionJournalTest {
+
+    @Test
+    public void testAddsAndAcksSurviveReopen() throws IOException {
+        File file = File.createTempFile("un_acked", ".journal");
+        try {
+            List<Transaction> added = new ArrayList<>();
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                for (int i = 0; i < 10; i++) {
+                    Transaction t = transaction(i);
+                    added.add(t);
+                    journal.awaitDurable(journal.queueAdd(t));
+                }
+                journal.awaitDurable(journal.queueAck(added.subList(0, 4)));
+            }
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                List<Transaction> loaded = journal.getTransactions();
+                Assert.assertEquals(6, loaded.size());
+                for (int i = 0; i < loaded.size(); i++) {
+                    assertSameTransaction(added.get(i + 4), loaded.get(i));
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        File file = File.createTempFile("un_acked", ".journal");
+        try {
+            long intactLength;
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                journal.awaitDurable(journal.queueAdd(transaction(1)));
+                intactLength = file.length();
+                journal.awaitDurable(journal.queueAdd(transaction(2)));
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(file.length() - 3);
+            }
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                Assert.assertEquals(1, journal.getTransactions().size());
+                Assert.assertEquals(intactLength, file.length());
+                // appends carry on from the last intact record
+                journal.awaitDurable(journal.queueAdd(transaction(3)));
+            }
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                Assert.assertEquals(2, journal.getTransactions().size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUnreadableJournalIsMovedAside() throws IOException {
+        File file = File.createTempFile("un_acked", ".journal");
+        File aside = new File(file.getPath() + ".bad");
+        try {
+            // an ACK record with a valid crc claiming far more ids than it holds
+            ByteBuffer payload = ByteBuffer.allocate(5).put((byte) 2).putInt(1_000);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            ByteBuffer record = ByteBuffer.allocate(13).putInt(5).putInt((int) crc.getValue()).put(payload.array());
+            Files.write(file.toPath(), record.array());
+
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                Assert.assertEquals(0, journal.getTransactions().size());
+                journal.awaitDurable(journal.queueAdd(transaction(1)));
+            }
+            Assert.assertEquals(13, aside.length());
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                Assert.assertEquals(1, journal.getTransactions().size());
+            }
+        } finally {
+            file.delete();
+            aside.delete();
+        }
+    }
+
+    @Test
+    public void testAckedRecordsAreCompactedAway() throws IOException {
+        File file = File.createTempFile("un_acked", ".journal");
+        try {
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                for (int i = 0; i < 1000; i++) {
+                    Transaction t = transaction(i);
+                    journal.queueAdd(t);
+                    if (i % 100 != 0) {
+                        journal.queueAck(List.of(t));
+                    }
+                }
+                journal.flush();
+                Assert.assertEquals(10, journal.getTransactions().size());
+                // only the live transactions were written
+                Assert.assertTrue(file.length() < 20 * 100);
+                journal.awaitDurable(journal.queueAdd(transaction(1000)));
+            }
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                Assert.assertEquals(11, journal.getTransactions().size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentAddsAreAllCommitted() throws Exception {
+        File file = File.createTempFile("un_acked", ".journal");
+        try {
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                List<Thread> threads = new ArrayList<>();
+                for (int n = 0; n < 8; n++) {
+                    int base = n * 100;
+                    Thread thread = new Thread(() -> {
+                        for (int i = 0; i < 100; i++) {
+                            try {
+                                journal.awaitDurable(journal.queueAdd(transaction(base + i)));
+                            } catch (IOException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                    });
+                    threads.add(thread);
+                    thread.start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+            try (TransactionJournal journal = TransactionJournal.open(file)) {
+                Assert.assertEquals(800, journal.getTransactions().size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static Transaction transaction(int i) {
+        Transaction t = new Transaction();
+        t.setId(UUID.randomUUID());
+        t.setType(i % 2 == 0 ? OfferStatus.BUY : OfferStatus.SELL);
+        t.setItemId(560 + i);
+        t.setPrice(100 + i);
+        t.setQuantity(1 + i);
+        t.setBoxId(i % 8);
+        t.setAmountSpent((100 + i) * (1 + i));
+        t.setTimestamp(Instant.ofEpochMilli(1_700_000_000_000L + i));
+        t.setCopilotPriceUsed(i % 3 == 0);
+        t.setLogin(i % 5 == 0);
+        t.setOfferTotalQuantity(10 + i);
+        return t;
+    }
+
+    private static void assertSameTransaction(Transaction expected, Transaction actual) {
+        Assert.assertEquals(expected.getId(), actual.getId());
+        Assert.assertTrue(expected.equals(actual));
+        Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        Assert.assertEquals(expected.isCopilotPriceUsed(), actual.isCopilotPriceUsed());
+        Assert.assertEquals(expected.isLogin(), actual.isLogin());
+        Assert.assertEquals(expected.getOfferTotalQuantity(), actual.getOfferTotalQuantity());
+    }
+}
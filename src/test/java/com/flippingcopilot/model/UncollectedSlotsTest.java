@@ -0,0 +1,50 @@
+package com.flippingcopilot.model;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class UncollectedSlotsTest {
+
+    @Test
+    public void testAddMergesPerSlot() {
+        UncollectedSlots slots = new UncollectedSlots();
+        Assert.assertEquals(-1, slots.findUncollectedSlot());
+
+        slots.add(3, 560, 100);
+        slots.add(3, 995, 5_000);
+        slots.add(3, 560, 50);
+        // grows past the initial capacity of a slot
+        slots.add(3, 561, 1);
+        slots.add(7, 995, 1_000);
+        Assert.assertTrue(slots.contains(3, 560));
+        Assert.assertFalse(slots.contains(7, 560));
+        Assert.assertEquals(3, slots.findUncollectedSlot());
+
+        Map<Integer, Long> slot3 = new HashMap<>();
+        slots.addSlotTo(3, slot3);
+        Assert.assertEquals(Map.of(560, 150L, 995, 5_000L, 561, 1L), slot3);
+
+        Map<Integer, Long> all = new HashMap<>();
+        slots.addAllTo(all);
+        Assert.assertEquals(Map.of(560, 150L, 995, 6_000L, 561, 1L), all);
+    }
+
+    @Test
+    public void testClearAndZeroQuantities() {
+        UncollectedSlots slots = new UncollectedSlots();
+        slots.add(0, 560, 0);
+        Assert.assertTrue(slots.contains(0, 560));
+        Assert.assertEquals(-1, slots.findUncollectedSlot());
+
+        slots.add(5, 560, 10);
+        slots.clear(5);
+        Assert.assertFalse(slots.contains(5, 560));
+        Assert.assertEquals(-1, slots.findUncollectedSlot());
+        Map<Integer, Long> all = new HashMap<>();
+        slots.addAllTo(all);
+        Assert.assertEquals(Map.of(), all);
+    }
+}
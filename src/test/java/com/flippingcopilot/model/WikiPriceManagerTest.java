@@ -0,0 +1,143 @@
+package com.flippingcopilot.model;
+
+import com.flippingcopilot.controller.DoesNothingExecutorService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WikiPriceManagerTest {
+
+    private static final String LATEST = "{\"data\":{\"2\":{\"high\":200,\"highTime\":1,\"low\":190,\"lowTime\":2}}}";
+    private static final String HOURLY = "{\"data\":{\"2\":{\"highPriceVolume\":5000,\"lowPriceVolume\":4000}}}";
+    private static final String MAPPING = "[{\"id\":2,\"name\":\"Cannonball\",\"limit\":11000,\"members\":true,\"highalch\":3}]";
+
+    private HttpServer server;
+    private final AtomicInteger latestFullResponses = new AtomicInteger();
+    private final AtomicInteger latestNotModified = new AtomicInteger();
+    private volatile int latestStatus = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/latest", exchange -> {
+            if (latestStatus != 200) {
+                respond(exchange, latestStatus, "");
+            } else if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                latestNotModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+            } else {
+                latestFullResponses.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                respond(exchange, 200, LATEST);
+            }
+        });
+        server.createContext("/1h", exchange -> respond(exchange, 200, HOURLY));
+        server.createContext("/mapping", exchange -> respond(exchange, 200, MAPPING));
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRefreshPublishesJoinedSnapshot() {
+        WikiPriceManager manager = newManager();
+        AtomicInteger callbacks = new AtomicInteger();
+        manager.setPricesChangedCallback((prices) -> callbacks.incrementAndGet());
+
+        Assert.assertTrue(manager.refresh(Instant.now()));
+
+        Map<Integer, WikiItemStats> prices = manager.getSnapshot().getPrices();
+        WikiItemStats stats = prices.get(2);
+        Assert.assertEquals(200, stats.getBuyPrice());
+        Assert.assertEquals(190, stats.getSellPrice());
+        Assert.assertEquals(4000, stats.getLowPriceVolume());
+        Assert.assertEquals("Cannonball", stats.getName());
+        Assert.assertEquals(11000, stats.getBuyLimit());
+        Assert.assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    public void testUnchangedResponsesDontRepublish() {
+        WikiPriceManager manager = newManager();
+        AtomicInteger callbacks = new AtomicInteger();
+        manager.setPricesChangedCallback((prices) -> callbacks.incrementAndGet());
+        Instant now = Instant.now();
+
+        Assert.assertTrue(manager.refresh(now));
+        WikiPriceSnapshot first = manager.getSnapshot();
+        // within the refresh interval nothing is requested at all
+        Assert.assertTrue(manager.refresh(now.plusSeconds(1)));
+        Assert.assertEquals(0, latestNotModified.get());
+        // once due the conditional GET comes back 304 and the snapshot stays the same
+        Assert.assertTrue(manager.refresh(now.plus(Duration.ofMinutes(2))));
+
+        Assert.assertEquals(1, latestFullResponses.get());
+        Assert.assertEquals(1, latestNotModified.get());
+        Assert.assertSame(first, manager.getSnapshot());
+        Assert.assertEquals(1, callbacks.get());
+    }
+
+    @Test
+    public void testFailuresBackOff() {
+        WikiPriceManager manager = newManager();
+        latestStatus = 503;
+        Instant now = Instant.now();
+
+        Assert.assertFalse(manager.refresh(now));
+        long firstDelay = manager.nextDelayMillis();
+        Assert.assertFalse(manager.refresh(now));
+        Assert.assertFalse(manager.refresh(now));
+        long thirdDelay = manager.nextDelayMillis();
+
+        Assert.assertSame(WikiPriceSnapshot.EMPTY, manager.getSnapshot());
+        Assert.assertTrue(firstDelay >= 2_500 && firstDelay <= 7_500);
+        Assert.assertTrue(thirdDelay >= 10_000 && thirdDelay <= 30_000);
+
+        latestStatus = 200;
+        Assert.assertTrue(manager.refresh(now));
+        Assert.assertTrue(manager.nextDelayMillis() >= 60_000);
+        Assert.assertFalse(manager.getSnapshot().getPrices().isEmpty());
+    }
+
+    @Test
+    public void testUnexpectedErrorsDontEscapeRefresh() {
+        WikiPriceManager manager = newManager();
+        manager.setPricesChangedCallback((prices) -> {
+            throw new IllegalStateException("callback failed");
+        });
+
+        Assert.assertFalse(manager.refresh(Instant.now()));
+        Assert.assertFalse(manager.getSnapshot().getPrices().isEmpty());
+    }
+
+    private WikiPriceManager newManager() {
+        WikiPriceManager manager = new WikiPriceManager(new OkHttpClient(), new DoesNothingExecutorService());
+        manager.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        return manager;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
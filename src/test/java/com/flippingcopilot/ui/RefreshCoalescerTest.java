@@ -0,0 +1,39 @@
+package com.flippingcopilot.ui;
+
+import org.junit.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshCoalescerTest {
+
+    @Test
+    public void request_burstIsCoalescedIntoOneRefreshOnTheEdt() throws Exception {
+        List<boolean[]> runs = new ArrayList<>();
+        CountDownLatch ran = new CountDownLatch(1);
+        RefreshCoalescer coalescer = new RefreshCoalescer(200, (flipsMaybeChanged, validLoginState) -> {
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            runs.add(new boolean[]{flipsMaybeChanged, validLoginState});
+            ran.countDown();
+        });
+
+        coalescer.request(true, false);
+        for (int i = 0; i < 99; i++) {
+            coalescer.request(false, true);
+        }
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> {});
+        assertEquals(1, runs.size());
+        // a flip change anywhere in the burst is kept, the login state is the latest one
+        assertTrue(runs.get(0)[0]);
+        assertTrue(runs.get(0)[1]);
+        assertEquals(99, coalescer.getRefreshesAvoided());
+    }
+}
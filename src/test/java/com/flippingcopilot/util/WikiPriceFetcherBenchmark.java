@@ -0,0 +1,179 @@
+package com.flippingcopilot.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flippingcopilot.model.WikiItemMapping;
+import com.flippingcopilot.model.WikiItemStats;
+import com.flippingcopilot.model.WikiLatestPrices;
+import com.flippingcopilot.model.WikiPriceBucket;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a full price refresh (/latest, /1h and /mapping parsed and joined into the WikiItemStats map) the previous
+ * way, Jackson trees for every document and a new WikiItemStats per item, against the streaming parsers and the join
+ * that keeps unchanged WikiItemStats. previousRefresh=true joins against the map of an earlier refresh where one in ten
+ * prices has since moved, the steady state of the minutely poll. Run with ./gradlew jmh
+ * -Pbenchmark=WikiPriceFetcherBenchmark, the gc profiler's gc.alloc.rate.norm column gives the bytes allocated per
+ * refresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WikiPriceFetcherBenchmark {
+
+    private static final int ITEMS = 4000;
+
+    @Param({"false", "true"})
+    public boolean previousRefresh;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] latestJson;
+    private byte[] hourlyJson;
+    private byte[] mappingJson;
+    private Map<Integer, WikiItemStats> previous;
+
+    @Setup
+    public void setUp() throws IOException {
+        latestJson = generateLatestJson(ITEMS);
+        hourlyJson = generateHourlyJson(ITEMS);
+        mappingJson = generateMappingJson(ITEMS);
+        previous = Collections.emptyMap();
+        if (previousRefresh) {
+            previous = new HashMap<>(streaming());
+            int n = 0;
+            for (WikiItemStats stats : previous.values()) {
+                if (n++ % 10 == 0) {
+                    WikiItemStats moved = new WikiItemStats();
+                    moved.setItemId(stats.getItemId());
+                    previous.put(stats.getItemId(), moved);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, WikiItemStats> treeModel() throws IOException {
+        Map<Integer, WikiItemStats> itemStatsMap = new HashMap<>();
+        JsonNode root = mapper.readTree(new ByteArrayInputStream(latestJson)).get("data");
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            int itemId = Integer.parseInt(entry.getKey());
+            JsonNode node = entry.getValue();
+            WikiItemStats stats = new WikiItemStats();
+            stats.setItemId(itemId);
+            stats.setBuyPrice(node.get("high").asInt());
+            stats.setSellPrice(node.get("low").asInt());
+            stats.setHighTime(node.get("highTime").asInt());
+            stats.setLowTime(node.get("lowTime").asInt());
+            itemStatsMap.put(itemId, stats);
+        }
+        JsonNode hourly = mapper.readTree(new ByteArrayInputStream(hourlyJson));
+        for (Iterator<Map.Entry<String, JsonNode>> it = hourly.path("data").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            WikiItemStats stats = itemStatsMap.get(Integer.parseInt(entry.getKey()));
+            if (stats != null) {
+                stats.setHighPriceVolume(entry.getValue().path("highPriceVolume").asInt());
+                stats.setLowPriceVolume(entry.getValue().path("lowPriceVolume").asInt());
+            }
+        }
+        for (JsonNode node : mapper.readTree(new ByteArrayInputStream(mappingJson))) {
+            WikiItemStats stats = itemStatsMap.get(node.path("id").asInt());
+            if (stats != null) {
+                stats.setName(node.path("name").asText(null));
+                stats.setBuyLimit(node.path("limit").asInt());
+                stats.setMembers(node.path("members").asBoolean());
+                stats.setHighAlch(node.path("highalch").asInt());
+            }
+        }
+        return itemStatsMap;
+    }
+
+    @Benchmark
+    public Map<Integer, WikiItemStats> streaming() throws IOException {
+        WikiLatestPrices latest = WikiPriceFetcher.parseLatest(new ByteArrayInputStream(latestJson));
+        WikiPriceBucket hourly = WikiPriceFetcher.parseBucket(new ByteArrayInputStream(hourlyJson));
+        WikiItemMapping mapping = WikiPriceFetcher.parseMapping(new ByteArrayInputStream(mappingJson));
+        return WikiPriceFetcher.join(latest, hourly, mapping, previous);
+    }
+
+    static byte[] generateLatestJson(int items) {
+        Random random = new Random(0);
+        StringBuilder sb = new StringBuilder("{\"data\":{");
+        int itemId = 2;
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            itemId += 1 + random.nextInt(8);
+            int low = 1 + random.nextInt(10_000_000);
+            int time = 1_700_000_000 + random.nextInt(86_400);
+            sb.append('"').append(itemId).append("\":{")
+                    .append("\"high\":").append(low + random.nextInt(low / 20 + 1)).append(',')
+                    .append("\"highTime\":").append(time).append(',')
+                    .append("\"low\":").append(low).append(',')
+                    .append("\"lowTime\":").append(time - random.nextInt(3600)).append('}');
+        }
+        sb.append("}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // same item ids as generateLatestJson
+    static byte[] generateHourlyJson(int items) {
+        Random random = new Random(0);
+        StringBuilder sb = new StringBuilder("{\"data\":{");
+        int itemId = 2;
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            itemId += 1 + random.nextInt(8);
+            int avg = 1 + random.nextInt(10_000_000);
+            sb.append('"').append(itemId).append("\":{")
+                    .append("\"avgHighPrice\":").append(avg + 10).append(',')
+                    .append("\"highPriceVolume\":").append(random.nextInt(100_000)).append(',')
+                    .append("\"avgLowPrice\":").append(avg).append(',')
+                    .append("\"lowPriceVolume\":").append(random.nextInt(100_000)).append('}');
+        }
+        sb.append("},\"timestamp\":1700000000}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // same item ids as generateLatestJson
+    static byte[] generateMappingJson(int items) {
+        Random random = new Random(0);
+        StringBuilder sb = new StringBuilder("[");
+        int itemId = 2;
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            itemId += 1 + random.nextInt(8);
+            sb.append("{\"examine\":\"An item.\",\"id\":").append(itemId)
+                    .append(",\"members\":").append(random.nextBoolean())
+                    .append(",\"lowalch\":").append(random.nextInt(1000))
+                    .append(",\"limit\":").append(random.nextInt(20_000))
+                    .append(",\"value\":").append(random.nextInt(1000))
+                    .append(",\"highalch\":").append(random.nextInt(1000))
+                    .append(",\"icon\":\"Item.png\",\"name\":\"Item ").append(itemId).append("\"}");
+        }
+        sb.append(']');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(new String[]{WikiPriceFetcherBenchmark.class.getSimpleName(), "-prof", "gc"});
+    }
+}
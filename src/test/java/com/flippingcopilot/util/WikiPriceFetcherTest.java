@@ -0,0 +1,97 @@
+package com.flippingcopilot.util;
+
+import com.flippingcopilot.model.WikiItemMapping;
+import com.flippingcopilot.model.WikiItemStats;
+import com.flippingcopilot.model.WikiLatestPrices;
+import com.flippingcopilot.model.WikiPriceBucket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+public class WikiPriceFetcherTest {
+
+    @Test
+    public void testParseLatest() throws IOException {
+        String json = "{\"data\":{" +
+                "\"2\":{\"high\":180,\"highTime\":1700000100,\"low\":175,\"lowTime\":1700000050}," +
+                "\"6\":{\"high\":null,\"highTime\":null,\"low\":190000,\"lowTime\":1700000000}," +
+                "\"4151\":{\"high\":1500000,\"highTime\":1700000200,\"low\":1450000,\"lowTime\":1700000300,\"extra\":{\"a\":[1,2]}}" +
+                "},\"other\":[1,2,3]}";
+        WikiLatestPrices prices = WikiPriceFetcher.parseLatest(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(3, prices.size);
+        int i = prices.indexOf(4151);
+        Assert.assertEquals(1500000, prices.highs[i]);
+        Assert.assertEquals(1450000, prices.lows[i]);
+        Assert.assertEquals(1700000200, prices.highTimes[i]);
+        Assert.assertEquals(1700000300, prices.lowTimes[i]);
+
+        i = prices.indexOf(6);
+        Assert.assertEquals(0, prices.highs[i]);
+        Assert.assertEquals(0, prices.highTimes[i]);
+        Assert.assertEquals(190000, prices.lows[i]);
+        Assert.assertEquals(-1, prices.indexOf(3));
+    }
+
+    @Test
+    public void testParseLatestSortsOutOfOrderIds() throws IOException {
+        String json = "{\"data\":{\"10\":{\"high\":3,\"low\":1},\"2\":{\"high\":4,\"low\":2}}}";
+        WikiLatestPrices prices = WikiPriceFetcher.parseLatest(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(2, prices.itemIds[0]);
+        Assert.assertEquals(4, prices.highs[0]);
+        Assert.assertEquals(10, prices.itemIds[1]);
+        Assert.assertEquals(3, prices.highs[1]);
+    }
+
+    @Test
+    public void testParseMapping() throws IOException {
+        String json = "[{\"examine\":\"Ammo.\",\"id\":2,\"members\":true,\"lowalch\":2,\"limit\":11000,\"value\":5,\"highalch\":3,\"icon\":\"Steel cannonball.png\",\"name\":\"Steel cannonball\"}," +
+                "{\"id\":1,\"name\":\"No limit\",\"members\":false,\"extra\":{\"a\":[1]}}]";
+        WikiItemMapping mapping = WikiPriceFetcher.parseMapping(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals(2, mapping.size);
+        Assert.assertEquals(1, mapping.itemIds[0]);
+        int i = mapping.indexOf(2);
+        Assert.assertEquals("Steel cannonball", mapping.names[i]);
+        Assert.assertEquals(11000, mapping.limits[i]);
+        Assert.assertEquals(3, mapping.highAlchs[i]);
+        Assert.assertTrue(mapping.members[i]);
+        i = mapping.indexOf(1);
+        Assert.assertEquals("No limit", mapping.names[i]);
+        Assert.assertEquals(0, mapping.limits[i]);
+        Assert.assertFalse(mapping.members[i]);
+    }
+
+    @Test
+    public void testJoinKeepsUnchangedStats() throws IOException {
+        WikiLatestPrices latest = WikiPriceFetcher.parseLatest(stream("{\"data\":{\"2\":{\"high\":200,\"low\":190},\"6\":{\"high\":50,\"low\":40}}}"));
+        WikiPriceBucket hourly = WikiPriceFetcher.parseBucket(stream("{\"data\":{\"2\":{\"highPriceVolume\":5000,\"lowPriceVolume\":4000},\"9\":{\"highPriceVolume\":1}}}"));
+        WikiItemMapping mapping = WikiPriceFetcher.parseMapping(stream("[{\"id\":2,\"name\":\"Cannonball\",\"limit\":11000,\"members\":true}]"));
+
+        Map<Integer, WikiItemStats> first = WikiPriceFetcher.join(latest, hourly, mapping, Collections.emptyMap());
+        WikiItemStats cannonball = first.get(2);
+        Assert.assertEquals(200, cannonball.getBuyPrice());
+        Assert.assertEquals(190, cannonball.getSellPrice());
+        Assert.assertEquals(4000, cannonball.getLowPriceVolume());
+        Assert.assertEquals("Cannonball", cannonball.getName());
+        Assert.assertEquals(11000, cannonball.getBuyLimit());
+        Assert.assertNull(first.get(6).getName());
+        Assert.assertEquals(2, first.size());
+
+        WikiLatestPrices moved = WikiPriceFetcher.parseLatest(stream("{\"data\":{\"2\":{\"high\":200,\"low\":190},\"6\":{\"high\":55,\"low\":40}}}"));
+        Map<Integer, WikiItemStats> second = WikiPriceFetcher.join(moved, hourly, mapping, first);
+        Assert.assertSame(cannonball, second.get(2));
+        Assert.assertNotSame(first.get(6), second.get(6));
+        Assert.assertEquals(55, second.get(6).getBuyPrice());
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}